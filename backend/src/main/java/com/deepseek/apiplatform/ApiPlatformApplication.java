@@ -2,8 +2,10 @@ package com.deepseek.apiplatform;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ApiPlatformApplication {
     public static void main(String[] args) {
         SpringApplication.run(ApiPlatformApplication.class, args);
@@ -0,0 +1,45 @@
+package com.deepseek.apiplatform.backend;
+
+import java.util.Arrays;
+
+/**
+ * The most recent response latencies of an upstream. Percentiles are recomputed from a sorted
+ * copy at most once every {@code REFRESH_EVERY} samples.
+ */
+class LatencyWindow {
+    private static final int REFRESH_EVERY = 32;
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private int sinceRefresh = REFRESH_EVERY;
+    private long[] sorted = new long[0];
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        sinceRefresh++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long percentileNanos(double quantile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (sinceRefresh >= REFRESH_EVERY || sorted.length != size) {
+            sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            sinceRefresh = 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
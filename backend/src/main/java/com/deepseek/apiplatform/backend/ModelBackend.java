@@ -0,0 +1,27 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.service.Generation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Something that produces completions for one or more models. Calls must not block: the returned
+ * future completes once the whole completion is available. {@code promptTokens} is the platform's
+ * own count of the prompt; it is what the generation reports, so billing and prompt caching stay
+ * consistent whichever backend served the request.
+ */
+public interface ModelBackend {
+
+    String name();
+
+    CompletableFuture<Generation> complete(String model, ChatCompletionRequest request, int promptTokens);
+
+    /**
+     * Like {@link #complete}, and additionally passes each piece of content to {@code onContent}
+     * as soon as it is produced. A failing {@code onContent} aborts the generation.
+     */
+    CompletableFuture<Generation> stream(String model, ChatCompletionRequest request, int promptTokens,
+                                         Consumer<String> onContent);
+}
@@ -0,0 +1,83 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.config.ModelBackendConfig;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Decides which backend serves a model. Each configured upstream gets its own {@link HttpClient}
+ * and therefore its own connection pool; models no upstream claims go to the simulator.
+ */
+@Component
+public class ModelBackendRegistry {
+    private final ModelBackend defaultBackend;
+    private final Map<String, ModelBackend> backendsByModel = new HashMap<>();
+    private final List<HttpClient> clients = new ArrayList<>();
+
+    public ModelBackendRegistry(ModelBackendConfig config,
+                                SimulatorBackend simulatorBackend,
+                                ObjectMapper objectMapper,
+                                BpeTokenizer tokenizer,
+                                @Qualifier("chatStreamExecutor") ExecutorService executor,
+                                MeterRegistry meterRegistry) {
+        this.defaultBackend = simulatorBackend;
+        config.getUpstreams().forEach((name, upstream) -> {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(upstream.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(upstream.getConnectTimeout())
+                    .executor(executor)
+                    .build();
+            clients.add(client);
+            OpenAiCompatibleBackend backend = new OpenAiCompatibleBackend(name, upstream, client, objectMapper, tokenizer);
+            for (String model : backend.models().keySet()) {
+                ModelBackend previous = backendsByModel.putIfAbsent(model, backend);
+                if (previous != null) {
+                    throw new IllegalStateException("Model " + model + " is mapped to both "
+                            + previous.name() + " and " + name);
+                }
+            }
+            for (Replica replica : backend.replicas()) {
+                String endpoint = replica.endpoint().toString();
+                Gauge.builder("model.backend.requests.active", replica.permits(), p -> p.inUse())
+                        .tags("backend", name, "replica", endpoint)
+                        .register(meterRegistry);
+                Gauge.builder("model.backend.requests.queued", replica.permits(), p -> p.queued())
+                        .description("Requests waiting for a connection slot on the replica")
+                        .tags("backend", name, "replica", endpoint)
+                        .register(meterRegistry);
+                Gauge.builder("model.backend.latency.ewma", replica, r -> r.latencyEwmaNanos() / 1_000_000.0)
+                        .baseUnit("milliseconds")
+                        .tags("backend", name, "replica", endpoint)
+                        .register(meterRegistry);
+                FunctionCounter.builder("model.backend.ejections", replica, Replica::ejections)
+                        .tags("backend", name, "replica", endpoint)
+                        .register(meterRegistry);
+            }
+            FunctionCounter.builder("model.backend.hedges", backend, OpenAiCompatibleBackend::hedges)
+                    .description("Non-streaming requests duplicated to a second replica")
+                    .tag("backend", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public ModelBackend forModel(String model) {
+        return backendsByModel.getOrDefault(model, defaultBackend);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.forEach(HttpClient::shutdownNow);
+    }
+}
@@ -0,0 +1,509 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.config.ModelBackendConfig;
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.exception.UpstreamException;
+import com.deepseek.apiplatform.service.Generation;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Proxies completions to an OpenAI-compatible {@code /chat/completions} endpoint served by one
+ * or more replicas. Requests go through a shared {@link HttpClient}, which keeps connections open
+ * and multiplexes them over HTTP/2 when the server supports it; at most
+ * {@code max-concurrent-requests} are outstanding per replica and the rest wait for a permit
+ * without holding a thread. Streamed responses are relayed line by line as they arrive.
+ * <p>
+ * Each request goes to the replica picked by {@link ReplicaSet}. A non-streaming request that
+ * fails to reach its replica is retried once on another one, and with hedging enabled a slow one
+ * is duplicated to another replica; whichever answers first wins and the other is cancelled.
+ */
+public class OpenAiCompatibleBackend implements ModelBackend {
+    private static final int LATENCY_WINDOW = 512;
+    private static final long CREDIT_UNIT = 1000;
+    private static final long MAX_HEDGE_CREDITS = 10 * CREDIT_UNIT;
+    
+    private final String name;
+    private final ReplicaSet replicas;
+    private final String apiKey;
+    private final Map<String, String> models;
+    private final Duration requestTimeout;
+    private final ModelBackendConfig.Ejection ejection;
+    private final ModelBackendConfig.Hedge hedge;
+    private final long hedgeCreditPerRequest;
+    private final AtomicLong hedgeCredits = new AtomicLong();
+    private final LongAdder hedges = new LongAdder();
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final BpeTokenizer tokenizer;
+
+    public OpenAiCompatibleBackend(String name, ModelBackendConfig.Upstream config, HttpClient client,
+                                   ObjectMapper objectMapper, BpeTokenizer tokenizer) {
+        List<String> baseUrls = new ArrayList<>();
+        if (config.getBaseUrl() != null && !config.getBaseUrl().isBlank()) {
+            baseUrls.add(config.getBaseUrl());
+        }
+        baseUrls.addAll(config.getReplicas());
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("model-backends.upstreams." + name + " needs a base-url or replicas");
+        }
+        List<Replica> endpoints = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            URI base = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+            endpoints.add(new Replica(base.resolve("chat/completions"), config.getMaxConcurrentRequests(),
+                    config.getInitialLatency().toNanos(), config.getRequestTimeout().toNanos()));
+        }
+        this.name = name;
+        this.replicas = new ReplicaSet(endpoints);
+        this.apiKey = config.getApiKey();
+        this.models = Map.copyOf(config.getModels());
+        this.requestTimeout = config.getRequestTimeout();
+        this.ejection = config.getEjection();
+        this.hedge = config.getHedge();
+        this.hedgeCreditPerRequest = (long) (hedge.getMaxRatio() * CREDIT_UNIT);
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.tokenizer = tokenizer;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public Map<String, String> models() {
+        return models;
+    }
+
+    public List<Replica> replicas() {
+        return replicas.replicas();
+    }
+
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    @Override
+    public CompletableFuture<Generation> complete(String model, ChatCompletionRequest request, int promptTokens) {
+        byte[] body = requestBody(model, request, false);
+        HedgedCall call = new HedgedCall(body, model, promptTokens);
+        call.start(replicas.choose());
+        if (hedge.isEnabled() && replicas.size() > 1) {
+            addHedgeCredit();
+            if (latencies.size() >= hedge.getMinSamples()) {
+                long delay = Math.max(latencies.percentileNanos(hedge.getPercentile()), hedge.getMinDelay().toNanos());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(call::hedge);
+            }
+        }
+        return call.result;
+    }
+
+    @Override
+    public CompletableFuture<Generation> stream(String model, ChatCompletionRequest request, int promptTokens,
+                                                Consumer<String> onContent) {
+        Replica replica = replicas.choose();
+        HttpRequest httpRequest = newRequest(replica, requestBody(model, request, true), true);
+        replica.begin();
+        return replica.permits().run(() -> {
+            EventStreamRelay relay = new EventStreamRelay(model, promptTokens, onContent);
+            client.sendAsync(httpRequest, relay::subscriber).whenComplete((response, error) -> {
+                if (error != null) {
+                    relay.fail(failure(error));
+                }
+            });
+            return relay.result;
+        }).whenComplete((generation, error) -> {
+            replica.end();
+            recordOutcome(replica, error);
+        });
+    }
+
+    private void recordOutcome(Replica replica, Throwable error) {
+        if (error == null) {
+            replica.onSuccess();
+        } else if (isReplicaFailure(error)) {
+            replica.onFailure(System.nanoTime(), ejection.getConsecutiveFailures(),
+                    ejection.getBaseTime().toNanos(), ejection.getMaxTime().toNanos());
+        }
+    }
+
+    /**
+     * Failures that say something about the replica rather than the request: it could not be
+     * reached, timed out or answered with a server error.
+     */
+    private static boolean isReplicaFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof UpstreamException upstream && upstream.getStatus().is5xxServerError();
+    }
+
+    private void addHedgeCredit() {
+        hedgeCredits.getAndUpdate(credits -> Math.min(credits + hedgeCreditPerRequest, MAX_HEDGE_CREDITS));
+    }
+
+    private boolean takeHedgeCredit() {
+        long credits;
+        do {
+            credits = hedgeCredits.get();
+            if (credits < CREDIT_UNIT) {
+                return false;
+            }
+        } while (!hedgeCredits.compareAndSet(credits, credits - CREDIT_UNIT));
+        return true;
+    }
+
+    private HttpRequest newRequest(Replica replica, byte[] body, boolean stream) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(replica.endpoint())
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json");
+        if (apiKey != null && !apiKey.isBlank()) {
+            builder.header("Authorization", "Bearer " + apiKey);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private byte[] requestBody(String model, ChatCompletionRequest request, boolean stream) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", models.getOrDefault(model, model));
+        ArrayNode messages = body.putArray("messages");
+        if (request.getMessages() != null) {
+            for (ChatCompletionRequest.Message message : request.getMessages()) {
+                messages.addObject().put("role", message.getRole()).put("content", message.getContent());
+            }
+        }
+        if (request.getTemperature() != null) {
+            body.put("temperature", request.getTemperature());
+        }
+        if (request.getMaxTokens() != null) {
+            body.put("max_tokens", request.getMaxTokens());
+        }
+        if (request.getSeed() != null) {
+            body.put("seed", request.getSeed());
+        }
+        body.put("stream", stream);
+        if (stream) {
+            body.putObject("stream_options").put("include_usage", true);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Generation parseCompletion(String model, byte[] body, int promptTokens) {
+        JsonNode root = readTree(body);
+        JsonNode choice = root.path("choices").path(0);
+        String content = choice.path("message").path("content").asText("");
+        String finishReason = choice.path("finish_reason").asText("stop");
+        return new Generation(model, content, promptTokens, completionTokens(root.path("usage"), content),
+                finishReason, null);
+    }
+
+    private int completionTokens(JsonNode usage, String content) {
+        JsonNode reported = usage.path("completion_tokens");
+        return reported.isInt() ? reported.asInt() : tokenizer.countTokens(content);
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UpstreamException(HttpStatus.BAD_GATEWAY, "上游服务返回了无法解析的响应", e);
+        }
+    }
+
+    private UpstreamException statusFailure(int status, byte[] body) {
+        String detail = new String(body, StandardCharsets.UTF_8);
+        try {
+            JsonNode message = objectMapper.readTree(body).path("error").path("message");
+            if (message.isTextual()) {
+                detail = message.asText();
+            }
+        } catch (IOException ignored) {
+            // not JSON, keep the raw body
+        }
+        if (status == 429) {
+            return new UpstreamException(HttpStatus.TOO_MANY_REQUESTS, "上游服务繁忙，请稍后重试");
+        }
+        if (status == 400) {
+            return new UpstreamException(HttpStatus.BAD_REQUEST, "上游服务拒绝了请求: " + detail);
+        }
+        return new UpstreamException(HttpStatus.BAD_GATEWAY, "上游服务错误 (HTTP " + status + ")");
+    }
+
+    private static RuntimeException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UpstreamException upstream) {
+            return upstream;
+        }
+        if (cause instanceof HttpTimeoutException) {
+            return new UpstreamException(HttpStatus.GATEWAY_TIMEOUT, "上游服务响应超时", cause);
+        }
+        return new UpstreamException(HttpStatus.BAD_GATEWAY, "无法连接上游服务", cause);
+    }
+
+    /**
+     * One non-streaming request and its duplicates. The first successful attempt completes
+     * {@link #result}; a failed attempt fails it only if no other attempt is left. At most one
+     * extra attempt is made, either as a hedge or as a retry after a replica failure.
+     */
+    private final class HedgedCall {
+        private final byte[] body;
+        private final String model;
+        private final int promptTokens;
+        private final CompletableFuture<Generation> result = new CompletableFuture<>();
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private int pending;
+        private boolean duplicated;
+
+        HedgedCall(byte[] body, String model, int promptTokens) {
+            this.body = body;
+            this.model = model;
+            this.promptTokens = promptTokens;
+        }
+
+        void hedge() {
+            Replica other;
+            synchronized (this) {
+                if (result.isDone() || duplicated) {
+                    return;
+                }
+                other = replicas.chooseOther(attempts.get(0).replica);
+                if (other == null || !takeHedgeCredit()) {
+                    return;
+                }
+                duplicated = true;
+            }
+            hedges.increment();
+            start(other);
+        }
+
+        void start(Replica replica) {
+            Attempt attempt = new Attempt(replica);
+            synchronized (this) {
+                attempts.add(attempt);
+                pending++;
+            }
+            attempt.run(body, model, promptTokens).whenComplete((generation, error) -> {
+                if (error == null) {
+                    result.complete(generation);
+                    cancelOthers(attempt);
+                } else {
+                    onFailure(attempt, error);
+                }
+            });
+        }
+
+        private void onFailure(Attempt attempt, Throwable error) {
+            Replica retry = null;
+            synchronized (this) {
+                pending--;
+                if (result.isDone()) {
+                    return;
+                }
+                if (!duplicated && isReplicaFailure(error)) {
+                    retry = replicas.chooseOther(attempt.replica);
+                    duplicated = retry != null;
+                }
+                if (retry == null && pending == 0) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                    return;
+                }
+            }
+            if (retry != null) {
+                start(retry);
+            }
+        }
+
+        private void cancelOthers(Attempt winner) {
+            List<Attempt> others;
+            synchronized (this) {
+                others = new ArrayList<>(attempts);
+            }
+            for (Attempt attempt : others) {
+                if (attempt != winner) {
+                    attempt.cancel();
+                }
+            }
+        }
+    }
+
+    private final class Attempt {
+        private final Replica replica;
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<HttpResponse<byte[]>> exchange;
+
+        Attempt(Replica replica) {
+            this.replica = replica;
+        }
+
+        CompletableFuture<Generation> run(byte[] body, String model, int promptTokens) {
+            long start = System.nanoTime();
+            replica.begin();
+            return replica.permits().run(() -> {
+                if (cancelled) {
+                    return CompletableFuture.<HttpResponse<byte[]>>failedFuture(new CancellationException());
+                }
+                exchange = client.sendAsync(newRequest(replica, body, false), HttpResponse.BodyHandlers.ofByteArray());
+                return exchange;
+            }).handle((response, error) -> {
+                replica.end();
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                RuntimeException failure = null;
+                Generation generation = null;
+                if (error != null) {
+                    failure = failure(error);
+                } else if (response.statusCode() / 100 != 2) {
+                    failure = statusFailure(response.statusCode(), response.body());
+                } else {
+                    try {
+                        generation = parseCompletion(model, response.body(), promptTokens);
+                    } catch (UpstreamException e) {
+                        failure = e;
+                    }
+                }
+                recordOutcome(replica, failure);
+                if (failure != null) {
+                    throw failure;
+                }
+                long latency = System.nanoTime() - start;
+                replica.onLatency(latency);
+                latencies.record(latency);
+                return generation;
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<HttpResponse<byte[]>> current = exchange;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads a {@code text/event-stream} body one line at a time, requesting the next line only
+     * after the previous one has been handed on.
+     */
+    private final class EventStreamRelay implements Flow.Subscriber<String> {
+        private final String model;
+        private final int promptTokens;
+        private final Consumer<String> onContent;
+        private final CompletableFuture<Generation> result = new CompletableFuture<>();
+        private final StringBuilder content = new StringBuilder();
+        private String finishReason = "stop";
+        private JsonNode usage;
+        private Flow.Subscription subscription;
+
+        EventStreamRelay(String model, int promptTokens, Consumer<String> onContent) {
+            this.model = model;
+            this.promptTokens = promptTokens;
+            this.onContent = onContent;
+        }
+
+        HttpResponse.BodySubscriber<Void> subscriber(HttpResponse.ResponseInfo info) {
+            if (info.statusCode() / 100 != 2) {
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), body -> {
+                    fail(statusFailure(info.statusCode(), body));
+                    return null;
+                });
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(this, relay -> null, StandardCharsets.UTF_8, null);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                accept(line);
+            } catch (Throwable e) {
+                subscription.cancel();
+                fail(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(failure(error));
+        }
+
+        @Override
+        public void onComplete() {
+            String text = content.toString();
+            int completionTokens = usage != null ? completionTokens(usage, text) : tokenizer.countTokens(text);
+            result.complete(new Generation(model, text, promptTokens, completionTokens, finishReason, null));
+        }
+
+        void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+
+        private void accept(String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || "[DONE]".equals(data)) {
+                return;
+            }
+            JsonNode chunk = readTree(data.getBytes(StandardCharsets.UTF_8));
+            if (chunk.has("error")) {
+                throw new UpstreamException(HttpStatus.BAD_GATEWAY,
+                        "上游服务错误: " + chunk.path("error").path("message").asText());
+            }
+            if (chunk.path("usage").isObject()) {
+                usage = chunk.get("usage");
+            }
+            JsonNode choice = chunk.path("choices").path(0);
+            JsonNode reason = choice.path("finish_reason");
+            if (reason.isTextual()) {
+                finishReason = reason.asText();
+            }
+            JsonNode delta = choice.path("delta").path("content");
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                content.append(delta.asText());
+                onContent.accept(delta.asText());
+            }
+        }
+    }
+}
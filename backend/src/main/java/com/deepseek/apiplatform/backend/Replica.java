@@ -0,0 +1,119 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.concurrent.AsyncSemaphore;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One serving endpoint of an upstream. Tracks the load and health signals the router scores it
+ * by: requests outstanding (queued or in flight), an exponentially weighted moving average of
+ * response latency, and consecutive failures.
+ * <p>
+ * A replica without samples is scored with the latency {@link ReplicaSet} passes in, the median
+ * of its sampled peers, so it competes as an average replica instead of an idle one; with no
+ * samples anywhere the configured initial latency is used. Every failure counts as a sample of
+ * {@code failureLatencyNanos}, so a replica that only fails loses comparisons long before it is
+ * ejected.
+ */
+public class Replica {
+    private static final double EWMA_WEIGHT = 0.3;
+    
+    private final URI endpoint;
+    private final AsyncSemaphore permits;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong ejections = new AtomicLong();
+    private final long failureLatencyNanos;
+    private double latencyEwmaNanos;
+    private boolean sampled;
+    private int consecutiveFailures;
+    private int ejectionStreak;
+    private volatile long ejectedUntilNanos;
+    private volatile boolean ejected;
+
+    Replica(URI endpoint, int maxConcurrentRequests, long initialLatencyNanos, long failureLatencyNanos) {
+        this.endpoint = endpoint;
+        this.permits = new AsyncSemaphore(maxConcurrentRequests);
+        this.latencyEwmaNanos = initialLatencyNanos;
+        this.failureLatencyNanos = failureLatencyNanos;
+    }
+
+    public URI endpoint() {
+        return endpoint;
+    }
+
+    public AsyncSemaphore permits() {
+        return permits;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public long ejections() {
+        return ejections.get();
+    }
+
+    public synchronized double latencyEwmaNanos() {
+        return latencyEwmaNanos;
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    boolean isAvailable(long nowNanos) {
+        return !ejected || nowNanos - ejectedUntilNanos >= 0;
+    }
+
+    synchronized boolean sampled() {
+        return sampled;
+    }
+
+    /**
+     * Lower is better. {@code unsampledLatencyNanos} stands in for the average until the first
+     * sample, unless it is {@code NaN}. Each failure in the current streak doubles, triples... the
+     * score on top of the penalty already folded into the latency average.
+     */
+    synchronized double score(double unsampledLatencyNanos) {
+        double latency = sampled || Double.isNaN(unsampledLatencyNanos) ? latencyEwmaNanos : unsampledLatencyNanos;
+        return (outstanding.get() + 1) * latency * (consecutiveFailures + 1);
+    }
+
+    /**
+     * The first sample replaces the initial latency, later ones move the average.
+     */
+    synchronized void onLatency(long nanos) {
+        latencyEwmaNanos = sampled ? latencyEwmaNanos + EWMA_WEIGHT * (nanos - latencyEwmaNanos) : nanos;
+        sampled = true;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        ejectionStreak = 0;
+        ejected = false;
+    }
+
+    /**
+     * Ejects the replica once {@code failuresToEject} failures happen in a row. A replica that
+     * has not succeeded since its last ejection is ejected again on its first failure, for twice
+     * as long, up to {@code maxEjectionNanos}.
+     */
+    synchronized void onFailure(long nowNanos, int failuresToEject, long baseEjectionNanos, long maxEjectionNanos) {
+        onLatency(Math.max(failureLatencyNanos, (long) latencyEwmaNanos));
+        if (!ejected && ++consecutiveFailures < failuresToEject) {
+            return;
+        }
+        consecutiveFailures = 0;
+        long duration = Math.min(baseEjectionNanos << Math.min(ejectionStreak, 20), maxEjectionNanos);
+        ejectionStreak++;
+        ejectedUntilNanos = nowNanos + duration;
+        ejected = true;
+        ejections.incrementAndGet();
+    }
+}
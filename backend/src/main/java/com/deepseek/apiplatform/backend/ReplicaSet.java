@@ -0,0 +1,84 @@
+package com.deepseek.apiplatform.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a replica by power of two choices: two random available replicas are compared and the
+ * one with the lower {@link Replica#score(double)} wins. With two replicas this is least outstanding
+ * requests weighted by latency. Ejected replicas are skipped unless every replica is ejected.
+ * Replicas without latency samples are scored at the median latency of the ones with samples.
+ */
+class ReplicaSet {
+    private final List<Replica> replicas;
+
+    ReplicaSet(List<Replica> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("at least one replica is required");
+        }
+        this.replicas = List.copyOf(replicas);
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    int size() {
+        return replicas.size();
+    }
+
+    Replica choose() {
+        Replica replica = choose(null, true);
+        return replica != null ? replica : choose(null, false);
+    }
+
+    /**
+     * Returns an available replica other than {@code exclude}, or {@code null} if there is none.
+     */
+    Replica chooseOther(Replica exclude) {
+        return choose(exclude, true);
+    }
+
+    private Replica choose(Replica exclude, boolean availableOnly) {
+        long now = System.nanoTime();
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica != exclude && (!availableOnly || replica.isAvailable(now))) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.size() <= 1) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Replica a = candidates.get(first);
+        Replica b = candidates.get(second);
+        double unsampled = unsampledLatencyNanos();
+        return b.score(unsampled) < a.score(unsampled) ? b : a;
+    }
+
+    /**
+     * Median latency of the replicas that have samples, or {@code NaN} if none has.
+     */
+    double unsampledLatencyNanos() {
+        double[] latencies = new double[replicas.size()];
+        int sampled = 0;
+        for (Replica replica : replicas) {
+            if (replica.sampled()) {
+                latencies[sampled++] = replica.latencyEwmaNanos();
+            }
+        }
+        if (sampled == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(latencies, 0, sampled);
+        return sampled % 2 == 1 ? latencies[sampled / 2] : (latencies[sampled / 2 - 1] + latencies[sampled / 2]) / 2;
+    }
+}
@@ -0,0 +1,132 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.service.Generation;
+import com.deepseek.apiplatform.simulation.LatencySchedule;
+import com.deepseek.apiplatform.simulation.WorkloadSimulator;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Canned replies shaped by {@link WorkloadSimulator}. Serves every model that has no upstream.
+ */
+@Component
+public class SimulatorBackend implements ModelBackend {
+    public static final String NAME = "simulator";
+    
+    private final BpeTokenizer tokenizer;
+    private final WorkloadSimulator workloadSimulator;
+
+    public SimulatorBackend(BpeTokenizer tokenizer, WorkloadSimulator workloadSimulator) {
+        this.tokenizer = tokenizer;
+        this.workloadSimulator = workloadSimulator;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public CompletableFuture<Generation> complete(String model, ChatCompletionRequest request, int promptTokens) {
+        Generation generation = generate(model, request, promptTokens);
+        LatencySchedule schedule = generation.schedule();
+        if (schedule == null) {
+            return CompletableFuture.completedFuture(generation);
+        }
+        return workloadSimulator.deliverAt(schedule.completionDueNanos(), generation);
+    }
+    
+    /**
+     * Pieces that are already due are passed on the calling thread.
+     */
+    @Override
+    public CompletableFuture<Generation> stream(String model, ChatCompletionRequest request, int promptTokens,
+                                                Consumer<String> onContent) {
+        Generation generation = generate(model, request, promptTokens);
+        List<String> pieces = splitIntoPieces(generation.content());
+        return workloadSimulator.emit(pieces, pieceDueTimes(generation, pieces), onContent)
+                .thenApply(done -> generation);
+    }
+    
+    private Generation generate(String model, ChatCompletionRequest request, int promptTokens) {
+        String content = generateMockResponse(request);
+        String finishReason = "stop";
+        WorkloadSimulator.Workload workload = workloadSimulator.begin(model, request.getSeed());
+        if (workload == null) {
+            return new Generation(model, content, promptTokens, tokenizer.countTokens(content));
+        }
+        
+        int targetTokens = workload.sampleCompletionTokens();
+        if (targetTokens > 0) {
+            if (request.getMaxTokens() != null && request.getMaxTokens() > 0 && targetTokens > request.getMaxTokens()) {
+                targetTokens = request.getMaxTokens();
+                finishReason = "length";
+            }
+            content = workload.compose(content, targetTokens);
+        }
+        int completionTokens = tokenizer.countTokens(content);
+        return new Generation(model, content, promptTokens, completionTokens, finishReason,
+                workload.schedule(completionTokens));
+    }
+    
+    private long[] pieceDueTimes(Generation generation, List<String> pieces) {
+        LatencySchedule schedule = generation.schedule();
+        if (schedule == null) {
+            return null;
+        }
+        long[] due = new long[pieces.size()];
+        int length = Math.max(generation.content().length(), 1);
+        int emitted = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            emitted += pieces.get(i).length();
+            int tokenIndex = (int) ((long) emitted * generation.completionTokens() / length) - 1;
+            due[i] = schedule.tokenDueNanos(tokenIndex);
+        }
+        return due;
+    }
+    
+    /**
+     * Splits {@code content} after each whitespace character, the granularity at which simulated
+     * and cached completions are streamed.
+     */
+    public static List<String> splitIntoPieces(String content) {
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (Character.isWhitespace(content.charAt(i))) {
+                pieces.add(content.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < content.length()) {
+            pieces.add(content.substring(start));
+        }
+        return pieces;
+    }
+    
+    private String generateMockResponse(ChatCompletionRequest request) {
+        if (request.getMessages() == null || request.getMessages().isEmpty()) {
+            return "Hello! How can I help you today?";
+        }
+        
+        String lastMessage = "";
+        for (ChatCompletionRequest.Message msg : request.getMessages()) {
+            if ("user".equals(msg.getRole())) {
+                lastMessage = msg.getContent();
+            }
+        }
+        
+        if (lastMessage.toLowerCase().contains("hello") || lastMessage.toLowerCase().contains("hi")) {
+            return "Hello! I'm DeepSeek AI assistant. How can I help you today?";
+        } else if (lastMessage.toLowerCase().contains("code") || lastMessage.toLowerCase().contains("programming")) {
+            return "I'd be happy to help with coding! Here's a sample response for your programming question. In a real implementation, this would connect to the actual DeepSeek API.";
+        } else {
+            return "Thank you for your message! This is a simulated response from the DeepSeek API platform. In production, this would be connected to the actual DeepSeek AI models. Your question was: \"" + lastMessage + "\"";
+        }
+    }
+}
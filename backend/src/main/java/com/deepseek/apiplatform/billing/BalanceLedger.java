@@ -0,0 +1,319 @@
+package com.deepseek.apiplatform.billing;
+
+import com.deepseek.apiplatform.entity.BalanceSnapshot;
+import com.deepseek.apiplatform.entity.BillingRecord;
+import com.deepseek.apiplatform.entity.LedgerEntry;
+import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.exception.PaymentRequiredException;
+import com.deepseek.apiplatform.repository.BalanceSnapshotRepository;
+import com.deepseek.apiplatform.repository.BillingRecordRepository;
+import com.deepseek.apiplatform.repository.LedgerEntryRepository;
+import com.deepseek.apiplatform.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepaid balances kept in memory. A completion reserves its worst-case cost when it is admitted
+ * and settles the actual cost when it finishes, each with a compare-and-set on the user's
+ * balance. Settled charges are appended to the {@link LedgerEntry} ledger in batches, one
+ * transaction and one {@link BillingRecord.RecordType#USAGE} record per user per flush, so
+ * charging adds no synchronous write to a request and no row is ever updated in place.
+ * <p>
+ * A user's balance is loaded the first time it is needed as their latest {@link BalanceSnapshot}
+ * plus the ledger entries after it; without a snapshot the opening balance is
+ * {@code users.balance}, which the ledger never writes. Snapshots are taken periodically so the
+ * tail read at load time stays short.
+ */
+@Component
+public class BalanceLedger {
+    private static final Logger log = LoggerFactory.getLogger(BalanceLedger.class);
+
+    private final UserRepository userRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final BillingRecordRepository billingRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean requireBalance;
+    private final Duration snapshotLag;
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Set<Long> unsnapshotted = ConcurrentHashMap.newKeySet();
+
+    public BalanceLedger(UserRepository userRepository,
+                         LedgerEntryRepository ledgerEntryRepository,
+                         BalanceSnapshotRepository balanceSnapshotRepository,
+                         BillingRecordRepository billingRecordRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${billing.require-balance:true}") boolean requireBalance,
+                         @Value("${billing.snapshot-lag:1m}") Duration snapshotLag) {
+        this.userRepository = userRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.billingRecordRepository = billingRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requireBalance = requireBalance;
+        this.snapshotLag = snapshotLag;
+    }
+
+    /**
+     * Sets {@code micros} aside from the user's balance, or throws {@link PaymentRequiredException}
+     * if the balance cannot cover it. With {@code billing.require-balance=false} the reservation
+     * always succeeds and the balance may go negative.
+     */
+    public Reservation reserve(Long userId, long micros) {
+        Account account = account(userId);
+        while (true) {
+            long available = account.available.get();
+            if (requireBalance && available < micros) {
+                throw new PaymentRequiredException("账户余额不足，请充值后重试", "insufficient_balance");
+            }
+            if (account.available.compareAndSet(available, available - micros)) {
+                account.reserved.add(micros);
+                return new Reservation(account, micros);
+            }
+        }
+    }
+
+    /**
+     * Appends a payment of {@code micros} to the ledger in the current transaction and adds it to
+     * the balance once that transaction commits.
+     */
+    public void credit(Long userId, long micros, String description) {
+        Account account = account(userId);
+        List<LedgerEntry> entries = new ArrayList<>(2);
+        transfer(entries, userId, LedgerEntry.Account.PAYMENTS, LedgerEntry.Account.USER_BALANCE, micros,
+                description, LocalDateTime.now());
+        ledgerEntryRepository.appendAll(entries);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    account.available.addAndGet(micros);
+                    unsnapshotted.add(userId);
+                }
+            });
+        } else {
+            account.available.addAndGet(micros);
+            unsnapshotted.add(userId);
+        }
+    }
+
+    /**
+     * Balance in micros after settled charges, including ones not yet written to the database.
+     * Reserved amounts still count as part of the balance.
+     */
+    public long balance(Long userId) {
+        Account account = account(userId);
+        return account.available.get() + account.reserved.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${billing.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Charge> charges = drain();
+        if (charges.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<LedgerEntry> entries = new ArrayList<>(charges.size() * 2);
+                List<BillingRecord> records = new ArrayList<>(charges.size());
+                for (Charge charge : charges) {
+                    String description = "API 调用扣费 - " + charge.requests() + " 次请求";
+                    if (charge.micros() != 0) {
+                        transfer(entries, charge.userId(), LedgerEntry.Account.USER_BALANCE,
+                                LedgerEntry.Account.USAGE_REVENUE, charge.micros(), description, now);
+                    }
+                    records.add(usageRecord(charge, description));
+                }
+                ledgerEntryRepository.appendAll(entries);
+                billingRecordRepository.saveAll(records);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist charges for {} users, will retry", charges.size(), e);
+            charges.forEach(charge -> charge.account().unpersisted(charge.micros(), charge.requests()));
+            return;
+        }
+        charges.forEach(charge -> unsnapshotted.add(charge.userId()));
+    }
+
+    /**
+     * Snapshots every user with ledger entries since their last snapshot. Only entries older than
+     * {@code billing.snapshot-lag} are covered, so an entry whose id was assigned before a
+     * snapshot but committed after it is not skipped.
+     */
+    @Scheduled(fixedDelayString = "${billing.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (unsnapshotted.isEmpty()) {
+            return;
+        }
+        long upToId = ledgerEntryRepository.findMaxIdCreatedBefore(LocalDateTime.now().minus(snapshotLag));
+        for (Long userId : unsnapshotted) {
+            unsnapshotted.remove(userId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> snapshot(userId, upToId));
+                if (ledgerEntryRepository.existsByUserIdAndIdGreaterThan(userId, upToId)) {
+                    unsnapshotted.add(userId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to snapshot balance of user {}, will retry", userId, e);
+                unsnapshotted.add(userId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Loads outside the map and publishes with {@code putIfAbsent}, so the database reads never
+     * run under a map bin lock; a thread that loses a concurrent first load uses the winner's
+     * account and discards its own.
+     */
+    private Account account(Long userId) {
+        Account account = accounts.get(userId);
+        if (account != null) {
+            return account;
+        }
+        Account loaded = load(userId);
+        account = accounts.putIfAbsent(userId, loaded);
+        if (account != null) {
+            return account;
+        }
+        unsnapshotted.add(userId);
+        return loaded;
+    }
+
+    private Account load(Long userId) {
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findById(userId).orElse(null);
+        if (snapshot == null) {
+            return new Account(openingBalance(userId) + ledgerEntryRepository.sumBalanceBetween(userId, 0, Long.MAX_VALUE));
+        }
+        return new Account(snapshot.getBalanceMicros()
+                + ledgerEntryRepository.sumBalanceBetween(userId, snapshot.getLastEntryId(), Long.MAX_VALUE));
+    }
+
+    private long openingBalance(Long userId) {
+        return Micros.of(userRepository.findById(userId)
+                .map(User::getBalance)
+                .orElse(BigDecimal.ZERO));
+    }
+
+    private void snapshot(Long userId, long upToId) {
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findById(userId).orElse(null);
+        if (snapshot == null) {
+            snapshot = new BalanceSnapshot();
+            snapshot.setUserId(userId);
+            snapshot.setBalanceMicros(openingBalance(userId));
+        } else if (snapshot.getLastEntryId() >= upToId) {
+            return;
+        }
+        snapshot.setBalanceMicros(snapshot.getBalanceMicros()
+                + ledgerEntryRepository.sumBalanceBetween(userId, snapshot.getLastEntryId(), upToId));
+        snapshot.setLastEntryId(upToId);
+        balanceSnapshotRepository.save(snapshot);
+    }
+
+    private static void transfer(List<LedgerEntry> entries, Long userId, LedgerEntry.Account from,
+                                 LedgerEntry.Account to, long micros, String description, LocalDateTime now) {
+        String txId = UUID.randomUUID().toString();
+        entries.add(new LedgerEntry(txId, userId, from, -micros, description, now));
+        entries.add(new LedgerEntry(txId, userId, to, micros, description, now));
+    }
+
+    private List<Charge> drain() {
+        List<Charge> charges = new ArrayList<>();
+        for (Map.Entry<Long, Account> entry : accounts.entrySet()) {
+            Account account = entry.getValue();
+            long micros = account.unpersistedMicros.sumThenReset();
+            long requests = account.unpersistedRequests.sumThenReset();
+            if (micros != 0 || requests != 0) {
+                charges.add(new Charge(account, entry.getKey(), micros, requests));
+            }
+        }
+        return charges;
+    }
+
+    private BillingRecord usageRecord(Charge charge, String description) {
+        BillingRecord record = new BillingRecord();
+        record.setUserId(charge.userId());
+        record.setType(BillingRecord.RecordType.USAGE);
+        record.setAmount(Micros.toYuan(charge.micros()));
+        record.setBalance(Micros.toYuan(charge.account().available.get() + charge.account().reserved.sum()));
+        record.setDescription(description);
+        return record;
+    }
+
+    private record Charge(Account account, Long userId, long micros, long requests) {}
+
+    private static final class Account {
+        final AtomicLong available;
+        final LongAdder reserved = new LongAdder();
+        final LongAdder unpersistedMicros = new LongAdder();
+        final LongAdder unpersistedRequests = new LongAdder();
+
+        Account(long balance) {
+            this.available = new AtomicLong(balance);
+        }
+
+        void unpersisted(long micros, long requests) {
+            unpersistedMicros.add(micros);
+            unpersistedRequests.add(requests);
+        }
+    }
+
+    /**
+     * Money set aside for one request. Exactly one of {@link #settle} and {@link #release} takes
+     * effect.
+     */
+    public static final class Reservation {
+        private final Account account;
+        private final long micros;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Reservation(Account account, long micros) {
+            this.account = account;
+            this.micros = micros;
+        }
+
+        /**
+         * Charges {@code actualMicros} and returns the rest of the reservation to the balance.
+         */
+        public void settle(long actualMicros) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            account.available.addAndGet(micros - actualMicros);
+            account.reserved.add(-micros);
+            account.unpersisted(actualMicros, 1);
+        }
+
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                account.available.addAndGet(micros);
+                account.reserved.add(-micros);
+            }
+        }
+    }
+}
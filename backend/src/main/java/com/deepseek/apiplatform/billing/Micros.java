@@ -0,0 +1,23 @@
+package com.deepseek.apiplatform.billing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money on the hot path is a {@code long} count of millionths of a yuan; {@link BigDecimal}
+ * yuan only appear where amounts are stored or shown.
+ */
+public final class Micros {
+    public static final int SCALE = 6;
+
+    private Micros() {
+    }
+
+    public static long of(BigDecimal yuan) {
+        return yuan.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toYuan(long micros) {
+        return BigDecimal.valueOf(micros, SCALE);
+    }
+}
@@ -0,0 +1,77 @@
+package com.deepseek.apiplatform.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Counting semaphore whose waiters are futures rather than parked threads. A permit handed to a
+ * waiter completes its future on the releasing thread, so queued work costs no thread while it
+ * waits.
+ */
+public class AsyncSemaphore {
+    private final int permits;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    public AsyncSemaphore(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        this.permits = permits;
+        this.available = permits;
+    }
+
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    public void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiters.poll();
+            if (next == null) {
+                available++;
+                return;
+            }
+        }
+        next.complete(null);
+    }
+
+    /**
+     * Runs {@code task} once a permit is available and releases the permit when the task's future
+     * completes, however it completes.
+     */
+    public <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> task) {
+        return acquire().thenCompose(ignored -> {
+            CompletableFuture<T> result;
+            try {
+                result = task.get();
+            } catch (RuntimeException | Error e) {
+                release();
+                return CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((value, error) -> release());
+        });
+    }
+
+    public int permits() {
+        return permits;
+    }
+
+    public synchronized int inUse() {
+        return permits - available;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+}
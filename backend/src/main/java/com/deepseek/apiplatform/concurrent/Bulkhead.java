@@ -0,0 +1,190 @@
+package com.deepseek.apiplatform.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many tasks run at once. Up to {@code maxQueued} more wait, each for at most
+ * {@code maxWaitNanos}. Waiting tasks hold a future, not a thread.
+ * <p>
+ * Each task belongs to a flow (a tenant). Freed slots go to the waiting flows in weighted round
+ * robin rather than in arrival order, and when the queue is full the newest task of the flow
+ * with the most waiting tasks is the one rejected, so a flow that floods the queue mostly delays
+ * itself.
+ * <p>
+ * A freed slot is handed to the next waiter on {@code executor}, not on the thread that freed
+ * it, so the waiter's task never runs inside another task's completion and a queue of tasks that
+ * finish synchronously does not recurse through one stack.
+ */
+public class Bulkhead {
+    private static final double HOLD_EWMA_WEIGHT = 0.2;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final FairQueue<Waiter> queue = new FairQueue<>();
+    private final Listener listener;
+    private final Executor executor;
+    private int active;
+    private double holdEwmaNanos;
+
+    public Bulkhead(int maxConcurrent, int maxQueued, long maxWaitNanos, Listener listener, Executor executor) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(maxQueued, 0);
+        this.maxWaitNanos = maxWaitNanos;
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> task) {
+        return run(null, 1, task);
+    }
+
+    /**
+     * Runs {@code task} now or once a slot frees up, and frees the slot when the task's future
+     * completes. Throws {@link Rejected} if the queue is full; the returned future fails with it
+     * if the task waits longer than allowed, or is pushed out by a flow with fewer tasks waiting.
+     */
+    public <T> CompletableFuture<T> run(Object flow, int weight, Supplier<CompletableFuture<T>> task) {
+        return enter(flow, weight).thenCompose(admittedAt -> {
+            CompletableFuture<T> result;
+            try {
+                result = task.get();
+            } catch (RuntimeException | Error e) {
+                exit(admittedAt);
+                return CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((value, error) -> exit(admittedAt));
+        });
+    }
+
+    public synchronized int active() {
+        return active;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    public synchronized int queued(Predicate<Object> flows) {
+        return queue.size(flows);
+    }
+
+    /**
+     * Number of flows with at least one waiting task.
+     */
+    public synchronized int queuedFlows() {
+        return queue.flows();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Rough time until a newly queued task would start: the average slot hold time multiplied by
+     * the number of queue turns ahead of it.
+     */
+    public synchronized long estimatedWaitNanos() {
+        return (long) (holdEwmaNanos * (queue.size() / maxConcurrent + 1));
+    }
+
+    private CompletableFuture<Long> enter(Object flow, int weight) {
+        long now = System.nanoTime();
+        Waiter waiter;
+        Waiter pushedOut = null;
+        long estimate;
+        synchronized (this) {
+            if (active < maxConcurrent && queue.isEmpty()) {
+                active++;
+                listener.admitted(flow, 0);
+                return CompletableFuture.completedFuture(now);
+            }
+            if (queue.size() >= maxQueued) {
+                pushedOut = maxQueued > 0 ? queue.pollLongestIfLongerThan(queue.sizeOf(flow) + 1) : null;
+                if (pushedOut == null) {
+                    listener.rejected(flow, false);
+                    throw new Rejected(false, estimatedWaitNanos());
+                }
+            }
+            waiter = new Waiter(flow, now);
+            queue.add(flow, weight, waiter);
+            estimate = estimatedWaitNanos();
+        }
+        if (pushedOut != null) {
+            listener.rejected(pushedOut.flow, false);
+            pushedOut.admission.completeExceptionally(new Rejected(false, estimate));
+        }
+        CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS).execute(() -> expire(waiter));
+        return waiter.admission;
+    }
+
+    private void expire(Waiter waiter) {
+        long estimate;
+        synchronized (this) {
+            if (!queue.remove(waiter.flow, waiter)) {
+                return;
+            }
+            estimate = estimatedWaitNanos();
+        }
+        listener.rejected(waiter.flow, true);
+        waiter.admission.completeExceptionally(new Rejected(true, estimate));
+    }
+
+    private void exit(long admittedAt) {
+        long now = System.nanoTime();
+        Waiter next;
+        synchronized (this) {
+            long held = now - admittedAt;
+            holdEwmaNanos = holdEwmaNanos == 0 ? held : holdEwmaNanos + HOLD_EWMA_WEIGHT * (held - holdEwmaNanos);
+            next = queue.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        listener.admitted(next.flow, now - next.enqueuedAt);
+        next.admission.completeAsync(() -> now, executor);
+    }
+
+    private static final class Waiter {
+        final Object flow;
+        final long enqueuedAt;
+        final CompletableFuture<Long> admission = new CompletableFuture<>();
+
+        Waiter(Object flow, long enqueuedAt) {
+            this.flow = flow;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    public interface Listener {
+        void admitted(Object flow, long waitedNanos);
+
+        void rejected(Object flow, boolean timedOut);
+    }
+
+    /**
+     * The bulkhead had no room: its queue was full, or the task waited past its deadline.
+     */
+    public static class Rejected extends RuntimeException {
+        private final boolean timedOut;
+        private final long retryAfterNanos;
+
+        public Rejected(boolean timedOut, long retryAfterNanos) {
+            super(timedOut ? "bulkhead wait timed out" : "bulkhead queue is full", null, false, false);
+            this.timedOut = timedOut;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isTimedOut() { return timedOut; }
+
+        public long getRetryAfterNanos() { return retryAfterNanos; }
+    }
+}
@@ -0,0 +1,127 @@
+package com.deepseek.apiplatform.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A queue that hands out items by deficit round robin over flows instead of in arrival order.
+ * Every flow with waiting items gets {@code weight} items per round, so a flow that enqueues
+ * hundreds of items delays the others by at most one round. Not thread-safe.
+ */
+final class FairQueue<T> {
+    private final Map<Object, Flow<T>> flows = new HashMap<>();
+    private final ArrayDeque<Flow<T>> rotation = new ArrayDeque<>();
+    private int size;
+
+    void add(Object key, int weight, T item) {
+        Flow<T> flow = flows.get(key);
+        if (flow == null) {
+            flow = new Flow<>(key, Math.max(weight, 1));
+            flows.put(key, flow);
+            rotation.addLast(flow);
+        }
+        flow.items.addLast(item);
+        size++;
+    }
+
+    /**
+     * Takes the next item of the flow at the head of the rotation. A flow that has used up its
+     * quantum for this round moves to the back.
+     */
+    T poll() {
+        Flow<T> flow = rotation.peekFirst();
+        if (flow == null) {
+            return null;
+        }
+        if (flow.deficit == 0) {
+            flow.deficit = flow.weight;
+        }
+        T item = flow.items.pollFirst();
+        flow.deficit--;
+        size--;
+        if (flow.items.isEmpty()) {
+            rotation.pollFirst();
+            flows.remove(flow.key);
+        } else if (flow.deficit == 0) {
+            rotation.addLast(rotation.pollFirst());
+        }
+        return item;
+    }
+
+    boolean remove(Object key, T item) {
+        Flow<T> flow = flows.get(key);
+        if (flow == null || !flow.items.remove(item)) {
+            return false;
+        }
+        size--;
+        if (flow.items.isEmpty()) {
+            rotation.remove(flow);
+            flows.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the newest item of the flow with the most waiting items, if that flow has more
+     * than {@code than} items.
+     */
+    T pollLongestIfLongerThan(int than) {
+        Flow<T> longest = null;
+        for (Flow<T> flow : rotation) {
+            if (longest == null || flow.items.size() > longest.items.size()) {
+                longest = flow;
+            }
+        }
+        if (longest == null || longest.items.size() <= than) {
+            return null;
+        }
+        T item = longest.items.pollLast();
+        size--;
+        if (longest.items.isEmpty()) {
+            rotation.remove(longest);
+            flows.remove(longest.key);
+        }
+        return item;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int sizeOf(Object key) {
+        Flow<T> flow = flows.get(key);
+        return flow == null ? 0 : flow.items.size();
+    }
+
+    int size(Predicate<Object> keys) {
+        int total = 0;
+        for (Flow<T> flow : rotation) {
+            if (keys.test(flow.key)) {
+                total += flow.items.size();
+            }
+        }
+        return total;
+    }
+
+    int flows() {
+        return flows.size();
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static final class Flow<T> {
+        final Object key;
+        final int weight;
+        final ArrayDeque<T> items = new ArrayDeque<>();
+        int deficit;
+
+        Flow(Object key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.deepseek.apiplatform.config;
+
+import com.deepseek.apiplatform.security.KeyDigest;
+import com.deepseek.apiplatform.service.ApiKeyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves databases created before keys were hashed onto the digest columns. SQLite cannot drop the
+ * old unique {@code api_key} column, so before Hibernate updates the schema the old table is
+ * renamed out of the way; once Hibernate has created the new {@code api_keys} table the rows are
+ * copied over with their digests and the old table, the last copy of the plaintext keys, is
+ * dropped.
+ */
+@Configuration
+public class ApiKeyStorageMigration implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyStorageMigration.class);
+    private static final String LEGACY_TABLE = "api_keys_plaintext";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ApiKeyStorageMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        if (hasColumn("api_keys", "api_key")) {
+            log.info("Moving plaintext API keys to {} before hashing them", LEGACY_TABLE);
+            jdbcTemplate.execute("ALTER TABLE api_keys RENAME TO " + LEGACY_TABLE);
+        }
+    }
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor apiKeyStorageMigrationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor(ApiKeyStorageMigration.class);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!hasColumn(LEGACY_TABLE, "api_key")) {
+            return;
+        }
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())).executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, user_id, name, api_key, created_at, last_used_at, status FROM " + LEGACY_TABLE,
+                    (RowCallbackHandler) rs -> {
+                        String key = rs.getString("api_key");
+                        rows.add(new Object[]{rs.getLong("id"), rs.getLong("user_id"), rs.getString("name"),
+                                KeyDigest.of(key).toBytes(), key.substring(0, Math.min(ApiKeyService.PREFIX_LENGTH, key.length())),
+                                rs.getObject("created_at"), rs.getObject("last_used_at"), rs.getString("status")});
+                    });
+            jdbcTemplate.batchUpdate("INSERT INTO api_keys (id, user_id, name, key_digest, key_prefix, created_at, "
+                    + "last_used_at, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+            log.info("Hashed {} API keys", rows.size());
+        });
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet rs = connection.getMetaData().getColumns(null, null, table, column)) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+            try (ResultSet rs = connection.getMetaData().getColumns(null, null, table.toUpperCase(), column.toUpperCase())) {
+                return rs.next();
+            }
+        }));
+    }
+}
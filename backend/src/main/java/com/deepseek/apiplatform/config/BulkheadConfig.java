@@ -0,0 +1,62 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "bulkhead")
+public class BulkheadConfig {
+    private Limits defaults = new Limits();
+    private Map<String, Limits> models = new HashMap<>();
+    private FairShare fairShare = new FairShare();
+
+    public Limits getDefaults() { return defaults; }
+    public void setDefaults(Limits defaults) { this.defaults = defaults; }
+
+    public Map<String, Limits> getModels() { return models; }
+    public void setModels(Map<String, Limits> models) { this.models = models; }
+
+    public FairShare getFairShare() { return fairShare; }
+    public void setFairShare(FairShare fairShare) { this.fairShare = fairShare; }
+
+    /**
+     * Concurrency limits of one model. Unset fields fall back to {@code bulkhead.defaults}.
+     */
+    public static class Limits {
+        private Integer maxConcurrent;
+        private Integer maxQueued;
+        private Duration maxWait;
+
+        public Integer getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(Integer maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public Integer getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(Integer maxQueued) { this.maxQueued = maxQueued; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+
+    /**
+     * Weights of the account tiers when queued completions are shared out between users. A user
+     * of a tier with weight 4 gets four queued completions started for each one of a weight 1
+     * user. Users not listed in {@code users} belong to {@code default-tier}.
+     */
+    public static class FairShare {
+        private String defaultTier = "standard";
+        private Map<String, Integer> tiers = new HashMap<>(Map.of("standard", 1));
+        private Map<Long, String> users = new HashMap<>();
+
+        public String getDefaultTier() { return defaultTier; }
+        public void setDefaultTier(String defaultTier) { this.defaultTier = defaultTier; }
+
+        public Map<String, Integer> getTiers() { return tiers; }
+        public void setTiers(Map<String, Integer> tiers) { this.tiers = tiers; }
+
+        public Map<Long, String> getUsers() { return users; }
+        public void setUsers(Map<Long, String> users) { this.users = users; }
+    }
+}
@@ -0,0 +1,118 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "model-backends")
+public class ModelBackendConfig {
+    private Map<String, Upstream> upstreams = new LinkedHashMap<>();
+
+    public Map<String, Upstream> getUpstreams() { return upstreams; }
+    public void setUpstreams(Map<String, Upstream> upstreams) { this.upstreams = upstreams; }
+
+    /**
+     * An OpenAI-compatible inference server. {@code models} maps the platform's model ids to the
+     * names the server knows them by; models not listed anywhere are served by the simulator.
+     * {@code base-url} and {@code replicas} together list the endpoints that serve the same models.
+     */
+    public static class Upstream {
+        private String baseUrl;
+        private List<String> replicas = new ArrayList<>();
+        private String apiKey;
+        private Map<String, String> models = new LinkedHashMap<>();
+        private boolean http2 = true;
+        private int maxConcurrentRequests = 64;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration requestTimeout = Duration.ofSeconds(60);
+        private Duration initialLatency = Duration.ofSeconds(1);
+        private Ejection ejection = new Ejection();
+        private Hedge hedge = new Hedge();
+
+        public String getBaseUrl() { return baseUrl; }
+        public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+
+        public List<String> getReplicas() { return replicas; }
+        public void setReplicas(List<String> replicas) { this.replicas = replicas; }
+
+        public String getApiKey() { return apiKey; }
+        public void setApiKey(String apiKey) { this.apiKey = apiKey; }
+
+        public Map<String, String> getModels() { return models; }
+        public void setModels(Map<String, String> models) { this.models = models; }
+
+        public boolean isHttp2() { return http2; }
+        public void setHttp2(boolean http2) { this.http2 = http2; }
+
+        public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+
+        public Duration getRequestTimeout() { return requestTimeout; }
+        public void setRequestTimeout(Duration requestTimeout) { this.requestTimeout = requestTimeout; }
+
+        public Duration getInitialLatency() { return initialLatency; }
+        public void setInitialLatency(Duration initialLatency) { this.initialLatency = initialLatency; }
+
+        public Ejection getEjection() { return ejection; }
+        public void setEjection(Ejection ejection) { this.ejection = ejection; }
+
+        public Hedge getHedge() { return hedge; }
+        public void setHedge(Hedge hedge) { this.hedge = hedge; }
+    }
+
+    /**
+     * A replica that fails {@code consecutive-failures} times in a row (connection errors,
+     * timeouts, 5xx) is skipped for {@code base-time}, doubling up to {@code max-time} while it
+     * keeps failing.
+     */
+    public static class Ejection {
+        private int consecutiveFailures = 3;
+        private Duration baseTime = Duration.ofSeconds(10);
+        private Duration maxTime = Duration.ofMinutes(5);
+
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public void setConsecutiveFailures(int consecutiveFailures) { this.consecutiveFailures = consecutiveFailures; }
+
+        public Duration getBaseTime() { return baseTime; }
+        public void setBaseTime(Duration baseTime) { this.baseTime = baseTime; }
+
+        public Duration getMaxTime() { return maxTime; }
+        public void setMaxTime(Duration maxTime) { this.maxTime = maxTime; }
+    }
+
+    /**
+     * Non-streaming requests still unanswered after the {@code percentile} latency of recent
+     * requests (but at least {@code min-delay}) are sent again to another replica, and the first
+     * answer wins. {@code max-ratio} caps hedges as a fraction of requests.
+     */
+    public static class Hedge {
+        private boolean enabled;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(50);
+        private int minSamples = 20;
+        private double maxRatio = 0.1;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getPercentile() { return percentile; }
+        public void setPercentile(double percentile) { this.percentile = percentile; }
+
+        public Duration getMinDelay() { return minDelay; }
+        public void setMinDelay(Duration minDelay) { this.minDelay = minDelay; }
+
+        public int getMinSamples() { return minSamples; }
+        public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+
+        public double getMaxRatio() { return maxRatio; }
+        public void setMaxRatio(double maxRatio) { this.maxRatio = maxRatio; }
+    }
+}
@@ -0,0 +1,95 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * List prices in yuan per million tokens. {@code file} optionally names a YAML file with the same
+ * {@code pricing:} layout; it overrides these values and is reloaded when it changes.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "pricing")
+public class PricingConfig {
+    private String defaultModel = "deepseek-chat";
+    private Map<String, ModelRates> models = defaultModels();
+    private OffPeak offPeak = new OffPeak();
+    private String file;
+    private long reloadIntervalMs = 10_000;
+
+    public String getDefaultModel() { return defaultModel; }
+    public void setDefaultModel(String defaultModel) { this.defaultModel = defaultModel; }
+
+    public Map<String, ModelRates> getModels() { return models; }
+    public void setModels(Map<String, ModelRates> models) { this.models = models; }
+
+    public OffPeak getOffPeak() { return offPeak; }
+    public void setOffPeak(OffPeak offPeak) { this.offPeak = offPeak; }
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+
+    public long getReloadIntervalMs() { return reloadIntervalMs; }
+    public void setReloadIntervalMs(long reloadIntervalMs) { this.reloadIntervalMs = reloadIntervalMs; }
+
+    private static Map<String, ModelRates> defaultModels() {
+        Map<String, ModelRates> models = new LinkedHashMap<>();
+        models.put("deepseek-chat", new ModelRates("0.1", "1", "2", 50));
+        models.put("deepseek-coder", new ModelRates("0.15", "1.5", "3", 50));
+        models.put("deepseek-reasoner", new ModelRates("0.2", "2", "4", 75));
+        return models;
+    }
+
+    public static class ModelRates {
+        private BigDecimal cacheHitInput = BigDecimal.ZERO;
+        private BigDecimal cacheMissInput = BigDecimal.ZERO;
+        private BigDecimal output = BigDecimal.ZERO;
+        private int offPeakDiscountPercent;
+
+        public ModelRates() {}
+
+        ModelRates(String cacheHitInput, String cacheMissInput, String output, int offPeakDiscountPercent) {
+            this.cacheHitInput = new BigDecimal(cacheHitInput);
+            this.cacheMissInput = new BigDecimal(cacheMissInput);
+            this.output = new BigDecimal(output);
+            this.offPeakDiscountPercent = offPeakDiscountPercent;
+        }
+
+        public BigDecimal getCacheHitInput() { return cacheHitInput; }
+        public void setCacheHitInput(BigDecimal cacheHitInput) { this.cacheHitInput = cacheHitInput; }
+
+        public BigDecimal getCacheMissInput() { return cacheMissInput; }
+        public void setCacheMissInput(BigDecimal cacheMissInput) { this.cacheMissInput = cacheMissInput; }
+
+        public BigDecimal getOutput() { return output; }
+        public void setOutput(BigDecimal output) { this.output = output; }
+
+        public int getOffPeakDiscountPercent() { return offPeakDiscountPercent; }
+        public void setOffPeakDiscountPercent(int offPeakDiscountPercent) { this.offPeakDiscountPercent = offPeakDiscountPercent; }
+    }
+
+    /**
+     * Daily window, {@code HH:mm} in {@code zone}, during which each model's
+     * {@code offPeakDiscountPercent} applies. The window may wrap past midnight.
+     */
+    public static class OffPeak {
+        private boolean enabled;
+        private String zone = "UTC";
+        private String start = "16:30";
+        private String end = "00:30";
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getZone() { return zone; }
+        public void setZone(String zone) { this.zone = zone; }
+
+        public String getStart() { return start; }
+        public void setStart(String start) { this.start = start; }
+
+        public String getEnd() { return end; }
+        public void setEnd(String end) { this.end = end; }
+    }
+}
@@ -0,0 +1,44 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitConfig {
+    private boolean enabled = true;
+    private Limits perKey = new Limits();
+    private Limits perUser = new Limits();
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maximumKeys = 1_000_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Limits getPerKey() { return perKey; }
+    public void setPerKey(Limits perKey) { this.perKey = perKey; }
+
+    public Limits getPerUser() { return perUser; }
+    public void setPerUser(Limits perUser) { this.perUser = perUser; }
+
+    public Duration getIdleTimeout() { return idleTimeout; }
+    public void setIdleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; }
+
+    public long getMaximumKeys() { return maximumKeys; }
+    public void setMaximumKeys(long maximumKeys) { this.maximumKeys = maximumKeys; }
+
+    /**
+     * Per-minute limits. Zero means unlimited.
+     */
+    public static class Limits {
+        private long requestsPerMinute;
+        private long tokensPerMinute;
+
+        public long getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(long requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+        public long getTokensPerMinute() { return tokensPerMinute; }
+        public void setTokensPerMinute(long tokensPerMinute) { this.tokensPerMinute = tokensPerMinute; }
+    }
+}
@@ -0,0 +1,71 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "simulation")
+public class SimulationConfig {
+    private boolean enabled;
+    private Long seed;
+    private int schedulerThreads = 1;
+    private Profile defaults = new Profile();
+    private Map<String, Profile> models = new HashMap<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Long getSeed() { return seed; }
+    public void setSeed(Long seed) { this.seed = seed; }
+
+    public int getSchedulerThreads() { return schedulerThreads; }
+    public void setSchedulerThreads(int schedulerThreads) { this.schedulerThreads = schedulerThreads; }
+
+    public Profile getDefaults() { return defaults; }
+    public void setDefaults(Profile defaults) { this.defaults = defaults; }
+
+    public Map<String, Profile> getModels() { return models; }
+    public void setModels(Map<String, Profile> models) { this.models = models; }
+
+    /**
+     * Workload shape of one model. Unset fields fall back to {@code simulation.defaults}. Latencies
+     * and lengths are log-normal: the configured value is the median and the sigma is the spread.
+     */
+    public static class Profile {
+        private Duration timeToFirstToken;
+        private Double timeToFirstTokenSigma;
+        private Duration interTokenLatency;
+        private Double tokensPerSecond;
+        private Double interTokenSigma;
+        private Integer completionTokens;
+        private Double completionTokensSigma;
+        private Integer maxCompletionTokens;
+
+        public Duration getTimeToFirstToken() { return timeToFirstToken; }
+        public void setTimeToFirstToken(Duration timeToFirstToken) { this.timeToFirstToken = timeToFirstToken; }
+
+        public Double getTimeToFirstTokenSigma() { return timeToFirstTokenSigma; }
+        public void setTimeToFirstTokenSigma(Double timeToFirstTokenSigma) { this.timeToFirstTokenSigma = timeToFirstTokenSigma; }
+
+        public Duration getInterTokenLatency() { return interTokenLatency; }
+        public void setInterTokenLatency(Duration interTokenLatency) { this.interTokenLatency = interTokenLatency; }
+
+        public Double getTokensPerSecond() { return tokensPerSecond; }
+        public void setTokensPerSecond(Double tokensPerSecond) { this.tokensPerSecond = tokensPerSecond; }
+
+        public Double getInterTokenSigma() { return interTokenSigma; }
+        public void setInterTokenSigma(Double interTokenSigma) { this.interTokenSigma = interTokenSigma; }
+
+        public Integer getCompletionTokens() { return completionTokens; }
+        public void setCompletionTokens(Integer completionTokens) { this.completionTokens = completionTokens; }
+
+        public Double getCompletionTokensSigma() { return completionTokensSigma; }
+        public void setCompletionTokensSigma(Double completionTokensSigma) { this.completionTokensSigma = completionTokensSigma; }
+
+        public Integer getMaxCompletionTokens() { return maxCompletionTokens; }
+        public void setMaxCompletionTokens(Integer maxCompletionTokens) { this.maxCompletionTokens = maxCompletionTokens; }
+    }
+}
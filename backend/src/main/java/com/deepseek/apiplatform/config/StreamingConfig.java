@@ -0,0 +1,31 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+
+    public StreamingConfig(ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter) {
+        this.handlerAdapter = handlerAdapter;
+    }
+
+    @Bean
+    public ExecutorService chatStreamExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Override
+    public void addReturnValueHandlers(List<HandlerMethodReturnValueHandler> handlers) {
+        handlers.add(new StreamingResponseEntityReturnValueHandler(handlerAdapter));
+    }
+}
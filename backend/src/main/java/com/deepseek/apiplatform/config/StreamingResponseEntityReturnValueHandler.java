@@ -0,0 +1,69 @@
+package com.deepseek.apiplatform.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.DeferredResultMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitterReturnValueHandler;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Lets a handler declared as {@code ResponseEntity<?>} return a plain body, a
+ * {@link ResponseBodyEmitter} or a {@link CompletionStage} of the body. Spring only picks the
+ * emitter and async handlers from the declared generic type, so such values are routed to them
+ * here based on the runtime value. A completion stage body is turned into a stage of the
+ * response entity, keeping its status and headers.
+ */
+public class StreamingResponseEntityReturnValueHandler implements AsyncHandlerMethodReturnValueHandler {
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+    private volatile HandlerMethodReturnValueHandler emitterHandler;
+    private volatile HandlerMethodReturnValueHandler deferredResultHandler;
+
+    public StreamingResponseEntityReturnValueHandler(ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter) {
+        this.handlerAdapter = handlerAdapter;
+    }
+    
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+        return returnValue instanceof ResponseEntity<?> entity
+                && (entity.getBody() instanceof ResponseBodyEmitter || entity.getBody() instanceof CompletionStage<?>);
+    }
+    
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return ResponseEntity.class.isAssignableFrom(returnType.getParameterType());
+    }
+    
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        if (returnValue instanceof ResponseEntity<?> entity && entity.getBody() instanceof CompletionStage<?> stage) {
+            CompletionStage<ResponseEntity<Object>> response = stage.thenApply(body -> ResponseEntity
+                    .status(entity.getStatusCode())
+                    .headers(entity.getHeaders())
+                    .body(body));
+            if (deferredResultHandler == null) {
+                deferredResultHandler = findHandler(DeferredResultMethodReturnValueHandler.class);
+            }
+            deferredResultHandler.handleReturnValue(response, returnType, mavContainer, webRequest);
+            return;
+        }
+        if (emitterHandler == null) {
+            emitterHandler = findHandler(ResponseBodyEmitterReturnValueHandler.class);
+        }
+        emitterHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+    }
+    
+    private HandlerMethodReturnValueHandler findHandler(Class<? extends HandlerMethodReturnValueHandler> type) {
+        return handlerAdapter.getObject().getReturnValueHandlers().stream()
+                .filter(type::isInstance)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(type.getSimpleName() + " not registered"));
+    }
+}
@@ -0,0 +1,21 @@
+package com.deepseek.apiplatform.config;
+
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Configuration
+public class TokenizerConfig {
+
+    @Bean
+    public BpeTokenizer bpeTokenizer(@Value("${tokenizer.merges:classpath:tokenizer/merges.txt}") Resource merges) throws IOException {
+        try (InputStream in = merges.getInputStream()) {
+            return BpeTokenizer.load(in);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.deepseek.apiplatform.controller;
 
 import com.deepseek.apiplatform.dto.ApiKeyResponse;
 import com.deepseek.apiplatform.dto.CreateApiKeyRequest;
+import com.deepseek.apiplatform.dto.UpdateApiKeyStatusRequest;
+import com.deepseek.apiplatform.entity.ApiKey;
 import com.deepseek.apiplatform.security.UserPrincipal;
 import com.deepseek.apiplatform.service.ApiKeyService;
 import jakarta.validation.Valid;
@@ -38,4 +40,13 @@ public class ApiKeyController {
         apiKeyService.deleteApiKey(principal.getId(), id);
         return ResponseEntity.ok().build();
     }
-}
+    
+    @PutMapping("/{id}/status")
+    public ResponseEntity<ApiKeyResponse> updateApiKeyStatus(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable Long id,
+            @Valid @RequestBody UpdateApiKeyStatusRequest request) {
+        ApiKey.KeyStatus status = ApiKey.KeyStatus.valueOf(request.getStatus().toUpperCase());
+        return ResponseEntity.ok(apiKeyService.updateApiKeyStatus(principal.getId(), id, status));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.deepseek.apiplatform.controller;
+
+import com.deepseek.apiplatform.dto.BatchResponse;
+import com.deepseek.apiplatform.dto.CreateBatchRequest;
+import com.deepseek.apiplatform.dto.ListResponse;
+import com.deepseek.apiplatform.security.ApiKeyPrincipal;
+import com.deepseek.apiplatform.service.BatchService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/v1/batches")
+public class BatchController {
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+    
+    @PostMapping
+    public ResponseEntity<BatchResponse> createBatch(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @Valid @RequestBody CreateBatchRequest request) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(batchService.createBatch(principal.getUserId(), request));
+    }
+    
+    @GetMapping
+    public ResponseEntity<ListResponse<BatchResponse>> listBatches(@AuthenticationPrincipal ApiKeyPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(new ListResponse<>(batchService.listBatches(principal.getUserId())));
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<BatchResponse> getBatch(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @PathVariable Long id) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(batchService.getBatch(principal.getUserId(), id));
+    }
+    
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<BatchResponse> cancelBatch(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @PathVariable Long id) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(batchService.cancelBatch(principal.getUserId(), id));
+    }
+}
@@ -1,19 +1,24 @@
 package com.deepseek.apiplatform.controller;
 
+import com.deepseek.apiplatform.dto.BillingRecordPage;
 import com.deepseek.apiplatform.dto.BillingRecordResponse;
 import com.deepseek.apiplatform.dto.RechargeRequest;
 import com.deepseek.apiplatform.dto.UsageStatsResponse;
 import com.deepseek.apiplatform.security.UserPrincipal;
 import com.deepseek.apiplatform.service.BillingService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/billing")
 public class BillingController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     private final BillingService billingService;
 
     public BillingController(BillingService billingService) {
@@ -25,9 +30,24 @@ public class BillingController {
         return ResponseEntity.ok(billingService.getUsageStats(principal.getId()));
     }
     
+    /**
+     * Newest records first. When there are more, {@code X-Next-Cursor} holds the value to pass as
+     * {@code cursor} for the next page.
+     */
     @GetMapping("/records")
-    public ResponseEntity<List<BillingRecordResponse>> getBillingRecords(@AuthenticationPrincipal UserPrincipal principal) {
-        return ResponseEntity.ok(billingService.getBillingRecords(principal.getId()));
+    public ResponseEntity<List<BillingRecordResponse>> getBillingRecords(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        BillingRecordPage page = billingService.getBillingRecords(principal.getId(), type, from, to, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getData());
     }
     
     @PostMapping("/recharge")
@@ -1,19 +1,36 @@
 package com.deepseek.apiplatform.controller;
 
 import com.deepseek.apiplatform.dto.*;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import com.deepseek.apiplatform.exception.UpstreamException;
+import com.deepseek.apiplatform.ratelimit.RateLimiter;
 import com.deepseek.apiplatform.security.ApiKeyPrincipal;
 import com.deepseek.apiplatform.service.ChatService;
+import com.deepseek.apiplatform.service.CompletionCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/v1")
 public class ChatController {
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
+    
     private final ChatService chatService;
+    private final RateLimiter rateLimiter;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, RateLimiter rateLimiter) {
         this.chatService = chatService;
+        this.rateLimiter = rateLimiter;
     }
     
     @GetMapping("/models")
@@ -22,18 +39,89 @@ public class ChatController {
     }
     
     @PostMapping("/chat/completions")
-    public ResponseEntity<ChatCompletionResponse> chatCompletion(
+    public ResponseEntity<?> chatCompletion(
             @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl,
             @RequestBody ChatCompletionRequest request) {
         if (principal == null) {
             return ResponseEntity.status(401).build();
         }
         
-        ChatCompletionResponse response = chatService.chatCompletion(
-            principal.getUserId(), 
-            request
-        );
+        RateLimiter.Permit permit = rateLimiter.acquire(principal.getKeyId(), principal.getUserId(),
+                chatService.estimateTokens(request));
+        CompletionCache.Mode cacheMode = CompletionCache.Mode.fromCacheControl(cacheControl);
+        if (Boolean.TRUE.equals(request.getStream())) {
+            return ResponseEntity.ok()
+                    .headers(permit.headers())
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(streamChatCompletion(principal.getUserId(), request, cacheMode, permit));
+        }
         
-        return ResponseEntity.ok(response);
+        CompletableFuture<ChatCompletionResponse> response;
+        try {
+            response = chatService.chatCompletionAsync(principal.getUserId(), request, cacheMode);
+        } catch (RuntimeException e) {
+            permit.settle(0);
+            throw e;
+        }
+        response.whenComplete((result, error) -> permit.settle(error == null ? result.getUsage().getTotalTokens() : 0));
+        
+        return ResponseEntity.ok()
+                .headers(permit.headers())
+                .body(response.isDone() && !response.isCompletedExceptionally() ? response.join() : response);
+    }
+    
+    /**
+     * Starts the stream on the calling thread so that a full bulkhead queue is still reported as
+     * a 429. Failures after the response has started are sent as a final {@code error} event.
+     */
+    private SseEmitter streamChatCompletion(Long userId, ChatCompletionRequest request, CompletionCache.Mode cacheMode,
+                                            RateLimiter.Permit permit) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        CompletableFuture<ChatCompletionResponse.Usage> usage;
+        try {
+            usage = chatService.streamChatCompletion(userId, request, cacheMode, chunk -> {
+                try {
+                    emitter.send(SseEmitter.event().data(chunk, MediaType.APPLICATION_JSON));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            permit.settle(0);
+            throw e;
+        }
+        usage.whenComplete((done, error) -> {
+            permit.settle(error == null ? done.getTotalTokens() : 0);
+            try {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (!(cause instanceof TooManyRequestsException || cause instanceof UpstreamException)) {
+                        emitter.completeWithError(cause);
+                        return;
+                    }
+                    emitter.send(SseEmitter.event().data(Map.of("error", errorBody(cause)), MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().data("[DONE]"));
+                }
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+    
+    private static Map<String, Object> errorBody(Throwable error) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", error.getMessage());
+        if (error instanceof TooManyRequestsException tooMany) {
+            body.put("type", tooMany.getType());
+            body.put("code", tooMany.getCode());
+        } else if (error instanceof UpstreamException upstream) {
+            body.put("type", "upstream_error");
+            body.put("code", String.valueOf(upstream.getStatus().value()));
+        }
+        return body;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.deepseek.apiplatform.controller;
+
+import com.deepseek.apiplatform.dto.FileResponse;
+import com.deepseek.apiplatform.dto.ListResponse;
+import com.deepseek.apiplatform.security.ApiKeyPrincipal;
+import com.deepseek.apiplatform.service.FileStorageService;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/v1/files")
+public class FileController {
+    private final FileStorageService fileStorageService;
+
+    public FileController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+    
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<FileResponse> uploadFile(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("purpose") String purpose) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(fileStorageService.upload(principal.getUserId(), file, purpose));
+    }
+    
+    @GetMapping
+    public ResponseEntity<ListResponse<FileResponse>> listFiles(@AuthenticationPrincipal ApiKeyPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(new ListResponse<>(fileStorageService.listFiles(principal.getUserId())));
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<FileResponse> getFile(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @PathVariable Long id) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(fileStorageService.getFileResponse(principal.getUserId(), id));
+    }
+    
+    @GetMapping("/{id}/content")
+    public ResponseEntity<Resource> getFileContent(
+            @AuthenticationPrincipal ApiKeyPrincipal principal,
+            @PathVariable Long id) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(fileStorageService.openContent(principal.getUserId(), id));
+    }
+}
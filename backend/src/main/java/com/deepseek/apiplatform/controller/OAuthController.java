@@ -7,6 +7,7 @@ import com.deepseek.apiplatform.entity.enums.OAuthProvider;
 import com.deepseek.apiplatform.repository.UserOAuthRepository;
 import com.deepseek.apiplatform.repository.UserRepository;
 import com.deepseek.apiplatform.security.JwtUtils;
+import com.deepseek.apiplatform.security.TokenVersionCache;
 import com.deepseek.apiplatform.security.UserPrincipal;
 import com.deepseek.apiplatform.service.GiteeOAuthService;
 import com.deepseek.apiplatform.service.GitHubOAuthService;
@@ -29,17 +30,20 @@ public class OAuthController {
     private final UserOAuthRepository userOAuthRepository;
     private final UserRepository userRepository;
     private final JwtUtils jwtUtils;
+    private final TokenVersionCache tokenVersionCache;
 
     public OAuthController(GiteeOAuthService giteeOAuthService, 
                           GitHubOAuthService gitHubOAuthService,
                           UserOAuthRepository userOAuthRepository,
                           UserRepository userRepository,
-                          JwtUtils jwtUtils) {
+                          JwtUtils jwtUtils,
+                          TokenVersionCache tokenVersionCache) {
         this.giteeOAuthService = giteeOAuthService;
         this.gitHubOAuthService = gitHubOAuthService;
         this.userOAuthRepository = userOAuthRepository;
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     @GetMapping("/gitee")
@@ -124,17 +128,9 @@ public class OAuthController {
         if (state != null && state.startsWith("bind:")) {
             try {
                 String token = state.substring(5);
-                if (jwtUtils.validateToken(token)) {
-                    Long userId = jwtUtils.getUserIdFromToken(token);
-                    Integer tokenVersion = jwtUtils.getTokenVersionFromToken(token);
-                    User user = userRepository.findById(userId).orElse(null);
-                    if (user != null) {
-                        int tv = tokenVersion != null ? tokenVersion : 0;
-                        int utv = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
-                        if (tv == utv) {
-                            return userId;
-                        }
-                    }
+                JwtUtils.TokenClaims claims = jwtUtils.parse(token);
+                if (claims != null && tokenVersionCache.isCurrent(claims.userId(), claims.tokenVersion())) {
+                    return claims.userId();
                 }
             } catch (Exception e) {
                 return null;
@@ -4,16 +4,18 @@ public class ApiKeyResponse {
     private Long id;
     private String name;
     private String key;
+    private String prefix;
     private String status;
     private String createdAt;
     private String lastUsedAt;
 
     public ApiKeyResponse() {}
 
-    public ApiKeyResponse(Long id, String name, String key, String status, String createdAt, String lastUsedAt) {
+    public ApiKeyResponse(Long id, String name, String key, String prefix, String status, String createdAt, String lastUsedAt) {
         this.id = id;
         this.name = name;
         this.key = key;
+        this.prefix = prefix;
         this.status = status;
         this.createdAt = createdAt;
         this.lastUsedAt = lastUsedAt;
@@ -28,6 +30,9 @@ public class ApiKeyResponse {
     public String getKey() { return key; }
     public void setKey(String key) { this.key = key; }
     
+    public String getPrefix() { return prefix; }
+    public void setPrefix(String prefix) { this.prefix = prefix; }
+    
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
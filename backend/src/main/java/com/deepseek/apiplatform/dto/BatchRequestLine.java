@@ -0,0 +1,20 @@
+package com.deepseek.apiplatform.dto;
+
+public class BatchRequestLine {
+    private String customId;
+    private String method;
+    private String url;
+    private ChatCompletionRequest body;
+
+    public String getCustomId() { return customId; }
+    public void setCustomId(String customId) { this.customId = customId; }
+    
+    public String getMethod() { return method; }
+    public void setMethod(String method) { this.method = method; }
+    
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    
+    public ChatCompletionRequest getBody() { return body; }
+    public void setBody(ChatCompletionRequest body) { this.body = body; }
+}
@@ -0,0 +1,110 @@
+package com.deepseek.apiplatform.dto;
+
+public class BatchResponse {
+    private Long id;
+    private String object = "batch";
+    private String endpoint;
+    private String completionWindow;
+    private Long inputFileId;
+    private Long outputFileId;
+    private Long errorFileId;
+    private String status;
+    private String errorMessage;
+    private Long createdAt;
+    private Long inProgressAt;
+    private Long completedAt;
+    private Long cancelledAt;
+    private RequestCounts requestCounts;
+    private Usage usage;
+
+    public static class RequestCounts {
+        private Long total;
+        private Long completed;
+        private Long failed;
+
+        public RequestCounts() {}
+
+        public RequestCounts(Long total, Long completed, Long failed) {
+            this.total = total;
+            this.completed = completed;
+            this.failed = failed;
+        }
+
+        public Long getTotal() { return total; }
+        public void setTotal(Long total) { this.total = total; }
+
+        public Long getCompleted() { return completed; }
+        public void setCompleted(Long completed) { this.completed = completed; }
+
+        public Long getFailed() { return failed; }
+        public void setFailed(Long failed) { this.failed = failed; }
+    }
+
+    public static class Usage {
+        private Long promptTokens;
+        private Long completionTokens;
+        private Long totalTokens;
+
+        public Usage() {}
+
+        public Usage(Long promptTokens, Long completionTokens) {
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+            this.totalTokens = promptTokens + completionTokens;
+        }
+
+        public Long getPromptTokens() { return promptTokens; }
+        public void setPromptTokens(Long promptTokens) { this.promptTokens = promptTokens; }
+
+        public Long getCompletionTokens() { return completionTokens; }
+        public void setCompletionTokens(Long completionTokens) { this.completionTokens = completionTokens; }
+
+        public Long getTotalTokens() { return totalTokens; }
+        public void setTotalTokens(Long totalTokens) { this.totalTokens = totalTokens; }
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getObject() { return object; }
+    public void setObject(String object) { this.object = object; }
+    
+    public String getEndpoint() { return endpoint; }
+    public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+    
+    public String getCompletionWindow() { return completionWindow; }
+    public void setCompletionWindow(String completionWindow) { this.completionWindow = completionWindow; }
+    
+    public Long getInputFileId() { return inputFileId; }
+    public void setInputFileId(Long inputFileId) { this.inputFileId = inputFileId; }
+    
+    public Long getOutputFileId() { return outputFileId; }
+    public void setOutputFileId(Long outputFileId) { this.outputFileId = outputFileId; }
+    
+    public Long getErrorFileId() { return errorFileId; }
+    public void setErrorFileId(Long errorFileId) { this.errorFileId = errorFileId; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    
+    public Long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Long createdAt) { this.createdAt = createdAt; }
+    
+    public Long getInProgressAt() { return inProgressAt; }
+    public void setInProgressAt(Long inProgressAt) { this.inProgressAt = inProgressAt; }
+    
+    public Long getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Long completedAt) { this.completedAt = completedAt; }
+    
+    public Long getCancelledAt() { return cancelledAt; }
+    public void setCancelledAt(Long cancelledAt) { this.cancelledAt = cancelledAt; }
+    
+    public RequestCounts getRequestCounts() { return requestCounts; }
+    public void setRequestCounts(RequestCounts requestCounts) { this.requestCounts = requestCounts; }
+    
+    public Usage getUsage() { return usage; }
+    public void setUsage(Usage usage) { this.usage = usage; }
+}
@@ -0,0 +1,56 @@
+package com.deepseek.apiplatform.dto;
+
+public class BatchResultLine {
+    private String id;
+    private String customId;
+    private Response response;
+    private Error error;
+
+    public static class Response {
+        private Integer statusCode;
+        private ChatCompletionResponse body;
+
+        public Response() {}
+
+        public Response(Integer statusCode, ChatCompletionResponse body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public Integer getStatusCode() { return statusCode; }
+        public void setStatusCode(Integer statusCode) { this.statusCode = statusCode; }
+
+        public ChatCompletionResponse getBody() { return body; }
+        public void setBody(ChatCompletionResponse body) { this.body = body; }
+    }
+
+    public static class Error {
+        private String code;
+        private String message;
+
+        public Error() {}
+
+        public Error(String code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+
+        public String getCode() { return code; }
+        public void setCode(String code) { this.code = code; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getCustomId() { return customId; }
+    public void setCustomId(String customId) { this.customId = customId; }
+    
+    public Response getResponse() { return response; }
+    public void setResponse(Response response) { this.response = response; }
+    
+    public Error getError() { return error; }
+    public void setError(Error error) { this.error = error; }
+}
@@ -0,0 +1,21 @@
+package com.deepseek.apiplatform.dto;
+
+import java.util.List;
+
+public class BillingRecordPage {
+    private List<BillingRecordResponse> data;
+    private String nextCursor;
+
+    public BillingRecordPage() {}
+
+    public BillingRecordPage(List<BillingRecordResponse> data, String nextCursor) {
+        this.data = data;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BillingRecordResponse> getData() { return data; }
+    public void setData(List<BillingRecordResponse> data) { this.data = data; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,56 @@
+package com.deepseek.apiplatform.dto;
+
+import java.util.List;
+
+public class ChatCompletionChunk {
+    private String id;
+    private String object = "chat.completion.chunk";
+    private Long created;
+    private String model;
+    private List<Choice> choices;
+    private ChatCompletionResponse.Usage usage;
+
+    public static class Choice {
+        private Integer index;
+        private Delta delta;
+        private String finishReason;
+
+        public static class Delta {
+            private String role;
+            private String content;
+
+            public String getRole() { return role; }
+            public void setRole(String role) { this.role = role; }
+
+            public String getContent() { return content; }
+            public void setContent(String content) { this.content = content; }
+        }
+
+        public Integer getIndex() { return index; }
+        public void setIndex(Integer index) { this.index = index; }
+
+        public Delta getDelta() { return delta; }
+        public void setDelta(Delta delta) { this.delta = delta; }
+
+        public String getFinishReason() { return finishReason; }
+        public void setFinishReason(String finishReason) { this.finishReason = finishReason; }
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getObject() { return object; }
+    public void setObject(String object) { this.object = object; }
+
+    public Long getCreated() { return created; }
+    public void setCreated(Long created) { this.created = created; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public List<Choice> getChoices() { return choices; }
+    public void setChoices(List<Choice> choices) { this.choices = choices; }
+
+    public ChatCompletionResponse.Usage getUsage() { return usage; }
+    public void setUsage(ChatCompletionResponse.Usage usage) { this.usage = usage; }
+}
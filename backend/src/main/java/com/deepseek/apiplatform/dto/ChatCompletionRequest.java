@@ -7,7 +7,9 @@ public class ChatCompletionRequest {
     private List<Message> messages;
     private Double temperature;
     private Integer maxTokens;
+    private Long seed;
     private Boolean stream;
+    private StreamOptions streamOptions;
     
     public static class Message {
         private String role;
@@ -19,6 +21,13 @@ public class ChatCompletionRequest {
         public String getContent() { return content; }
         public void setContent(String content) { this.content = content; }
     }
+    
+    public static class StreamOptions {
+        private Boolean includeUsage;
+        
+        public Boolean getIncludeUsage() { return includeUsage; }
+        public void setIncludeUsage(Boolean includeUsage) { this.includeUsage = includeUsage; }
+    }
 
     public String getModel() { return model; }
     public void setModel(String model) { this.model = model; }
@@ -32,6 +41,12 @@ public class ChatCompletionRequest {
     public Integer getMaxTokens() { return maxTokens; }
     public void setMaxTokens(Integer maxTokens) { this.maxTokens = maxTokens; }
     
+    public Long getSeed() { return seed; }
+    public void setSeed(Long seed) { this.seed = seed; }
+    
     public Boolean getStream() { return stream; }
     public void setStream(Boolean stream) { this.stream = stream; }
+    
+    public StreamOptions getStreamOptions() { return streamOptions; }
+    public void setStreamOptions(StreamOptions streamOptions) { this.streamOptions = streamOptions; }
 }
@@ -40,6 +40,8 @@ public class ChatCompletionResponse {
         private Integer promptTokens;
         private Integer completionTokens;
         private Integer totalTokens;
+        private Integer promptCacheHitTokens;
+        private Integer promptCacheMissTokens;
 
         public Integer getPromptTokens() { return promptTokens; }
         public void setPromptTokens(Integer promptTokens) { this.promptTokens = promptTokens; }
@@ -49,6 +51,12 @@ public class ChatCompletionResponse {
         
         public Integer getTotalTokens() { return totalTokens; }
         public void setTotalTokens(Integer totalTokens) { this.totalTokens = totalTokens; }
+        
+        public Integer getPromptCacheHitTokens() { return promptCacheHitTokens; }
+        public void setPromptCacheHitTokens(Integer promptCacheHitTokens) { this.promptCacheHitTokens = promptCacheHitTokens; }
+        
+        public Integer getPromptCacheMissTokens() { return promptCacheMissTokens; }
+        public void setPromptCacheMissTokens(Integer promptCacheMissTokens) { this.promptCacheMissTokens = promptCacheMissTokens; }
     }
 
     public String getId() { return id; }
@@ -0,0 +1,23 @@
+package com.deepseek.apiplatform.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public class CreateBatchRequest {
+    @NotNull(message = "inputFileId不能为空")
+    private Long inputFileId;
+    
+    @NotBlank(message = "endpoint不能为空")
+    private String endpoint;
+    
+    private String completionWindow = "24h";
+
+    public Long getInputFileId() { return inputFileId; }
+    public void setInputFileId(Long inputFileId) { this.inputFileId = inputFileId; }
+    
+    public String getEndpoint() { return endpoint; }
+    public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+    
+    public String getCompletionWindow() { return completionWindow; }
+    public void setCompletionWindow(String completionWindow) { this.completionWindow = completionWindow; }
+}
@@ -0,0 +1,38 @@
+package com.deepseek.apiplatform.dto;
+
+public class FileResponse {
+    private Long id;
+    private String object = "file";
+    private Long bytes;
+    private Long createdAt;
+    private String filename;
+    private String purpose;
+
+    public FileResponse() {}
+
+    public FileResponse(Long id, Long bytes, Long createdAt, String filename, String purpose) {
+        this.id = id;
+        this.bytes = bytes;
+        this.createdAt = createdAt;
+        this.filename = filename;
+        this.purpose = purpose;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getObject() { return object; }
+    public void setObject(String object) { this.object = object; }
+    
+    public Long getBytes() { return bytes; }
+    public void setBytes(Long bytes) { this.bytes = bytes; }
+    
+    public Long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Long createdAt) { this.createdAt = createdAt; }
+    
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+}
@@ -0,0 +1,20 @@
+package com.deepseek.apiplatform.dto;
+
+import java.util.List;
+
+public class ListResponse<T> {
+    private String object = "list";
+    private List<T> data;
+
+    public ListResponse() {}
+
+    public ListResponse(List<T> data) {
+        this.data = data;
+    }
+
+    public String getObject() { return object; }
+    public void setObject(String object) { this.object = object; }
+    
+    public List<T> getData() { return data; }
+    public void setData(List<T> data) { this.data = data; }
+}
@@ -0,0 +1,13 @@
+package com.deepseek.apiplatform.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+public class UpdateApiKeyStatusRequest {
+    @NotBlank(message = "状态不能为空")
+    @Pattern(regexp = "(?i)active|disabled", message = "状态只能是 active 或 disabled")
+    private String status;
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+}
@@ -1,10 +1,15 @@
 package com.deepseek.apiplatform.dto;
 
+import java.math.BigDecimal;
+
 public class UsageStatsResponse {
     private Long totalTokens;
     private Long promptTokens;
+    private Long promptCacheHitTokens;
+    private Long promptCacheMissTokens;
     private Long completionTokens;
     private Long requestCount;
+    private BigDecimal totalCost;
 
     public UsageStatsResponse() {}
 
@@ -21,9 +26,18 @@ public class UsageStatsResponse {
     public Long getPromptTokens() { return promptTokens; }
     public void setPromptTokens(Long promptTokens) { this.promptTokens = promptTokens; }
     
+    public Long getPromptCacheHitTokens() { return promptCacheHitTokens; }
+    public void setPromptCacheHitTokens(Long promptCacheHitTokens) { this.promptCacheHitTokens = promptCacheHitTokens; }
+    
+    public Long getPromptCacheMissTokens() { return promptCacheMissTokens; }
+    public void setPromptCacheMissTokens(Long promptCacheMissTokens) { this.promptCacheMissTokens = promptCacheMissTokens; }
+    
     public Long getCompletionTokens() { return completionTokens; }
     public void setCompletionTokens(Long completionTokens) { this.completionTokens = completionTokens; }
     
     public Long getRequestCount() { return requestCount; }
     public void setRequestCount(Long requestCount) { this.requestCount = requestCount; }
+    
+    public BigDecimal getTotalCost() { return totalCost; }
+    public void setTotalCost(BigDecimal totalCost) { this.totalCost = totalCost; }
 }
@@ -16,8 +16,14 @@ public class ApiKey {
     @Column(nullable = false)
     private String name;
     
-    @Column(name = "api_key", unique = true, nullable = false)
-    private String apiKey;
+    /**
+     * SHA-256 of the key. The key itself is only shown once, when it is created.
+     */
+    @Column(name = "key_digest", unique = true, nullable = false, length = 32)
+    private byte[] keyDigest;
+    
+    @Column(name = "key_prefix", nullable = false, length = 16)
+    private String keyPrefix;
     
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -46,8 +52,11 @@ public class ApiKey {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     
-    public String getApiKey() { return apiKey; }
-    public void setApiKey(String apiKey) { this.apiKey = apiKey; }
+    public byte[] getKeyDigest() { return keyDigest; }
+    public void setKeyDigest(byte[] keyDigest) { this.keyDigest = keyDigest; }
+    
+    public String getKeyPrefix() { return keyPrefix; }
+    public void setKeyPrefix(String keyPrefix) { this.keyPrefix = keyPrefix; }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
@@ -0,0 +1,43 @@
+package com.deepseek.apiplatform.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A user's balance as of ledger entry {@code lastEntryId}. The current balance is this plus the
+ * user's {@code USER_BALANCE} entries after it.
+ */
+@Entity
+@Table(name = "balance_snapshots")
+public class BalanceSnapshot {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "balance_micros", nullable = false)
+    private long balanceMicros;
+    
+    @Column(name = "last_entry_id", nullable = false)
+    private long lastEntryId;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public long getBalanceMicros() { return balanceMicros; }
+    public void setBalanceMicros(long balanceMicros) { this.balanceMicros = balanceMicros; }
+    
+    public long getLastEntryId() { return lastEntryId; }
+    public void setLastEntryId(long lastEntryId) { this.lastEntryId = lastEntryId; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
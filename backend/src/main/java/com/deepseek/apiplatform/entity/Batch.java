@@ -0,0 +1,131 @@
+package com.deepseek.apiplatform.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "batches")
+public class Batch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private String endpoint;
+    
+    @Column(name = "completion_window", nullable = false)
+    private String completionWindow;
+    
+    @Column(name = "input_file_id", nullable = false)
+    private Long inputFileId;
+    
+    @Column(name = "output_file_id")
+    private Long outputFileId;
+    
+    @Column(name = "error_file_id")
+    private Long errorFileId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BatchStatus status = BatchStatus.VALIDATING;
+    
+    @Column(name = "error_message")
+    private String errorMessage;
+    
+    @Column(name = "total_requests", nullable = false)
+    private Long totalRequests = 0L;
+    
+    @Column(name = "completed_requests", nullable = false)
+    private Long completedRequests = 0L;
+    
+    @Column(name = "failed_requests", nullable = false)
+    private Long failedRequests = 0L;
+    
+    @Column(name = "prompt_tokens", nullable = false)
+    private Long promptTokens = 0L;
+    
+    @Column(name = "completion_tokens", nullable = false)
+    private Long completionTokens = 0L;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "in_progress_at")
+    private LocalDateTime inProgressAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(name = "cancelled_at")
+    private LocalDateTime cancelledAt;
+    
+    public enum BatchStatus {
+        VALIDATING, IN_PROGRESS, FINALIZING, COMPLETED, FAILED, CANCELLING, CANCELLED;
+        
+        public boolean isTerminal() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getEndpoint() { return endpoint; }
+    public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+    
+    public String getCompletionWindow() { return completionWindow; }
+    public void setCompletionWindow(String completionWindow) { this.completionWindow = completionWindow; }
+    
+    public Long getInputFileId() { return inputFileId; }
+    public void setInputFileId(Long inputFileId) { this.inputFileId = inputFileId; }
+    
+    public Long getOutputFileId() { return outputFileId; }
+    public void setOutputFileId(Long outputFileId) { this.outputFileId = outputFileId; }
+    
+    public Long getErrorFileId() { return errorFileId; }
+    public void setErrorFileId(Long errorFileId) { this.errorFileId = errorFileId; }
+    
+    public BatchStatus getStatus() { return status; }
+    public void setStatus(BatchStatus status) { this.status = status; }
+    
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    
+    public Long getTotalRequests() { return totalRequests; }
+    public void setTotalRequests(Long totalRequests) { this.totalRequests = totalRequests; }
+    
+    public Long getCompletedRequests() { return completedRequests; }
+    public void setCompletedRequests(Long completedRequests) { this.completedRequests = completedRequests; }
+    
+    public Long getFailedRequests() { return failedRequests; }
+    public void setFailedRequests(Long failedRequests) { this.failedRequests = failedRequests; }
+    
+    public Long getPromptTokens() { return promptTokens; }
+    public void setPromptTokens(Long promptTokens) { this.promptTokens = promptTokens; }
+    
+    public Long getCompletionTokens() { return completionTokens; }
+    public void setCompletionTokens(Long completionTokens) { this.completionTokens = completionTokens; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getInProgressAt() { return inProgressAt; }
+    public void setInProgressAt(LocalDateTime inProgressAt) { this.inProgressAt = inProgressAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public LocalDateTime getCancelledAt() { return cancelledAt; }
+    public void setCancelledAt(LocalDateTime cancelledAt) { this.cancelledAt = cancelledAt; }
+}
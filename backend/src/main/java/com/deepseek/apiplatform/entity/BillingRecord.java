@@ -5,7 +5,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "billing_records")
+@Table(name = "billing_records", indexes = {
+    @Index(name = "idx_billing_records_user_id_created_at", columnList = "user_id, created_at"),
+    @Index(name = "idx_billing_records_user_id_type_created_at", columnList = "user_id, type, created_at")
+})
 public class BillingRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,10 +21,10 @@ public class BillingRecord {
     @Column(nullable = false)
     private RecordType type;
     
-    @Column(precision = 10, scale = 2, nullable = false)
+    @Column(precision = 18, scale = 6, nullable = false)
     private BigDecimal amount;
     
-    @Column(precision = 10, scale = 2, nullable = false)
+    @Column(precision = 18, scale = 6, nullable = false)
     private BigDecimal balance;
     
     @Column(columnDefinition = "TEXT")
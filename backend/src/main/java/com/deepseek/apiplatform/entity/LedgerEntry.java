@@ -0,0 +1,76 @@
+package com.deepseek.apiplatform.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+/**
+ * One leg of a double-entry transaction. Every transaction writes legs that sum to zero, and
+ * legs are never updated or deleted: a correction is a new transaction.
+ */
+@Entity
+@Immutable
+@Table(name = "ledger_entries", indexes = @Index(name = "idx_ledger_entries_user_id_id", columnList = "user_id, id"))
+public class LedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "tx_id", nullable = false, length = 36)
+    private String txId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Account account;
+    
+    /**
+     * Signed amount in micro-yuan.
+     */
+    @Column(name = "amount_micros", nullable = false)
+    private long amountMicros;
+    
+    @Column(columnDefinition = "TEXT")
+    private String description;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    public enum Account {
+        /** What the user has prepaid and not yet spent. */
+        USER_BALANCE,
+        /** Earned from API usage. */
+        USAGE_REVENUE,
+        /** Money received from payment providers. */
+        PAYMENTS
+    }
+    
+    protected LedgerEntry() {
+    }
+    
+    public LedgerEntry(String txId, Long userId, Account account, long amountMicros, String description,
+                       LocalDateTime createdAt) {
+        this.txId = txId;
+        this.userId = userId;
+        this.account = account;
+        this.amountMicros = amountMicros;
+        this.description = description;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    
+    public String getTxId() { return txId; }
+    
+    public Long getUserId() { return userId; }
+    
+    public Account getAccount() { return account; }
+    
+    public long getAmountMicros() { return amountMicros; }
+    
+    public String getDescription() { return description; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
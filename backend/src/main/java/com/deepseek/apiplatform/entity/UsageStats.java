@@ -1,6 +1,7 @@
 package com.deepseek.apiplatform.entity;
 
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -19,12 +20,18 @@ public class UsageStats {
     @Column(name = "prompt_tokens")
     private Long promptTokens = 0L;
     
+    @Column(name = "prompt_cache_hit_tokens")
+    private Long promptCacheHitTokens = 0L;
+    
     @Column(name = "completion_tokens")
     private Long completionTokens = 0L;
     
     @Column(name = "request_count")
     private Long requestCount = 0L;
     
+    @Column(name = "total_cost", precision = 19, scale = 8)
+    private BigDecimal totalCost = BigDecimal.ZERO;
+    
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
@@ -46,12 +53,18 @@ public class UsageStats {
     public Long getPromptTokens() { return promptTokens; }
     public void setPromptTokens(Long promptTokens) { this.promptTokens = promptTokens; }
     
+    public Long getPromptCacheHitTokens() { return promptCacheHitTokens; }
+    public void setPromptCacheHitTokens(Long promptCacheHitTokens) { this.promptCacheHitTokens = promptCacheHitTokens; }
+    
     public Long getCompletionTokens() { return completionTokens; }
     public void setCompletionTokens(Long completionTokens) { this.completionTokens = completionTokens; }
     
     public Long getRequestCount() { return requestCount; }
     public void setRequestCount(Long requestCount) { this.requestCount = requestCount; }
     
+    public BigDecimal getTotalCost() { return totalCost; }
+    public void setTotalCost(BigDecimal totalCost) { this.totalCost = totalCost; }
+    
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 }
@@ -20,7 +20,11 @@ public class User {
     @Column(nullable = false)
     private String password;
     
-    @Column(precision = 10, scale = 2)
+    /**
+     * Opening balance for the ledger, never written after the user is created; the current
+     * balance comes from {@code BalanceLedger}.
+     */
+    @Column(precision = 18, scale = 6, updatable = false)
     private BigDecimal balance = BigDecimal.ZERO;
     
     @Column(name = "avatar_url")
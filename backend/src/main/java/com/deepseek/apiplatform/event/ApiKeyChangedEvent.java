@@ -0,0 +1,29 @@
+package com.deepseek.apiplatform.event;
+
+import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.security.KeyDigest;
+
+/**
+ * A key was created, changed status or, when {@code status} is {@code null}, deleted.
+ */
+public class ApiKeyChangedEvent {
+    private final Long keyId;
+    private final Long userId;
+    private final KeyDigest keyDigest;
+    private final ApiKey.KeyStatus status;
+
+    public ApiKeyChangedEvent(Long keyId, Long userId, KeyDigest keyDigest, ApiKey.KeyStatus status) {
+        this.keyId = keyId;
+        this.userId = userId;
+        this.keyDigest = keyDigest;
+        this.status = status;
+    }
+
+    public Long getKeyId() { return keyId; }
+
+    public Long getUserId() { return userId; }
+
+    public KeyDigest getKeyDigest() { return keyDigest; }
+
+    public ApiKey.KeyStatus getStatus() { return status; }
+}
@@ -0,0 +1,11 @@
+package com.deepseek.apiplatform.event;
+
+public class TokenVersionChangedEvent {
+    private final Long userId;
+
+    public TokenVersionChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() { return userId; }
+}
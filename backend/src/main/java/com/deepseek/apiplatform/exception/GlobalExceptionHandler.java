@@ -1,5 +1,6 @@
 package com.deepseek.apiplatform.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,6 +12,34 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequestsException(TooManyRequestsException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("type", ex.getType());
+        error.put("code", ex.getCode());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .headers(ex.getHeaders())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(Map.of("error", error));
+    }
+
+    @ExceptionHandler(PaymentRequiredException.class)
+    public ResponseEntity<Map<String, Object>> handlePaymentRequiredException(PaymentRequiredException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("type", "payment_required");
+        error.put("code", ex.getCode());
+        return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(Map.of("error", error));
+    }
+
+    @ExceptionHandler(UpstreamException.class)
+    public ResponseEntity<Map<String, String>> handleUpstreamException(UpstreamException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(ex.getStatus()).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
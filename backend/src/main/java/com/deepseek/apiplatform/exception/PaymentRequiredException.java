@@ -0,0 +1,15 @@
+package com.deepseek.apiplatform.exception;
+
+/**
+ * The account cannot pay for the request. Rendered as an OpenAI-style 402 error.
+ */
+public class PaymentRequiredException extends RuntimeException {
+    private final String code;
+
+    public PaymentRequiredException(String message, String code) {
+        super(message);
+        this.code = code;
+    }
+
+    public String getCode() { return code; }
+}
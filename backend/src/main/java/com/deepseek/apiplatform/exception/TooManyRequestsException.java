@@ -0,0 +1,36 @@
+package com.deepseek.apiplatform.exception;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The request was refused for capacity reasons and may be retried after {@code retryAfterSeconds}.
+ * Rendered as an OpenAI-style error: {@code type} says which limit was hit and {@code code} is
+ * the machine-readable reason. {@code headers} are added to the 429 response as they are.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final String type;
+    private final String code;
+    private final long retryAfterSeconds;
+    private final HttpHeaders headers;
+
+    public TooManyRequestsException(String message, String type, String code, long retryAfterSeconds) {
+        this(message, type, code, retryAfterSeconds, HttpHeaders.EMPTY);
+    }
+
+    public TooManyRequestsException(String message, String type, String code, long retryAfterSeconds,
+                                    HttpHeaders headers) {
+        super(message);
+        this.type = type;
+        this.code = code;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.headers = headers;
+    }
+
+    public String getType() { return type; }
+
+    public String getCode() { return code; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+
+    public HttpHeaders getHeaders() { return headers; }
+}
@@ -0,0 +1,23 @@
+package com.deepseek.apiplatform.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A model backend failed or refused the request. {@code status} is what the caller should see:
+ * rate limits and bad requests pass through, everything else becomes a gateway error.
+ */
+public class UpstreamException extends RuntimeException {
+    private final HttpStatus status;
+
+    public UpstreamException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public UpstreamException(HttpStatus status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() { return status; }
+}
@@ -0,0 +1,289 @@
+package com.deepseek.apiplatform.ratelimit;
+
+import com.deepseek.apiplatform.config.RateLimitConfig;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Requests-per-minute and tokens-per-minute limits per API key and per user. A request is
+ * charged one request and its estimated tokens (prompt plus {@code max_tokens}) up front against
+ * both scopes; once it finishes, {@link Permit#settle} replaces the estimate with the tokens it
+ * actually used. Buckets of keys and users that stay idle are evicted, but never while they are
+ * still in debt: an entry lives for the idle timeout or until its buckets are full again,
+ * whichever is later, so waiting out the idle timeout never buys a fresh bucket early.
+ */
+@Component
+public class RateLimiter {
+    private static final long PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Duration MIN_IDLE_TIMEOUT = Duration.ofMinutes(2);
+    private static final String REQUESTS = "requests";
+    private static final String TOKENS = "tokens";
+
+    private final boolean enabled;
+    private final Scope keys;
+    private final Scope users;
+
+    public RateLimiter(RateLimitConfig config, MeterRegistry meterRegistry) {
+        this.enabled = config.isEnabled();
+        Duration idleTimeout = config.getIdleTimeout().compareTo(MIN_IDLE_TIMEOUT) < 0
+                ? MIN_IDLE_TIMEOUT : config.getIdleTimeout();
+        this.keys = new Scope("key", "API Key", config.getPerKey(), idleTimeout, config.getMaximumKeys(), meterRegistry);
+        this.users = new Scope("user", "账户", config.getPerUser(), idleTimeout, config.getMaximumKeys(), meterRegistry);
+    }
+
+    /**
+     * Charges one request and {@code estimatedTokens} to the key and its user, or throws
+     * {@link TooManyRequestsException} without charging anything.
+     */
+    public Permit acquire(Long keyId, Long userId, int estimatedTokens) {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        long now = System.nanoTime();
+        Buckets key = keys.buckets(keyId, now);
+        Buckets user = users.buckets(userId, now);
+        Check[] checks = {
+            new Check(keys, REQUESTS, key.requests, keys.requestLimit, 1),
+            new Check(keys, TOKENS, key.tokens, keys.tokenLimit, estimatedTokens),
+            new Check(users, REQUESTS, user.requests, users.requestLimit, 1),
+            new Check(users, TOKENS, user.tokens, users.tokenLimit, estimatedTokens)
+        };
+        for (int i = 0; i < checks.length; i++) {
+            Check check = checks[i];
+            if (check.limit == null || check.bucket.tryAcquire(check.cost, now, check.limit)) {
+                continue;
+            }
+            for (int j = 0; j < i; j++) {
+                if (checks[j].limit != null) {
+                    checks[j].bucket.adjust(-checks[j].cost, now, checks[j].limit);
+                }
+            }
+            throw reject(check, checks, now);
+        }
+        keys.retain(keyId, key, now);
+        users.retain(userId, user, now);
+        return new Permit(headers(checks, now), keys, keyId, key, users, userId, user, estimatedTokens);
+    }
+
+    /**
+     * How long the buckets of {@code keyId} are kept from now, or -1 if there are none.
+     */
+    long keyRetentionNanos(Long keyId) {
+        return keys.retentionNanos(keyId);
+    }
+
+    private TooManyRequestsException reject(Check check, Check[] checks, long now) {
+        check.scope.rejected(check.kind).increment();
+        long retryAfter = check.bucket.retryAfterNanos(check.cost, now, check.limit);
+        long seconds = Math.max(1, (retryAfter + 999_999_999L) / 1_000_000_000L);
+        String message = REQUESTS.equals(check.kind)
+                ? "已达到" + check.scope.label + "每分钟请求数上限 (RPM: " + check.limit.perPeriod() + ")，请稍后重试"
+                : "已达到" + check.scope.label + "每分钟 token 数上限 (TPM: " + check.limit.perPeriod() + ")，请稍后重试";
+        return new TooManyRequestsException(message, check.kind, "rate_limit_exceeded", seconds, headers(checks, now));
+    }
+
+    /**
+     * OpenAI-style {@code x-ratelimit-*} headers. Each reports whichever of the key and user
+     * buckets has the least left.
+     */
+    private static HttpHeaders headers(Check[] checks, long now) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String kind : new String[] {REQUESTS, TOKENS}) {
+            Check tightest = null;
+            long tightestRemaining = Long.MAX_VALUE;
+            for (Check check : checks) {
+                if (check.limit != null && check.kind.equals(kind)) {
+                    long remaining = check.bucket.remaining(now, check.limit);
+                    if (remaining < tightestRemaining) {
+                        tightest = check;
+                        tightestRemaining = remaining;
+                    }
+                }
+            }
+            if (tightest != null) {
+                headers.set("x-ratelimit-limit-" + kind, String.valueOf(tightest.limit.perPeriod()));
+                headers.set("x-ratelimit-remaining-" + kind, String.valueOf(tightestRemaining));
+                headers.set("x-ratelimit-reset-" + kind, formatDuration(tightest.bucket.resetNanos(now)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Formats like OpenAI's reset headers: {@code 20ms}, {@code 1.5s}, {@code 6m0s}.
+     */
+    static String formatDuration(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis < 1000) {
+            return millis + "ms";
+        }
+        if (millis < 60_000) {
+            return trimSeconds(millis) + "s";
+        }
+        return millis / 60_000 + "m" + trimSeconds(millis % 60_000) + "s";
+    }
+
+    private static String trimSeconds(long millis) {
+        if (millis % 1000 == 0) {
+            return String.valueOf(millis / 1000);
+        }
+        String fraction = String.format("%03d", millis % 1000).replaceAll("0+$", "");
+        return millis / 1000 + "." + fraction;
+    }
+
+    private record Check(Scope scope, String kind, TokenBucket bucket, TokenBucket.Limit limit, long cost) {
+    }
+
+    private static final class Buckets {
+        final TokenBucket requests;
+        final TokenBucket tokens;
+
+        Buckets(long now) {
+            this.requests = new TokenBucket(now);
+            this.tokens = new TokenBucket(now);
+        }
+
+        long debtNanos(long now) {
+            return Math.max(requests.resetNanos(now), tokens.resetNanos(now));
+        }
+    }
+
+    private static final class Scope {
+        final String label;
+        final TokenBucket.Limit requestLimit;
+        final TokenBucket.Limit tokenLimit;
+        final long idleNanos;
+        final Cache<Long, Buckets> buckets;
+        final Counter requestsRejected;
+        final Counter tokensRejected;
+
+        Scope(String name, String label, RateLimitConfig.Limits limits, Duration idleTimeout, long maximumSize,
+              MeterRegistry meterRegistry) {
+            this.label = label;
+            this.requestLimit = limits.getRequestsPerMinute() > 0
+                    ? new TokenBucket.Limit(limits.getRequestsPerMinute(), PERIOD_NANOS) : null;
+            this.tokenLimit = limits.getTokensPerMinute() > 0
+                    ? new TokenBucket.Limit(limits.getTokensPerMinute(), PERIOD_NANOS) : null;
+            this.idleNanos = idleTimeout.toNanos();
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfter(new Expiry<Long, Buckets>() {
+                        @Override
+                        public long expireAfterCreate(Long id, Buckets entry, long currentTime) {
+                            return Math.max(idleNanos, entry.debtNanos(currentTime));
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(Long id, Buckets entry, long currentTime, long currentDuration) {
+                            return Math.max(idleNanos, entry.debtNanos(currentTime));
+                        }
+
+                        @Override
+                        public long expireAfterRead(Long id, Buckets entry, long currentTime, long currentDuration) {
+                            return Math.max(idleNanos, entry.debtNanos(currentTime));
+                        }
+                    })
+                    .build();
+            this.requestsRejected = rejectedCounter(name, REQUESTS, meterRegistry);
+            this.tokensRejected = rejectedCounter(name, TOKENS, meterRegistry);
+            Gauge.builder("ratelimit.tracked", buckets, Cache::estimatedSize)
+                    .description("Keys or users with live rate limit buckets")
+                    .tag("scope", name)
+                    .register(meterRegistry);
+        }
+
+        Buckets buckets(Long id, long now) {
+            return buckets.get(id, ignored -> new Buckets(now));
+        }
+
+        /**
+         * Expiry is computed when the entry is read, before the request charges it; extends it
+         * if the charge left the buckets in debt beyond the idle timeout.
+         */
+        void retain(Long id, Buckets entry, long now) {
+            long debt = entry.debtNanos(now);
+            if (debt > idleNanos) {
+                buckets.policy().expireVariably().ifPresent(expiry -> expiry.setExpiresAfter(id, debt, TimeUnit.NANOSECONDS));
+            }
+        }
+
+        long retentionNanos(Long id) {
+            return buckets.policy().expireVariably()
+                    .map(expiry -> expiry.getExpiresAfter(id, TimeUnit.NANOSECONDS).orElse(-1L))
+                    .orElse(-1L);
+        }
+
+        Counter rejected(String kind) {
+            return REQUESTS.equals(kind) ? requestsRejected : tokensRejected;
+        }
+
+        private static Counter rejectedCounter(String scope, String kind, MeterRegistry meterRegistry) {
+            return Counter.builder("ratelimit.rejected")
+                    .tags("scope", scope, "limit", kind)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * An admitted request. Carries the headers to send back and settles the token estimate once
+     * the real usage is known.
+     */
+    public static final class Permit {
+        static final Permit NONE = new Permit(new HttpHeaders(), null, null, null, null, null, null, 0);
+
+        private final HttpHeaders headers;
+        private final Scope keys;
+        private final Long keyId;
+        private final Buckets key;
+        private final Scope users;
+        private final Long userId;
+        private final Buckets user;
+        private final int estimatedTokens;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Permit(HttpHeaders headers, Scope keys, Long keyId, Buckets key, Scope users, Long userId, Buckets user,
+                       int estimatedTokens) {
+            this.headers = headers;
+            this.keys = keys;
+            this.keyId = keyId;
+            this.key = key;
+            this.users = users;
+            this.userId = userId;
+            this.user = user;
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        public HttpHeaders headers() {
+            return headers;
+        }
+
+        /**
+         * Replaces the estimate with {@code actualTokens}. Only the first call has an effect.
+         */
+        public void settle(int actualTokens) {
+            if (this == NONE || !settled.compareAndSet(false, true)) {
+                return;
+            }
+            long delta = actualTokens - estimatedTokens;
+            long now = System.nanoTime();
+            if (keys.tokenLimit != null) {
+                key.tokens.adjust(delta, now, keys.tokenLimit);
+                keys.retain(keyId, key, now);
+            }
+            if (users.tokenLimit != null) {
+                user.tokens.adjust(delta, now, users.tokenLimit);
+                users.retain(userId, user, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.deepseek.apiplatform.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single long: the theoretical arrival time (GCRA). A bucket that allows
+ * {@code limit} units per period refills one unit every {@code period / limit}; its state is the
+ * instant at which it would be full again, and taking {@code n} units pushes that instant
+ * {@code n} intervals further. Every update is one compare-and-set, so there are no locks and no
+ * separate refill step.
+ */
+final class TokenBucket {
+    private final AtomicLong fullAt;
+
+    TokenBucket(long nowNanos) {
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes {@code cost} units if the bucket holds them. A cost larger than the whole bucket is
+     * let through only when the bucket is full, and leaves it in debt.
+     */
+    boolean tryAcquire(long cost, long nowNanos, Limit limit) {
+        while (true) {
+            long current = fullAt.get();
+            long base = Math.max(current, nowNanos);
+            long next = base + cost * limit.intervalNanos();
+            if (next - nowNanos > limit.periodNanos() && base != nowNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code delta} units of usage after the fact; a negative delta gives units back, but
+     * never fills the bucket beyond full.
+     */
+    void adjust(long delta, long nowNanos, Limit limit) {
+        while (true) {
+            long current = fullAt.get();
+            long next = delta >= 0
+                    ? Math.max(current, nowNanos) + delta * limit.intervalNanos()
+                    : Math.max(nowNanos, current + delta * limit.intervalNanos());
+            if (next == current || fullAt.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    long remaining(long nowNanos, Limit limit) {
+        long used = Math.max(fullAt.get() - nowNanos, 0);
+        return Math.max((limit.periodNanos() - used) / limit.intervalNanos(), 0);
+    }
+
+    long resetNanos(long nowNanos) {
+        return Math.max(fullAt.get() - nowNanos, 0);
+    }
+
+    /**
+     * How long until {@code cost} units would be available.
+     */
+    long retryAfterNanos(long cost, long nowNanos, Limit limit) {
+        if (cost * limit.intervalNanos() > limit.periodNanos()) {
+            return resetNanos(nowNanos);
+        }
+        long needed = Math.max(fullAt.get(), nowNanos) + cost * limit.intervalNanos() - nowNanos - limit.periodNanos();
+        return Math.max(needed, 0);
+    }
+
+    record Limit(long perPeriod, long periodNanos) {
+        long intervalNanos() {
+            return Math.max(periodNanos / perPeriod, 1);
+        }
+    }
+}
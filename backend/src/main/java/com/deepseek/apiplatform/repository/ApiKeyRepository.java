@@ -5,8 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
 
-public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
+public interface ApiKeyRepository extends JpaRepository<ApiKey, Long>, ApiKeyRepositoryCustom {
     List<ApiKey> findByUserId(Long userId);
     void deleteByIdAndUserId(Long id, Long userId);
-    Optional<ApiKey> findByApiKey(String apiKey);
+    Optional<ApiKey> findByKeyDigest(byte[] keyDigest);
+    Optional<ApiKey> findByIdAndUserId(Long id, Long userId);
 }
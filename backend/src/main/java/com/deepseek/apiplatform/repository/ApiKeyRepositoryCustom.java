@@ -0,0 +1,22 @@
+package com.deepseek.apiplatform.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface ApiKeyRepositoryCustom {
+    void batchUpdateLastUsedAt(Map<Long, LocalDateTime> lastUsedAtByKeyId);
+
+    IdRange findIdRange();
+
+    /**
+     * Streams the keys with ids in {@code [fromId, toId]} without loading the entities.
+     */
+    void forEachKey(long fromId, long toId, KeyRowHandler handler);
+
+    record IdRange(long minId, long maxId, long count) {}
+
+    @FunctionalInterface
+    interface KeyRowHandler {
+        void accept(byte[] keyDigest, long keyId, long userId, boolean active);
+    }
+}
@@ -0,0 +1,39 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.ApiKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ApiKeyRepositoryImpl implements ApiKeyRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ApiKeyRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public void batchUpdateLastUsedAt(Map<Long, LocalDateTime> lastUsedAtByKeyId) {
+        List<Object[]> args = new ArrayList<>(lastUsedAtByKeyId.size());
+        lastUsedAtByKeyId.forEach((id, lastUsedAt) -> args.add(new Object[]{Timestamp.valueOf(lastUsedAt), id}));
+        jdbcTemplate.batchUpdate("UPDATE api_keys SET last_used_at = ? WHERE id = ?", args);
+    }
+    
+    @Override
+    public IdRange findIdRange() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id), COUNT(*) FROM api_keys",
+                (rs, rowNum) -> new IdRange(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+    
+    @Override
+    public void forEachKey(long fromId, long toId, KeyRowHandler handler) {
+        jdbcTemplate.query("SELECT key_digest, id, user_id, status FROM api_keys WHERE id BETWEEN ? AND ?",
+                (RowCallbackHandler) rs -> handler.accept(rs.getBytes(1), rs.getLong(2), rs.getLong(3),
+                        ApiKey.KeyStatus.ACTIVE.name().equals(rs.getString(4))),
+                fromId, toId);
+    }
+}
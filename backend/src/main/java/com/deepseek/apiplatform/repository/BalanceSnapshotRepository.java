@@ -0,0 +1,9 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+}
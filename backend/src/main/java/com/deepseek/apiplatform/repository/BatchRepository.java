@@ -0,0 +1,43 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.Batch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BatchRepository extends JpaRepository<Batch, Long> {
+    List<Batch> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    Optional<Batch> findByIdAndUserId(Long id, Long userId);
+    
+    List<Batch> findByStatusIn(Collection<Batch.BatchStatus> statuses);
+    
+    @Modifying
+    @Query("UPDATE Batch b SET b.totalRequests = :total, b.inProgressAt = :inProgressAt WHERE b.id = :id")
+    int markStarted(@Param("id") Long id,
+                    @Param("total") long total,
+                    @Param("inProgressAt") LocalDateTime inProgressAt);
+    
+    @Modifying
+    @Query("UPDATE Batch b SET b.completedRequests = :completed, b.failedRequests = :failed, " +
+           "b.promptTokens = :promptTokens, b.completionTokens = :completionTokens " +
+           "WHERE b.id = :id")
+    int updateProgress(@Param("id") Long id,
+                       @Param("completed") long completed,
+                       @Param("failed") long failed,
+                       @Param("promptTokens") long promptTokens,
+                       @Param("completionTokens") long completionTokens);
+    
+    @Modifying
+    @Query("UPDATE Batch b SET b.status = :to WHERE b.id = :id AND b.status IN :from")
+    int transition(@Param("id") Long id,
+                   @Param("from") Collection<Batch.BatchStatus> from,
+                   @Param("to") Batch.BatchStatus to);
+}
@@ -0,0 +1,12 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.BillingRecord;
+import java.time.LocalDateTime;
+
+/**
+ * One page of a user's billing records, newest first. {@code type}, {@code from} (inclusive) and
+ * {@code to} (exclusive) are optional filters; {@code beforeCreatedAt} and {@code beforeId} are
+ * the last row of the previous page, or {@code null} for the first page.
+ */
+public record BillingRecordQuery(Long userId, BillingRecord.RecordType type, LocalDateTime from, LocalDateTime to,
+                                 LocalDateTime beforeCreatedAt, Long beforeId, int limit) {}
@@ -0,0 +1,7 @@
+package com.deepseek.apiplatform.repository;
+
+import java.util.List;
+
+public interface BillingRecordRepositoryCustom {
+    List<BillingRecordRow> findPage(BillingRecordQuery query);
+}
@@ -0,0 +1,56 @@
+package com.deepseek.apiplatform.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.util.List;
+
+public class BillingRecordRepositoryImpl implements BillingRecordRepositoryCustom {
+    private final EntityManager entityManager;
+
+    public BillingRecordRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    /**
+     * Seeks past the previous page on {@code (createdAt, id)} instead of using an offset, so every
+     * page is a range scan of the {@code (user_id, created_at)} index no matter how deep it is.
+     * Only the conditions that apply are added to the query, which keeps them usable by the index.
+     */
+    @Override
+    public List<BillingRecordRow> findPage(BillingRecordQuery query) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.deepseek.apiplatform.repository.BillingRecordRow("
+                + "r.id, r.type, r.amount, r.balance, r.description, r.createdAt) "
+                + "FROM BillingRecord r WHERE r.userId = :userId");
+        if (query.type() != null) {
+            jpql.append(" AND r.type = :type");
+        }
+        if (query.from() != null) {
+            jpql.append(" AND r.createdAt >= :from");
+        }
+        if (query.to() != null) {
+            jpql.append(" AND r.createdAt < :to");
+        }
+        if (query.beforeCreatedAt() != null) {
+            jpql.append(" AND (r.createdAt < :beforeCreatedAt OR (r.createdAt = :beforeCreatedAt AND r.id < :beforeId))");
+        }
+        jpql.append(" ORDER BY r.createdAt DESC, r.id DESC");
+        
+        TypedQuery<BillingRecordRow> typed = entityManager.createQuery(jpql.toString(), BillingRecordRow.class)
+                .setParameter("userId", query.userId())
+                .setMaxResults(query.limit());
+        if (query.type() != null) {
+            typed.setParameter("type", query.type());
+        }
+        if (query.from() != null) {
+            typed.setParameter("from", query.from());
+        }
+        if (query.to() != null) {
+            typed.setParameter("to", query.to());
+        }
+        if (query.beforeCreatedAt() != null) {
+            typed.setParameter("beforeCreatedAt", query.beforeCreatedAt());
+            typed.setParameter("beforeId", query.beforeId());
+        }
+        return typed.getResultList();
+    }
+}
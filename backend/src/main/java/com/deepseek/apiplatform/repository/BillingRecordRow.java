@@ -0,0 +1,11 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.BillingRecord;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a {@link BillingRecord} that listings show, read without loading the entity.
+ */
+public record BillingRecordRow(Long id, BillingRecord.RecordType type, BigDecimal amount, BigDecimal balance,
+                               String description, LocalDateTime createdAt) {}
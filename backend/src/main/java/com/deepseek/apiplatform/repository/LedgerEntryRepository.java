@@ -0,0 +1,21 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryRepositoryCustom {
+    @Query("SELECT COALESCE(SUM(e.amountMicros), 0) FROM LedgerEntry e WHERE e.userId = :userId " +
+           "AND e.account = com.deepseek.apiplatform.entity.LedgerEntry$Account.USER_BALANCE " +
+           "AND e.id > :afterId AND e.id <= :upToId")
+    long sumBalanceBetween(@Param("userId") Long userId, @Param("afterId") long afterId, @Param("upToId") long upToId);
+    
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM LedgerEntry e WHERE e.createdAt < :before")
+    long findMaxIdCreatedBefore(@Param("before") LocalDateTime before);
+    
+    boolean existsByUserIdAndIdGreaterThan(Long userId, Long id);
+}
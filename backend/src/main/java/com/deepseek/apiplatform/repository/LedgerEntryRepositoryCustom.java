@@ -0,0 +1,8 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.LedgerEntry;
+import java.util.List;
+
+public interface LedgerEntryRepositoryCustom {
+    void appendAll(List<LedgerEntry> entries);
+}
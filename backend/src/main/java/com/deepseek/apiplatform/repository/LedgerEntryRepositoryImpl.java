@@ -0,0 +1,29 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.LedgerEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LedgerEntryRepositoryImpl implements LedgerEntryRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerEntryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Inserts in one JDBC batch; identity ids keep Hibernate from batching {@code saveAll}.
+     */
+    @Override
+    public void appendAll(List<LedgerEntry> entries) {
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (LedgerEntry entry : entries) {
+            args.add(new Object[]{entry.getTxId(), entry.getUserId(), entry.getAccount().name(),
+                    entry.getAmountMicros(), entry.getDescription(), Timestamp.valueOf(entry.getCreatedAt())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO ledger_entries (tx_id, user_id, account, amount_micros, description, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", args);
+    }
+}
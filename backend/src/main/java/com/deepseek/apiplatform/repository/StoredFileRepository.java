@@ -0,0 +1,14 @@
+package com.deepseek.apiplatform.repository;
+
+import com.deepseek.apiplatform.entity.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+    List<StoredFile> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    Optional<StoredFile> findByIdAndUserId(Long id, Long userId);
+}
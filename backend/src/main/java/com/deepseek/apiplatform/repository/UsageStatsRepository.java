@@ -2,10 +2,32 @@ package com.deepseek.apiplatform.repository;
 
 import com.deepseek.apiplatform.entity.UsageStats;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface UsageStatsRepository extends JpaRepository<UsageStats, Long> {
     Optional<UsageStats> findByUserId(Long userId);
+    
+    @Modifying
+    @Query("UPDATE UsageStats s SET s.promptTokens = s.promptTokens + :promptTokens, " +
+           "s.promptCacheHitTokens = COALESCE(s.promptCacheHitTokens, 0) + :promptCacheHitTokens, " +
+           "s.completionTokens = s.completionTokens + :completionTokens, " +
+           "s.totalCost = COALESCE(s.totalCost, 0) + :cost, " +
+           "s.totalTokens = s.totalTokens + :promptTokens + :completionTokens, " +
+           "s.requestCount = s.requestCount + :requestCount, " +
+           "s.updatedAt = :updatedAt " +
+           "WHERE s.userId = :userId")
+    int incrementUsage(@Param("userId") Long userId,
+                       @Param("promptTokens") long promptTokens,
+                       @Param("promptCacheHitTokens") long promptCacheHitTokens,
+                       @Param("completionTokens") long completionTokens,
+                       @Param("cost") BigDecimal cost,
+                       @Param("requestCount") long requestCount,
+                       @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -1,7 +1,6 @@
 package com.deepseek.apiplatform.security;
 
-import com.deepseek.apiplatform.entity.ApiKey;
-import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.service.ApiKeyLastUsedTracker;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,15 +11,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.time.LocalDateTime;
 import java.util.Collections;
 
 @Component
 public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
-    private final ApiKeyRepository apiKeyRepository;
+    private final ApiKeyIndex apiKeyIndex;
+    private final ApiKeyLastUsedTracker lastUsedTracker;
 
-    public ApiKeyAuthenticationFilter(ApiKeyRepository apiKeyRepository) {
-        this.apiKeyRepository = apiKeyRepository;
+    public ApiKeyAuthenticationFilter(ApiKeyIndex apiKeyIndex, ApiKeyLastUsedTracker lastUsedTracker) {
+        this.apiKeyIndex = apiKeyIndex;
+        this.lastUsedTracker = lastUsedTracker;
     }
     
     @Override
@@ -29,14 +29,15 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String apiKey = getApiKeyFromRequest(request);
         
-        if (StringUtils.hasText(apiKey)) {
-            ApiKey keyEntity = apiKeyRepository.findByApiKey(apiKey).orElse(null);
+        KeyDigest digest = StringUtils.hasText(apiKey) ? KeyDigest.of(apiKey) : null;
+        
+        if (digest != null) {
+            ApiKeyIndex.Entry entry = apiKeyIndex.get(digest);
             
-            if (keyEntity != null && keyEntity.getStatus() == ApiKey.KeyStatus.ACTIVE) {
-                keyEntity.setLastUsedAt(LocalDateTime.now());
-                apiKeyRepository.save(keyEntity);
+            if (entry != null && entry.active()) {
+                lastUsedTracker.record(entry.keyId());
                 
-                ApiKeyPrincipal principal = new ApiKeyPrincipal(keyEntity);
+                ApiKeyPrincipal principal = new ApiKeyPrincipal(entry.keyId(), entry.userId());
                 
                 UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
@@ -58,10 +59,4 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-    
-    @Override
-    protected boolean shouldNotFilter(HttpServletRequest request) {
-        String path = request.getRequestURI();
-        return !path.startsWith("/v1/");
-    }
 }
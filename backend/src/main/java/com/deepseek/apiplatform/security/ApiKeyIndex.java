@@ -0,0 +1,267 @@
+package com.deepseek.apiplatform.security;
+
+import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.event.ApiKeyChangedEvent;
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.repository.ApiKeyRepositoryCustom;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every API key, held in one {@code long[]} open-addressing table so that authenticating a request
+ * never touches the database and millions of keys cost a few dozen bytes each instead of an
+ * entity, its boxed fields and a map node.
+ * <p>
+ * A slot is four {@code long}s: the first 128 bits of the key digest, the key id with a
+ * disabled bit, and the user id. 128 digest bits are far beyond guessing, so the rest of the
+ * digest is not kept. Reads take no lock; a writer fills a slot and then publishes its first word
+ * with release semantics, which readers load with acquire semantics. Writes are serialized, and
+ * deleted slots stay tombstones until the next resize so a reader never sees a slot change owner.
+ * A resize copies the live entries into a new table and swaps it in.
+ * <p>
+ * The table is built from {@code api_keys} before the web server starts, reading id ranges in
+ * parallel, and is kept current by {@link ApiKeyChangedEvent}s after each commit.
+ */
+@Component
+public class ApiKeyIndex implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyIndex.class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int STRIDE = 4;
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = 1;
+    private static final long DISABLED = 1L << 62;
+    private static final long ID_MASK = DISABLED - 1;
+    private static final double MAX_LOAD = 0.75;
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final int parallelism;
+    private volatile Table table = new Table(16);
+    private volatile boolean running;
+
+    public ApiKeyIndex(ApiKeyRepository apiKeyRepository,
+                       MeterRegistry meterRegistry,
+                       @Value("${api-key.index.rebuild-parallelism:0}") int parallelism) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        Gauge.builder("api_key.index.keys", this, index -> index.table.live)
+                .register(meterRegistry);
+        Gauge.builder("api_key.index.memory", this, index -> index.table.slots.length * (double) Long.BYTES)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public record Entry(long keyId, long userId, boolean active) {}
+
+    public Entry get(KeyDigest digest) {
+        Table table = this.table;
+        long h0 = firstWord(digest);
+        long[] slots = table.slots;
+        for (int slot = (int) h0 & table.mask; ; slot = (slot + 1) & table.mask) {
+            int base = slot * STRIDE;
+            long stored = (long) SLOTS.getAcquire(slots, base);
+            if (stored == EMPTY) {
+                return null;
+            }
+            if (stored == h0 && slots[base + 1] == digest.h1()) {
+                long keyWord = (long) SLOTS.getAcquire(slots, base + 2);
+                return new Entry(keyWord & ID_MASK, slots[base + 3], (keyWord & DISABLED) == 0);
+            }
+        }
+    }
+
+    public long size() {
+        return table.live;
+    }
+
+    public synchronized void put(KeyDigest digest, long keyId, long userId, boolean active) {
+        long keyWord = keyId | (active ? 0 : DISABLED);
+        int base = table.find(digest);
+        if (base >= 0) {
+            table.slots[base + 3] = userId;
+            SLOTS.setRelease(table.slots, base + 2, keyWord);
+            return;
+        }
+        if (table.used + 1 > table.threshold) {
+            table = table.resized(table.live + 1);
+        }
+        table.insert(firstWord(digest), digest.h1(), keyWord, userId);
+    }
+
+    public synchronized void remove(KeyDigest digest) {
+        int base = table.find(digest);
+        if (base >= 0) {
+            SLOTS.setRelease(table.slots, base, TOMBSTONE);
+            table.live--;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApiKeyChanged(ApiKeyChangedEvent event) {
+        if (event.getStatus() == null) {
+            remove(event.getKeyDigest());
+        } else {
+            put(event.getKeyDigest(), event.getKeyId(), event.getUserId(), event.getStatus() == ApiKey.KeyStatus.ACTIVE);
+        }
+    }
+
+    /**
+     * Rebuilds the table from the database, splitting the id range across {@code parallelism}
+     * readers that claim slots with compare-and-set. Writes wait until the new table is in place.
+     * The readers block on JDBC, so each gets its own virtual thread rather than a slot in the
+     * common {@code ForkJoinPool}.
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        ApiKeyRepositoryCustom.IdRange range = apiKeyRepository.findIdRange();
+        Table next = new Table(capacityFor(range.count()));
+        if (range.count() > 0) {
+            long span = (range.maxId() - range.minId()) / parallelism + 1;
+            AtomicLong loaded = new AtomicLong();
+            try (ExecutorService readers = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("api-key-index-", 0).factory())) {
+                List<Future<?>> parts = new ArrayList<>(parallelism);
+                for (int part = 0; part < parallelism; part++) {
+                    long fromId = range.minId() + part * span;
+                    parts.add(readers.submit(() -> apiKeyRepository.forEachKey(fromId, fromId + span - 1,
+                            (keyDigest, keyId, userId, active) -> {
+                                KeyDigest digest = KeyDigest.fromBytes(keyDigest);
+                                next.claim(firstWord(digest), digest.h1(), keyId | (active ? 0 : DISABLED), userId);
+                                loaded.incrementAndGet();
+                            })));
+                }
+                for (Future<?> part : parts) {
+                    part.get();
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause
+                        : new IllegalStateException("加载 API Key 索引失败", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("加载 API Key 索引被中断", e);
+            }
+            next.live = loaded.get();
+            next.used = next.live;
+        }
+        table = next;
+        log.info("Indexed {} API keys in {} ms ({} bytes)", next.live,
+                (System.nanoTime() - started) / 1_000_000, next.slots.length * (long) Long.BYTES);
+    }
+
+    @Override
+    public void start() {
+        rebuild();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Before the web server, which starts in a later phase, so no request sees an empty index.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private static long firstWord(KeyDigest digest) {
+        long h0 = digest.h0();
+        return h0 == EMPTY || h0 == TOMBSTONE ? 2 : h0;
+    }
+
+    private static int capacityFor(long keys) {
+        long wanted = Math.max(16, (long) Math.ceil(keys / MAX_LOAD) + 1);
+        return (int) Long.highestOneBit(wanted - 1) << 1;
+    }
+
+    private static final class Table {
+        final long[] slots;
+        final int mask;
+        final long threshold;
+        long live;
+        long used;
+
+        Table(int capacity) {
+            this.slots = new long[capacity * STRIDE];
+            this.mask = capacity - 1;
+            this.threshold = (long) (capacity * MAX_LOAD);
+        }
+
+        int find(KeyDigest digest) {
+            long h0 = firstWord(digest);
+            for (int slot = (int) h0 & mask; ; slot = (slot + 1) & mask) {
+                int base = slot * STRIDE;
+                long stored = slots[base];
+                if (stored == EMPTY) {
+                    return -1;
+                }
+                if (stored == h0 && slots[base + 1] == digest.h1()) {
+                    return base;
+                }
+            }
+        }
+
+        void insert(long h0, long h1, long keyWord, long userId) {
+            for (int slot = (int) h0 & mask; ; slot = (slot + 1) & mask) {
+                int base = slot * STRIDE;
+                if (slots[base] == EMPTY) {
+                    slots[base + 1] = h1;
+                    slots[base + 2] = keyWord;
+                    slots[base + 3] = userId;
+                    SLOTS.setRelease(slots, base, h0);
+                    live++;
+                    used++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Insert used while the table is private to a rebuild; several threads may call it.
+         */
+        void claim(long h0, long h1, long keyWord, long userId) {
+            for (int slot = (int) h0 & mask; ; slot = (slot + 1) & mask) {
+                int base = slot * STRIDE;
+                if (SLOTS.compareAndSet(slots, base, EMPTY, h0)) {
+                    slots[base + 1] = h1;
+                    slots[base + 2] = keyWord;
+                    slots[base + 3] = userId;
+                    return;
+                }
+            }
+        }
+
+        Table resized(long keys) {
+            Table next = new Table(capacityFor(keys * 2));
+            for (int base = 0; base < slots.length; base += STRIDE) {
+                long h0 = slots[base];
+                if (h0 != EMPTY && h0 != TOMBSTONE) {
+                    next.insert(h0, slots[base + 1], slots[base + 2], slots[base + 3]);
+                }
+            }
+            return next;
+        }
+    }
+}
@@ -1,29 +1,26 @@
 package com.deepseek.apiplatform.security;
 
-import com.deepseek.apiplatform.entity.ApiKey;
 import java.security.Principal;
 
 public class ApiKeyPrincipal implements Principal {
-    private final ApiKey apiKey;
+    private final Long keyId;
+    private final Long userId;
     
-    public ApiKeyPrincipal(ApiKey apiKey) {
-        this.apiKey = apiKey;
+    public ApiKeyPrincipal(Long keyId, Long userId) {
+        this.keyId = keyId;
+        this.userId = userId;
     }
     
     @Override
     public String getName() {
-        return apiKey.getName();
+        return String.valueOf(keyId);
     }
     
     public Long getUserId() {
-        return apiKey.getUserId();
+        return userId;
     }
     
     public Long getKeyId() {
-        return apiKey.getId();
-    }
-    
-    public String getApiKey() {
-        return apiKey.getApiKey();
+        return keyId;
     }
 }
@@ -1,7 +1,5 @@
 package com.deepseek.apiplatform.security;
 
-import com.deepseek.apiplatform.entity.User;
-import com.deepseek.apiplatform.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,11 +15,11 @@ import java.util.Collections;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
+    private final TokenVersionCache tokenVersionCache;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, TokenVersionCache tokenVersionCache) {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
+        this.tokenVersionCache = tokenVersionCache;
     }
     
     @Override
@@ -30,31 +28,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String token = getTokenFromRequest(request);
         
-        if (StringUtils.hasText(token) && jwtUtils.validateToken(token)) {
-            Long userId = jwtUtils.getUserIdFromToken(token);
-            Integer tokenVersion = jwtUtils.getTokenVersionFromToken(token);
+        JwtUtils.TokenClaims claims = StringUtils.hasText(token) ? jwtUtils.parse(token) : null;
+        
+        if (claims != null && tokenVersionCache.isCurrent(claims.userId(), claims.tokenVersion())) {
+            UserPrincipal principal = new UserPrincipal(claims.userId());
             
-            User user = userRepository.findById(userId).orElse(null);
+            UsernamePasswordAuthenticationToken authentication = 
+                    new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
             
-            if (user != null && isTokenVersionValid(tokenVersion, user.getTokenVersion())) {
-                UserPrincipal principal = new UserPrincipal(userId);
-                
-                UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         }
         
         filterChain.doFilter(request, response);
     }
     
-    private boolean isTokenVersionValid(Integer tokenVersion, Integer userTokenVersion) {
-        int tv = tokenVersion != null ? tokenVersion : 0;
-        int utv = userTokenVersion != null ? userTokenVersion : 0;
-        return tv == utv;
-    }
-    
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
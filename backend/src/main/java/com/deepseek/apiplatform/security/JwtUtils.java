@@ -9,14 +9,15 @@ import java.util.Date;
 
 @Component
 public class JwtUtils {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
-    
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
-    
-    private SecretKey getSigningKey() {
-        return new SecretKeySpec(jwtSecret.getBytes(), "HmacSHA256");
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+
+    public JwtUtils(@Value("${jwt.secret}") String jwtSecret,
+                    @Value("${jwt.expiration}") long jwtExpiration) {
+        this.signingKey = new SecretKeySpec(jwtSecret.getBytes(), "HmacSHA256");
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.jwtExpiration = jwtExpiration;
     }
     
     public String generateToken(Long userId, String email, Integer tokenVersion) {
@@ -29,60 +30,33 @@ public class JwtUtils {
                 .claim("tokenVersion", tokenVersion != null ? tokenVersion : 0)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return Long.parseLong(claims.getSubject());
-    }
-    
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.get("email", String.class);
-    }
-    
-    public Integer getTokenVersionFromToken(String token) {
+    /**
+     * Verifies the signature and expiry once and returns the claims the platform uses, or
+     * {@code null} if the token is not valid.
+     */
+    public TokenClaims parse(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            Object version = claims.get("tokenVersion");
-            if (version == null) {
-                return 0;
-            }
-            if (version instanceof Integer) {
-                return (Integer) version;
-            }
-            if (version instanceof Number) {
-                return ((Number) version).intValue();
-            }
-            return Integer.parseInt(version.toString());
-        } catch (Exception e) {
-            return 0;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            return new TokenClaims(Long.parseLong(claims.getSubject()), claims.get("email", String.class),
+                    tokenVersion(claims.get("tokenVersion")));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
     }
     
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+    private static int tokenVersion(Object version) {
+        if (version == null) {
+            return 0;
+        }
+        if (version instanceof Number number) {
+            return number.intValue();
         }
+        return Integer.parseInt(version.toString());
     }
+    
+    public record TokenClaims(Long userId, String email, int tokenVersion) {}
 }
@@ -0,0 +1,46 @@
+package com.deepseek.apiplatform.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of an API key as four {@code long}s. Only digests are stored, so a leaked table does
+ * not leak usable keys, and comparing two digests is four {@code long} comparisons instead of a
+ * string comparison.
+ */
+public record KeyDigest(long h0, long h1, long h2, long h3) {
+    public static final int BYTES = 32;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public static KeyDigest of(String apiKey) {
+        return fromBytes(SHA_256.get().digest(apiKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static KeyDigest fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Key digest must be " + BYTES + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new KeyDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(BYTES).putLong(h0).putLong(h1).putLong(h2).putLong(h3).array();
+    }
+
+    /**
+     * The digest is already uniformly distributed, so its first bits are a good hash.
+     */
+    @Override
+    public int hashCode() {
+        return (int) h0;
+    }
+}
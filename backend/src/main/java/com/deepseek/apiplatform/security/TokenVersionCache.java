@@ -0,0 +1,62 @@
+package com.deepseek.apiplatform.security;
+
+import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.event.TokenVersionChangedEvent;
+import com.deepseek.apiplatform.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.Duration;
+
+/**
+ * Each user's current {@code tokenVersion}, so that checking a JWT against it needs no query.
+ * Entries are dropped when the version changes; the TTL bounds staleness when another instance
+ * made the change.
+ */
+@Component
+public class TokenVersionCache {
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> cache;
+
+    public TokenVersionCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${jwt.token-version-cache.maximum-size:1000000}") long maximumSize,
+                             @Value("${jwt.token-version-cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tokenVersions");
+    }
+    
+    /**
+     * Whether {@code tokenVersion} is the user's current version. False for unknown users.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer current = cache.get(userId, id -> userRepository.findById(id)
+                .map(User::getTokenVersion)
+                .map(version -> version != null ? version : 0)
+                .orElse(null));
+        return current != null && current == tokenVersion;
+    }
+    
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenVersionChanged(TokenVersionChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+}
@@ -0,0 +1,61 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ApiKeyLastUsedTracker {
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyLastUsedTracker.class);
+    
+    private final ApiKeyRepository apiKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public ApiKeyLastUsedTracker(ApiKeyRepository apiKeyRepository, PlatformTransactionManager transactionManager) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public void record(Long keyId) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime current = pending.get(keyId);
+        if (current == null || current.isBefore(now)) {
+            pending.merge(keyId, now, (a, b) -> a.isAfter(b) ? a : b);
+        }
+    }
+    
+    public LocalDateTime pending(Long keyId) {
+        return pending.get(keyId);
+    }
+    
+    @Scheduled(fixedDelayString = "${api-key.last-used-flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, LocalDateTime> batch = new HashMap<>(pending);
+        try {
+            transactionTemplate.executeWithoutResult(status -> apiKeyRepository.batchUpdateLastUsedAt(batch));
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush last-used timestamps for {} API keys, will retry", batch.size(), e);
+            return;
+        }
+        batch.forEach(pending::remove);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -3,27 +3,38 @@ package com.deepseek.apiplatform.service;
 import com.deepseek.apiplatform.dto.ApiKeyResponse;
 import com.deepseek.apiplatform.dto.CreateApiKeyRequest;
 import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.event.ApiKeyChangedEvent;
 import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.security.KeyDigest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.security.SecureRandom;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class ApiKeyService {
     private final ApiKeyRepository apiKeyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApiKeyLastUsedTracker lastUsedTracker;
     private static final SecureRandom RANDOM = new SecureRandom();
     private static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    public static final int PREFIX_LENGTH = 7;
 
-    public ApiKeyService(ApiKeyRepository apiKeyRepository) {
+    public ApiKeyService(ApiKeyRepository apiKeyRepository, ApplicationEventPublisher eventPublisher, 
+                         ApiKeyLastUsedTracker lastUsedTracker) {
         this.apiKeyRepository = apiKeyRepository;
+        this.eventPublisher = eventPublisher;
+        this.lastUsedTracker = lastUsedTracker;
     }
     
     public List<ApiKeyResponse> getUserApiKeys(Long userId) {
         return apiKeyRepository.findByUserId(userId).stream()
-                .map(this::toApiKeyResponse)
+                .map(apiKey -> toApiKeyResponse(apiKey, null))
                 .collect(Collectors.toList());
     }
     
@@ -32,16 +43,35 @@ public class ApiKeyService {
         ApiKey apiKey = new ApiKey();
         apiKey.setUserId(userId);
         apiKey.setName(request.getName());
-        apiKey.setApiKey(generateApiKey());
+        String key = generateApiKey();
+        KeyDigest digest = KeyDigest.of(key);
+        apiKey.setKeyDigest(digest.toBytes());
+        apiKey.setKeyPrefix(key.substring(0, PREFIX_LENGTH));
         apiKey.setStatus(ApiKey.KeyStatus.ACTIVE);
         
         apiKey = apiKeyRepository.save(apiKey);
-        return toApiKeyResponse(apiKey);
+        eventPublisher.publishEvent(new ApiKeyChangedEvent(apiKey.getId(), userId, digest, apiKey.getStatus()));
+        return toApiKeyResponse(apiKey, key);
     }
     
     @Transactional
     public void deleteApiKey(Long userId, Long keyId) {
+        Optional<ApiKey> apiKey = apiKeyRepository.findByIdAndUserId(keyId, userId);
         apiKeyRepository.deleteByIdAndUserId(keyId, userId);
+        apiKey.ifPresent(key -> eventPublisher.publishEvent(new ApiKeyChangedEvent(key.getId(), userId,
+                KeyDigest.fromBytes(key.getKeyDigest()), null)));
+    }
+    
+    @Transactional
+    public ApiKeyResponse updateApiKeyStatus(Long userId, Long keyId, ApiKey.KeyStatus status) {
+        ApiKey apiKey = apiKeyRepository.findByIdAndUserId(keyId, userId)
+                .orElseThrow(() -> new RuntimeException("API Key 不存在"));
+        
+        apiKey.setStatus(status);
+        apiKey = apiKeyRepository.save(apiKey);
+        eventPublisher.publishEvent(new ApiKeyChangedEvent(apiKey.getId(), userId,
+                KeyDigest.fromBytes(apiKey.getKeyDigest()), status));
+        return toApiKeyResponse(apiKey, null);
     }
     
     private String generateApiKey() {
@@ -52,15 +82,25 @@ public class ApiKeyService {
         return sb.toString();
     }
     
-    private ApiKeyResponse toApiKeyResponse(ApiKey apiKey) {
+    /**
+     * {@code key} is the full key right after it is created and {@code null} afterwards, when only
+     * the prefix is known.
+     */
+    private ApiKeyResponse toApiKeyResponse(ApiKey apiKey, String key) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime lastUsedAt = apiKey.getLastUsedAt();
+        LocalDateTime pendingLastUsedAt = apiKey.getId() != null ? lastUsedTracker.pending(apiKey.getId()) : null;
+        if (pendingLastUsedAt != null && (lastUsedAt == null || pendingLastUsedAt.isAfter(lastUsedAt))) {
+            lastUsedAt = pendingLastUsedAt;
+        }
         return new ApiKeyResponse(
             apiKey.getId(),
             apiKey.getName(),
-            apiKey.getApiKey(),
+            key,
+            apiKey.getKeyPrefix(),
             apiKey.getStatus().name().toLowerCase(),
             apiKey.getCreatedAt() != null ? apiKey.getCreatedAt().format(formatter) : null,
-            apiKey.getLastUsedAt() != null ? apiKey.getLastUsedAt().format(formatter) : null
+            lastUsedAt != null ? lastUsedAt.format(formatter) : null
         );
     }
 }
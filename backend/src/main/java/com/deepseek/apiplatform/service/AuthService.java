@@ -1,9 +1,13 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.billing.Micros;
 import com.deepseek.apiplatform.dto.*;
 import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.event.TokenVersionChangedEvent;
 import com.deepseek.apiplatform.repository.UserRepository;
 import com.deepseek.apiplatform.security.JwtUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,11 +19,16 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final BalanceLedger balanceLedger;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils,
+                       BalanceLedger balanceLedger, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
+        this.balanceLedger = balanceLedger;
+        this.eventPublisher = eventPublisher;
     }
     
     @Transactional
@@ -66,6 +75,7 @@ public class AuthService {
         int currentVersion = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
         user.setTokenVersion(currentVersion + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new TokenVersionChangedEvent(userId));
     }
     
     public UserResponse getUserById(Long id) {
@@ -104,6 +114,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setTokenVersion(currentVersion + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new TokenVersionChangedEvent(id));
     }
     
     private UserResponse toUserResponse(User user) {
@@ -112,7 +123,7 @@ public class AuthService {
             user.getId(),
             user.getEmail(),
             user.getUsername(),
-            user.getBalance(),
+            Micros.toYuan(balanceLedger.balance(user.getId())),
             user.getAvatarUrl(),
             user.getCreatedAt() != null ? user.getCreatedAt().format(formatter) : null
         );
@@ -0,0 +1,494 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.BatchRequestLine;
+import com.deepseek.apiplatform.dto.BatchResultLine;
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.dto.ChatCompletionResponse;
+import com.deepseek.apiplatform.entity.Batch;
+import com.deepseek.apiplatform.entity.StoredFile;
+import com.deepseek.apiplatform.exception.PaymentRequiredException;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import com.deepseek.apiplatform.exception.UpstreamException;
+import com.deepseek.apiplatform.repository.BatchRepository;
+import com.deepseek.apiplatform.repository.StoredFileRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs batches in the background. Each batch streams its input file line by line, fans the
+ * requests out to virtual threads bounded by {@code batch.concurrency}, and appends results to
+ * output/error JSONL files as they complete. Usage is handed to {@link UsageAggregator} in one
+ * record per {@code batch.progress-interval} requests instead of once per request.
+ * <p>
+ * Every request reserves its worst-case cost like an online request does. Once the balance
+ * cannot cover one, no further lines are read and the batch ends as failed with
+ * {@code insufficient_balance}; the results already paid for are kept.
+ * <p>
+ * A request refused for capacity (a full model bulkhead, an upstream 429) or failed by the
+ * upstream (5xx, timeout) is retried with exponential backoff up to {@code batch.retry.max-attempts}
+ * times before its line fails with {@code model_overloaded}, {@code upstream_rate_limited} or
+ * {@code upstream_error}. The worker keeps its concurrency permit while it waits, so a batch
+ * competing with online traffic slows down instead of adding load.
+ */
+@Component
+public class BatchProcessor {
+    private static final Logger log = LoggerFactory.getLogger(BatchProcessor.class);
+
+    private final BatchRepository batchRepository;
+    private final StoredFileRepository storedFileRepository;
+    private final FileStorageService fileStorageService;
+    private final ChatService chatService;
+    private final UsageAggregator usageAggregator;
+    private final PricingService pricingService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int concurrency;
+    private final int progressInterval;
+    private final int retryMaxAttempts;
+    private final long retryInitialBackoffNanos;
+    private final long retryMaxBackoffNanos;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService workerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Long, BatchJob> running = new ConcurrentHashMap<>();
+
+    public BatchProcessor(BatchRepository batchRepository,
+                          StoredFileRepository storedFileRepository,
+                          FileStorageService fileStorageService,
+                          ChatService chatService,
+                          UsageAggregator usageAggregator,
+                          PricingService pricingService,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${batch.max-running:2}") int maxRunning,
+                          @Value("${batch.concurrency:16}") int concurrency,
+                          @Value("${batch.progress-interval:1000}") int progressInterval,
+                          @Value("${batch.retry.max-attempts:5}") int retryMaxAttempts,
+                          @Value("${batch.retry.initial-backoff:1s}") Duration retryInitialBackoff,
+                          @Value("${batch.retry.max-backoff:30s}") Duration retryMaxBackoff) {
+        this.batchRepository = batchRepository;
+        this.storedFileRepository = storedFileRepository;
+        this.fileStorageService = fileStorageService;
+        this.chatService = chatService;
+        this.usageAggregator = usageAggregator;
+        this.pricingService = pricingService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.concurrency = concurrency;
+        this.progressInterval = progressInterval;
+        this.retryMaxAttempts = Math.max(retryMaxAttempts, 1);
+        this.retryInitialBackoffNanos = Math.max(retryInitialBackoff.toNanos(), 1);
+        this.retryMaxBackoffNanos = Math.max(retryMaxBackoff.toNanos(), this.retryInitialBackoffNanos);
+        this.jobExecutor = Executors.newFixedThreadPool(maxRunning);
+    }
+
+    public void submit(Long batchId) {
+        jobExecutor.execute(() -> run(batchId));
+    }
+
+    public boolean cancel(Long batchId) {
+        Integer updated = transactionTemplate.execute(status -> batchRepository.transition(
+                batchId, EnumSet.of(Batch.BatchStatus.VALIDATING, Batch.BatchStatus.IN_PROGRESS), Batch.BatchStatus.CANCELLING));
+        BatchJob job = running.get(batchId);
+        if (job != null) {
+            job.cancelled = true;
+        }
+        return updated != null && updated > 0;
+    }
+
+    public Progress progress(Long batchId) {
+        BatchJob job = running.get(batchId);
+        if (job == null) {
+            return null;
+        }
+        return job.progress();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (Batch batch : batchRepository.findByStatusIn(EnumSet.of(Batch.BatchStatus.VALIDATING,
+                Batch.BatchStatus.IN_PROGRESS, Batch.BatchStatus.FINALIZING, Batch.BatchStatus.CANCELLING))) {
+            if (batch.getStatus() == Batch.BatchStatus.VALIDATING) {
+                submit(batch.getId());
+            } else if (batch.getStatus() == Batch.BatchStatus.CANCELLING) {
+                batch.setStatus(Batch.BatchStatus.CANCELLED);
+                batch.setCancelledAt(LocalDateTime.now());
+                batchRepository.save(batch);
+            } else {
+                batch.setStatus(Batch.BatchStatus.FAILED);
+                batch.setErrorMessage("服务重启导致批处理中断");
+                batchRepository.save(batch);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(job -> job.abort(new IllegalStateException("服务关闭，批处理中断")));
+        jobExecutor.shutdownNow();
+        workerExecutor.shutdownNow();
+    }
+
+    void run(Long batchId) {
+        Batch batch = batchRepository.findById(batchId).orElse(null);
+        if (batch == null) {
+            return;
+        }
+        Integer started = transactionTemplate.execute(status -> batchRepository.transition(
+                batchId, EnumSet.of(Batch.BatchStatus.VALIDATING), Batch.BatchStatus.IN_PROGRESS));
+        if (started == null || started == 0) {
+            markCancelledIfRequested(batchId);
+            return;
+        }
+
+        BatchJob job = new BatchJob(batch.getId(), batch.getUserId(), batch.getEndpoint());
+        running.put(batchId, job);
+        Path outputPath = null;
+        Path errorPath = null;
+        try {
+            StoredFile input = storedFileRepository.findById(batch.getInputFileId())
+                    .orElseThrow(() -> new IllegalStateException("输入文件不存在"));
+            Path inputPath = fileStorageService.resolve(input);
+            long total = countRequests(inputPath);
+            transactionTemplate.executeWithoutResult(status -> batchRepository.markStarted(batchId, total, LocalDateTime.now()));
+
+            outputPath = fileStorageService.newStoragePath();
+            errorPath = fileStorageService.newStoragePath();
+            process(job, inputPath, outputPath, errorPath);
+            flushProgress(job);
+            finish(job, outputPath, errorPath);
+        } catch (Exception e) {
+            log.warn("Batch {} failed", batchId, e);
+            flushProgress(job);
+            fail(batchId, e instanceof InterruptedException ? "批处理被中断" : e.getMessage());
+            deleteQuietly(outputPath);
+            deleteQuietly(errorPath);
+        } finally {
+            running.remove(batchId);
+        }
+    }
+
+    private void process(BatchJob job, Path inputPath, Path outputPath, Path errorPath) throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        try (BufferedReader reader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8);
+             BufferedWriter output = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8);
+             BufferedWriter errors = Files.newBufferedWriter(errorPath, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            try {
+                while (!job.cancelled && (line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    lineNumber++;
+                    permits.acquire();
+                    String request = line;
+                    long requestNumber = lineNumber;
+                    try {
+                        workerExecutor.execute(() -> {
+                            try {
+                                handle(job, request, requestNumber, output, errors);
+                            } catch (RuntimeException e) {
+                                job.abort(e);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        permits.release();
+                        throw e;
+                    }
+                    if (lineNumber % progressInterval == 0) {
+                        flushProgress(job);
+                        if (isCancelling(job.batchId)) {
+                            job.cancelled = true;
+                        }
+                    }
+                }
+            } finally {
+                permits.acquireUninterruptibly(concurrency);
+            }
+        }
+        if (job.failure != null) {
+            throw new IllegalStateException(job.failure.getMessage(), job.failure);
+        }
+    }
+
+    private void handle(BatchJob job, String line, long requestNumber, Writer output, Writer errors) {
+        BatchResultLine result = new BatchResultLine();
+        result.setId("batch_req_" + requestNumber);
+        ChatCompletionResponse response;
+        try {
+            BatchRequestLine request = objectMapper.readValue(line, BatchRequestLine.class);
+            result.setCustomId(request.getCustomId());
+            if (!job.endpoint.equals(request.getUrl())) {
+                throw new IllegalArgumentException("不支持的 url: " + request.getUrl());
+            }
+            if (request.getBody() == null) {
+                throw new IllegalArgumentException("缺少请求体 body");
+            }
+            response = complete(job, request.getBody());
+        } catch (PaymentRequiredException e) {
+            job.stopForBalance();
+            appendError(job, errors, result, e.getCode(), e.getMessage());
+            return;
+        } catch (JsonProcessingException e) {
+            appendError(job, errors, result, "invalid_json", "第 " + requestNumber + " 行不是合法的 JSON");
+            return;
+        } catch (TooManyRequestsException e) {
+            appendError(job, errors, result, e.getCode(), e.getMessage());
+            return;
+        } catch (UpstreamException e) {
+            appendError(job, errors, result, errorCode(e), e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            appendError(job, errors, result, "invalid_request", e.getMessage());
+            return;
+        }
+
+        result.setResponse(new BatchResultLine.Response(200, response));
+        append(output, result);
+        ChatCompletionResponse.Usage usage = response.getUsage();
+        job.recordSuccess(usage.getPromptTokens(), usage.getPromptCacheHitTokens(), usage.getCompletionTokens(),
+                pricingService.cost(response.getModel(), usage));
+    }
+
+    private ChatCompletionResponse complete(BatchJob job, ChatCompletionRequest body) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return chatService.complete(job.userId, body);
+            } catch (TooManyRequestsException | UpstreamException e) {
+                if (!isRetryable(e) || attempt >= retryMaxAttempts || job.cancelled) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos(attempt, e));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof UpstreamException upstream) {
+            return upstream.getStatus() == HttpStatus.TOO_MANY_REQUESTS || upstream.getStatus().is5xxServerError();
+        }
+        return true;
+    }
+
+    /**
+     * Doubles from {@code batch.retry.initial-backoff} up to {@code batch.retry.max-backoff}, at
+     * least the {@code Retry-After} of a 429, with jitter so the workers of a batch do not retry
+     * in lockstep.
+     */
+    private long backoffNanos(int attempt, RuntimeException e) {
+        long nanos = Math.min(retryMaxBackoffNanos, retryInitialBackoffNanos << Math.min(attempt - 1, 30));
+        if (e instanceof TooManyRequestsException tooMany) {
+            nanos = Math.max(nanos, Math.min(retryMaxBackoffNanos, TimeUnit.SECONDS.toNanos(tooMany.getRetryAfterSeconds())));
+        }
+        return ThreadLocalRandom.current().nextLong(nanos / 2, nanos + 1);
+    }
+
+    private static String errorCode(UpstreamException e) {
+        if (e.getStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+            return "upstream_rate_limited";
+        }
+        return e.getStatus().is4xxClientError() ? "invalid_request" : "upstream_error";
+    }
+
+    private void appendError(BatchJob job, Writer errors, BatchResultLine result, String code, String message) {
+        job.failed.increment();
+        result.setError(new BatchResultLine.Error(code, message));
+        append(errors, result);
+    }
+
+    private void append(Writer writer, BatchResultLine result) {
+        try {
+            String json = objectMapper.writeValueAsString(result);
+            synchronized (writer) {
+                writer.write(json);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入结果文件失败", e);
+        }
+    }
+
+    private void flushProgress(BatchJob job) {
+        long prompt = job.unbilledPromptTokens.sumThenReset();
+        long cacheHit = job.unbilledCacheHitTokens.sumThenReset();
+        long completion = job.unbilledCompletionTokens.sumThenReset();
+        long cost = job.unbilledCostMicros.sumThenReset();
+        long requests = job.unbilledRequests.sumThenReset();
+        if (requests > 0) {
+            usageAggregator.record(job.userId, prompt, cacheHit, completion, cost, requests);
+        }
+        Progress progress = job.progress();
+        transactionTemplate.executeWithoutResult(status -> batchRepository.updateProgress(job.batchId,
+                progress.completed(), progress.failed(), progress.promptTokens(), progress.completionTokens()));
+    }
+
+    private void finish(BatchJob job, Path outputPath, Path errorPath) {
+        Integer finalizing = transactionTemplate.execute(status -> batchRepository.transition(
+                job.batchId, EnumSet.of(Batch.BatchStatus.IN_PROGRESS), Batch.BatchStatus.FINALIZING));
+        boolean cancelled = finalizing == null || finalizing == 0;
+
+        StoredFile output = fileStorageService.register(job.userId, "batch_" + job.batchId + "_output.jsonl",
+                FileStorageService.PURPOSE_BATCH_OUTPUT, outputPath);
+        StoredFile errors = null;
+        if (job.failed.sum() > 0) {
+            errors = fileStorageService.register(job.userId, "batch_" + job.batchId + "_error.jsonl",
+                    FileStorageService.PURPOSE_BATCH_ERROR, errorPath);
+        } else {
+            deleteQuietly(errorPath);
+        }
+
+        Long errorFileId = errors != null ? errors.getId() : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            Batch batch = batchRepository.findById(job.batchId).orElseThrow();
+            batch.setOutputFileId(output.getId());
+            batch.setErrorFileId(errorFileId);
+            if (cancelled) {
+                batch.setStatus(Batch.BatchStatus.CANCELLED);
+                batch.setCancelledAt(LocalDateTime.now());
+            } else if (job.outOfBalance) {
+                batch.setStatus(Batch.BatchStatus.FAILED);
+                batch.setErrorMessage("账户余额不足，批处理已停止");
+            } else {
+                batch.setStatus(Batch.BatchStatus.COMPLETED);
+                batch.setCompletedAt(LocalDateTime.now());
+            }
+            batchRepository.save(batch);
+        });
+    }
+
+    private void fail(Long batchId, String message) {
+        transactionTemplate.executeWithoutResult(status -> batchRepository.findById(batchId).ifPresent(batch -> {
+            batch.setStatus(Batch.BatchStatus.FAILED);
+            batch.setErrorMessage(message);
+            batchRepository.save(batch);
+        }));
+    }
+
+    private void markCancelledIfRequested(Long batchId) {
+        transactionTemplate.executeWithoutResult(status -> batchRepository.findById(batchId).ifPresent(batch -> {
+            if (batch.getStatus() == Batch.BatchStatus.CANCELLING) {
+                batch.setStatus(Batch.BatchStatus.CANCELLED);
+                batch.setCancelledAt(LocalDateTime.now());
+                batchRepository.save(batch);
+            }
+        }));
+    }
+
+    private boolean isCancelling(Long batchId) {
+        return batchRepository.findById(batchId)
+                .map(batch -> batch.getStatus() == Batch.BatchStatus.CANCELLING)
+                .orElse(true);
+    }
+
+    private long countRequests(Path inputPath) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(inputPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", path, e);
+        }
+    }
+
+    public record Progress(long completed, long failed, long promptTokens, long completionTokens) {
+    }
+
+    private static class BatchJob {
+        final Long batchId;
+        final Long userId;
+        final String endpoint;
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder unbilledPromptTokens = new LongAdder();
+        final LongAdder unbilledCacheHitTokens = new LongAdder();
+        final LongAdder unbilledCompletionTokens = new LongAdder();
+        final LongAdder unbilledCostMicros = new LongAdder();
+        final LongAdder unbilledRequests = new LongAdder();
+        volatile boolean cancelled;
+        volatile boolean outOfBalance;
+        volatile Throwable failure;
+
+        BatchJob(Long batchId, Long userId, String endpoint) {
+            this.batchId = batchId;
+            this.userId = userId;
+            this.endpoint = endpoint;
+        }
+
+        void recordSuccess(long prompt, long cacheHit, long completion, long costMicros) {
+            promptTokens.add(prompt);
+            completionTokens.add(completion);
+            unbilledPromptTokens.add(prompt);
+            unbilledCacheHitTokens.add(cacheHit);
+            unbilledCompletionTokens.add(completion);
+            unbilledCostMicros.add(costMicros);
+            unbilledRequests.increment();
+            completed.increment();
+        }
+
+        void stopForBalance() {
+            outOfBalance = true;
+            cancelled = true;
+        }
+
+        void abort(Throwable cause) {
+            failure = cause;
+            cancelled = true;
+        }
+
+        Progress progress() {
+            return new Progress(completed.sum(), failed.sum(), promptTokens.sum(), completionTokens.sum());
+        }
+    }
+}
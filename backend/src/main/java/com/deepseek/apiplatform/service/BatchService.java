@@ -0,0 +1,116 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.BatchResponse;
+import com.deepseek.apiplatform.dto.CreateBatchRequest;
+import com.deepseek.apiplatform.entity.Batch;
+import com.deepseek.apiplatform.entity.StoredFile;
+import com.deepseek.apiplatform.repository.BatchRepository;
+import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class BatchService {
+    static final String CHAT_COMPLETIONS_ENDPOINT = "/v1/chat/completions";
+    static final String COMPLETION_WINDOW = "24h";
+    
+    private final BatchRepository batchRepository;
+    private final FileStorageService fileStorageService;
+    private final BatchProcessor batchProcessor;
+
+    public BatchService(BatchRepository batchRepository,
+                        FileStorageService fileStorageService,
+                        BatchProcessor batchProcessor) {
+        this.batchRepository = batchRepository;
+        this.fileStorageService = fileStorageService;
+        this.batchProcessor = batchProcessor;
+    }
+    
+    public BatchResponse createBatch(Long userId, CreateBatchRequest request) {
+        if (!CHAT_COMPLETIONS_ENDPOINT.equals(request.getEndpoint())) {
+            throw new RuntimeException("不支持的 endpoint: " + request.getEndpoint());
+        }
+        if (request.getCompletionWindow() != null && !COMPLETION_WINDOW.equals(request.getCompletionWindow())) {
+            throw new RuntimeException("completionWindow 仅支持 24h");
+        }
+        
+        StoredFile input = fileStorageService.getFile(userId, request.getInputFileId());
+        if (!FileStorageService.PURPOSE_BATCH.equals(input.getPurpose())) {
+            throw new RuntimeException("输入文件的用途必须为 batch");
+        }
+        
+        Batch batch = new Batch();
+        batch.setUserId(userId);
+        batch.setEndpoint(request.getEndpoint());
+        batch.setCompletionWindow(COMPLETION_WINDOW);
+        batch.setInputFileId(input.getId());
+        batch.setStatus(Batch.BatchStatus.VALIDATING);
+        batch = batchRepository.save(batch);
+        
+        batchProcessor.submit(batch.getId());
+        return toBatchResponse(batch);
+    }
+    
+    public BatchResponse getBatch(Long userId, Long batchId) {
+        return toBatchResponse(findBatch(userId, batchId));
+    }
+    
+    public List<BatchResponse> listBatches(Long userId) {
+        return batchRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+                .map(this::toBatchResponse)
+                .collect(Collectors.toList());
+    }
+    
+    public BatchResponse cancelBatch(Long userId, Long batchId) {
+        Batch batch = findBatch(userId, batchId);
+        if (batch.getStatus() == Batch.BatchStatus.CANCELLING || batch.getStatus() == Batch.BatchStatus.CANCELLED) {
+            return toBatchResponse(batch);
+        }
+        if (!batchProcessor.cancel(batchId)) {
+            throw new RuntimeException("批处理已结束，无法取消");
+        }
+        return toBatchResponse(findBatch(userId, batchId));
+    }
+    
+    private Batch findBatch(Long userId, Long batchId) {
+        return batchRepository.findByIdAndUserId(batchId, userId)
+                .orElseThrow(() -> new RuntimeException("批处理任务不存在"));
+    }
+    
+    private BatchResponse toBatchResponse(Batch batch) {
+        long completed = batch.getCompletedRequests();
+        long failed = batch.getFailedRequests();
+        long promptTokens = batch.getPromptTokens();
+        long completionTokens = batch.getCompletionTokens();
+        BatchProcessor.Progress progress = batchProcessor.progress(batch.getId());
+        if (progress != null) {
+            completed = Math.max(completed, progress.completed());
+            failed = Math.max(failed, progress.failed());
+            promptTokens = Math.max(promptTokens, progress.promptTokens());
+            completionTokens = Math.max(completionTokens, progress.completionTokens());
+        }
+        
+        BatchResponse response = new BatchResponse();
+        response.setId(batch.getId());
+        response.setEndpoint(batch.getEndpoint());
+        response.setCompletionWindow(batch.getCompletionWindow());
+        response.setInputFileId(batch.getInputFileId());
+        response.setOutputFileId(batch.getOutputFileId());
+        response.setErrorFileId(batch.getErrorFileId());
+        response.setStatus(batch.getStatus().name().toLowerCase());
+        response.setErrorMessage(batch.getErrorMessage());
+        response.setCreatedAt(toEpochSecond(batch.getCreatedAt()));
+        response.setInProgressAt(toEpochSecond(batch.getInProgressAt()));
+        response.setCompletedAt(toEpochSecond(batch.getCompletedAt()));
+        response.setCancelledAt(toEpochSecond(batch.getCancelledAt()));
+        response.setRequestCounts(new BatchResponse.RequestCounts(batch.getTotalRequests(), completed, failed));
+        response.setUsage(new BatchResponse.Usage(promptTokens, completionTokens));
+        return response;
+    }
+    
+    private Long toEpochSecond(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toEpochSecond() : null;
+    }
+}
@@ -1,67 +1,125 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.billing.Micros;
+import com.deepseek.apiplatform.dto.BillingRecordPage;
 import com.deepseek.apiplatform.dto.BillingRecordResponse;
 import com.deepseek.apiplatform.dto.RechargeRequest;
 import com.deepseek.apiplatform.dto.UsageStatsResponse;
 import com.deepseek.apiplatform.entity.BillingRecord;
 import com.deepseek.apiplatform.entity.UsageStats;
-import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.repository.BillingRecordQuery;
 import com.deepseek.apiplatform.repository.BillingRecordRepository;
+import com.deepseek.apiplatform.repository.BillingRecordRow;
 import com.deepseek.apiplatform.repository.UsageStatsRepository;
 import com.deepseek.apiplatform.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class BillingService {
+    private static final int MAX_RECORDS_PAGE_SIZE = 100;
+    private static final DateTimeFormatter CREATED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
     private final UserRepository userRepository;
     private final BillingRecordRepository billingRecordRepository;
     private final UsageStatsRepository usageStatsRepository;
+    private final UsageAggregator usageAggregator;
+    private final BalanceLedger balanceLedger;
 
-    public BillingService(UserRepository userRepository, BillingRecordRepository billingRecordRepository, UsageStatsRepository usageStatsRepository) {
+    public BillingService(UserRepository userRepository, BillingRecordRepository billingRecordRepository, 
+                          UsageStatsRepository usageStatsRepository, UsageAggregator usageAggregator,
+                          BalanceLedger balanceLedger) {
         this.userRepository = userRepository;
         this.billingRecordRepository = billingRecordRepository;
         this.usageStatsRepository = usageStatsRepository;
+        this.usageAggregator = usageAggregator;
+        this.balanceLedger = balanceLedger;
     }
     
     public UsageStatsResponse getUsageStats(Long userId) {
-        UsageStats stats = usageStatsRepository.findByUserId(userId)
-                .orElseGet(() -> createDefaultUsageStats(userId));
-        
-        return new UsageStatsResponse(
-            stats.getTotalTokens(),
-            stats.getPromptTokens(),
-            stats.getCompletionTokens(),
-            stats.getRequestCount()
-        );
+        return usageAggregator.readConsistently(() -> {
+            UsageStats stats = usageStatsRepository.findByUserId(userId)
+                    .orElseGet(() -> createDefaultUsageStats(userId));
+            UsageAggregator.Totals pending = usageAggregator.pending(userId);
+            
+            UsageStatsResponse response = new UsageStatsResponse(
+                stats.getTotalTokens() + pending.totalTokens(),
+                stats.getPromptTokens() + pending.promptTokens(),
+                stats.getCompletionTokens() + pending.completionTokens(),
+                stats.getRequestCount() + pending.requestCount()
+            );
+            long cacheHitTokens = valueOrZero(stats.getPromptCacheHitTokens()) + pending.promptCacheHitTokens();
+            response.setPromptCacheHitTokens(cacheHitTokens);
+            response.setPromptCacheMissTokens(response.getPromptTokens() - cacheHitTokens);
+            response.setTotalCost((stats.getTotalCost() != null ? stats.getTotalCost() : BigDecimal.ZERO).add(pending.cost()));
+            return response;
+        });
     }
     
-    public List<BillingRecordResponse> getBillingRecords(Long userId) {
-        return billingRecordRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
-                .map(this::toBillingRecordResponse)
-                .collect(Collectors.toList());
+    /**
+     * One page of records, newest first. {@code cursor} is the {@code nextCursor} of the previous
+     * page; the returned one is {@code null} on the last page.
+     */
+    public BillingRecordPage getBillingRecords(Long userId, String type, LocalDate from, LocalDate to,
+                                               String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_RECORDS_PAGE_SIZE));
+        LocalDateTime beforeCreatedAt = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 2);
+                beforeCreatedAt = LocalDateTime.parse(parts[0]);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+        }
+        
+        List<BillingRecordRow> rows = billingRecordRepository.findPage(new BillingRecordQuery(
+                userId,
+                parseRecordType(type),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                beforeCreatedAt,
+                beforeId,
+                pageSize + 1));
+        
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            BillingRecordRow last = rows.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.createdAt() + "," + last.id()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new BillingRecordPage(rows.stream().map(this::toBillingRecordResponse).collect(Collectors.toList()), nextCursor);
     }
     
     @Transactional
     public BillingRecordResponse recharge(Long userId, RechargeRequest request) {
-        User user = userRepository.findById(userId)
+        userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
         
         BigDecimal amount = BigDecimal.valueOf(request.getAmount());
-        BigDecimal newBalance = user.getBalance().add(amount);
-        user.setBalance(newBalance);
-        userRepository.save(user);
+        long credit = Micros.of(amount);
+        BigDecimal newBalance = Micros.toYuan(balanceLedger.balance(userId) + credit);
+        String description = "账户充值 - " + ("alipay".equals(request.getPaymentMethod()) ? "支付宝" : "微信支付");
+        balanceLedger.credit(userId, credit, description);
         
         BillingRecord record = new BillingRecord();
         record.setUserId(userId);
         record.setType(BillingRecord.RecordType.RECHARGE);
         record.setAmount(amount);
         record.setBalance(newBalance);
-        record.setDescription("账户充值 - " + ("alipay".equals(request.getPaymentMethod()) ? "支付宝" : "微信支付"));
+        record.setDescription(description);
         
         record = billingRecordRepository.save(record);
         return toBillingRecordResponse(record);
@@ -72,20 +130,41 @@ public class BillingService {
         stats.setUserId(userId);
         stats.setTotalTokens(0L);
         stats.setPromptTokens(0L);
+        stats.setPromptCacheHitTokens(0L);
         stats.setCompletionTokens(0L);
         stats.setRequestCount(0L);
+        stats.setTotalCost(BigDecimal.ZERO);
         return usageStatsRepository.save(stats);
     }
     
+    private static BillingRecord.RecordType parseRecordType(String type) {
+        if (type == null || type.isEmpty()) {
+            return null;
+        }
+        try {
+            return BillingRecord.RecordType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("无效的账单类型: " + type);
+        }
+    }
+    
+    private static long valueOrZero(Long value) {
+        return value != null ? value : 0L;
+    }
+    
     private BillingRecordResponse toBillingRecordResponse(BillingRecord record) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        return toBillingRecordResponse(new BillingRecordRow(record.getId(), record.getType(), record.getAmount(),
+                record.getBalance(), record.getDescription(), record.getCreatedAt()));
+    }
+    
+    private BillingRecordResponse toBillingRecordResponse(BillingRecordRow row) {
         return new BillingRecordResponse(
-            record.getId(),
-            record.getType().name().toLowerCase(),
-            record.getAmount().doubleValue(),
-            record.getBalance().doubleValue(),
-            record.getDescription(),
-            record.getCreatedAt() != null ? record.getCreatedAt().format(formatter) : null
+            row.id(),
+            row.type().name().toLowerCase(),
+            row.amount().doubleValue(),
+            row.balance().doubleValue(),
+            row.description(),
+            row.createdAt() != null ? row.createdAt().format(CREATED_AT_FORMAT) : null
         );
     }
 }
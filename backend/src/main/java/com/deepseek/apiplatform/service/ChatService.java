@@ -1,30 +1,66 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.backend.ModelBackend;
+import com.deepseek.apiplatform.backend.ModelBackendRegistry;
+import com.deepseek.apiplatform.backend.SimulatorBackend;
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.concurrent.SingleFlight;
 import com.deepseek.apiplatform.dto.*;
-import com.deepseek.apiplatform.entity.UsageStats;
-import com.deepseek.apiplatform.repository.UsageStatsRepository;
+import com.deepseek.apiplatform.tokenizer.TokenCountCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
 public class ChatService {
-    private final UsageStatsRepository usageStatsRepository;
+    static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int REPLY_PRIMING_TOKENS = 3;
+    /** Completion tokens to reserve balance for when the request does not set {@code max_tokens}. */
+    private static final int DEFAULT_RESERVED_COMPLETION_TOKENS = 4096;
+    
+    private final UsageAggregator usageAggregator;
+    private final TokenCountCache tokenCountCache;
+    private final CompletionCache completionCache;
+    private final PrefixCache prefixCache;
+    private final PricingService pricingService;
+    private final ModelBackendRegistry modelBackends;
+    private final ModelBulkheads bulkheads;
+    private final BalanceLedger balanceLedger;
+    private final SingleFlight<CompletionKey, Generation> inFlight = new SingleFlight<>();
     
     private static final List<String> AVAILABLE_MODELS = Arrays.asList(
         "deepseek-chat",
         "deepseek-coder",
         "deepseek-reasoner"
     );
-    
-    private static final Map<String, Double> MODEL_PRICING = Map.of(
-        "deepseek-chat", 0.001,
-        "deepseek-coder", 0.002,
-        "deepseek-reasoner", 0.003
-    );
 
-    public ChatService(UsageStatsRepository usageStatsRepository) {
-        this.usageStatsRepository = usageStatsRepository;
+    public ChatService(UsageAggregator usageAggregator,
+                       TokenCountCache tokenCountCache,
+                       CompletionCache completionCache,
+                       PrefixCache prefixCache,
+                       PricingService pricingService,
+                       ModelBackendRegistry modelBackends,
+                       ModelBulkheads bulkheads,
+                       BalanceLedger balanceLedger,
+                       MeterRegistry meterRegistry) {
+        this.usageAggregator = usageAggregator;
+        this.tokenCountCache = tokenCountCache;
+        this.completionCache = completionCache;
+        this.prefixCache = prefixCache;
+        this.pricingService = pricingService;
+        this.modelBackends = modelBackends;
+        this.bulkheads = bulkheads;
+        this.balanceLedger = balanceLedger;
+        FunctionCounter.builder("chat.completions.coalesced", inFlight, SingleFlight::coalesced)
+                .description("Deterministic completions served by attaching to an identical in-flight request")
+                .register(meterRegistry);
+        Gauge.builder("chat.completions.inflight.keys", inFlight, SingleFlight::inFlight)
+                .register(meterRegistry);
     }
     
     public ModelListResponse listModels() {
@@ -44,100 +80,285 @@ public class ChatService {
         return response;
     }
     
-    @Transactional
     public ChatCompletionResponse chatCompletion(Long userId, ChatCompletionRequest request) {
-        String model = request.getModel();
-        if (model == null || !AVAILABLE_MODELS.contains(model)) {
-            model = "deepseek-chat";
+        return chatCompletion(userId, request, CompletionCache.Mode.DEFAULT);
+    }
+    
+    public ChatCompletionResponse chatCompletion(Long userId, ChatCompletionRequest request, CompletionCache.Mode cacheMode) {
+        return join(chatCompletionAsync(userId, request, cacheMode));
+    }
+    
+    /**
+     * Completes once the backend has produced the whole completion. The worst-case cost is
+     * reserved from the user's balance up front; usage is recorded and charged on delivery.
+     */
+    public CompletableFuture<ChatCompletionResponse> chatCompletionAsync(Long userId, ChatCompletionRequest request,
+                                                                         CompletionCache.Mode cacheMode) {
+        int promptTokens = countPromptTokens(request.getMessages());
+        BalanceLedger.Reservation reservation = reserve(userId, request, promptTokens);
+        CompletableFuture<ChatCompletionResponse> response;
+        try {
+            response = completeAsync(userId, request, cacheMode, promptTokens);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
         }
-        
-        int promptTokens = estimateTokens(request.getMessages());
-        int completionTokens = generateRandomCompletionTokens();
-        int totalTokens = promptTokens + completionTokens;
-        
-        updateUsageStats(userId, promptTokens, completionTokens);
+        return response.whenComplete((result, error) -> {
+            if (error != null) {
+                reservation.release();
+            }
+        }).thenApply(result -> {
+            recordUsage(userId, result.getModel(), result.getUsage(), reservation);
+            return result;
+        });
+    }
+    
+    /**
+     * Completes one batch request. The balance is reserved and settled exactly as for
+     * {@link #chatCompletionAsync}, so a batch cannot spend more than the user has; recording
+     * usage is left to the caller, which aggregates it per batch.
+     */
+    public ChatCompletionResponse complete(Long userId, ChatCompletionRequest request) {
+        int promptTokens = countPromptTokens(request.getMessages());
+        BalanceLedger.Reservation reservation = reserve(userId, request, promptTokens);
+        try {
+            ChatCompletionResponse response = join(completeAsync(userId, request, CompletionCache.Mode.DEFAULT, promptTokens));
+            reservation.settle(pricingService.cost(response.getModel(), response.getUsage()));
+            return response;
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+    }
+    
+    private CompletableFuture<ChatCompletionResponse> completeAsync(Long userId, ChatCompletionRequest request,
+                                                                    CompletionCache.Mode cacheMode, int promptTokens) {
+        return generate(userId, request, cacheMode, promptTokens).thenApply(generation -> toResponse(userId, request, generation));
+    }
+    
+    private ChatCompletionResponse toResponse(Long userId, ChatCompletionRequest request, Generation generation) {
+        int cacheHitTokens = prefixCache.match(userId, generation.model(), request.getMessages());
         
         ChatCompletionResponse response = new ChatCompletionResponse();
-        response.setId("chatcmpl-" + UUID.randomUUID().toString().substring(0, 24));
+        response.setId(newCompletionId());
         response.setCreated(System.currentTimeMillis() / 1000);
-        response.setModel(model);
+        response.setModel(generation.model());
         
         ChatCompletionResponse.Choice choice = new ChatCompletionResponse.Choice();
         choice.setIndex(0);
-        choice.setFinishReason("stop");
+        choice.setFinishReason(generation.finishReason());
         
         ChatCompletionResponse.Choice.Message message = new ChatCompletionResponse.Choice.Message();
         message.setRole("assistant");
-        message.setContent(generateMockResponse(request));
+        message.setContent(generation.content());
         choice.setMessage(message);
         
         response.setChoices(List.of(choice));
-        
-        ChatCompletionResponse.Usage usage = new ChatCompletionResponse.Usage();
-        usage.setPromptTokens(promptTokens);
-        usage.setCompletionTokens(completionTokens);
-        usage.setTotalTokens(totalTokens);
-        response.setUsage(usage);
-        
+        response.setUsage(toUsage(generation, cacheHitTokens));
         return response;
     }
     
-    private int estimateTokens(List<ChatCompletionRequest.Message> messages) {
-        if (messages == null) return 0;
-        int total = 0;
-        for (ChatCompletionRequest.Message msg : messages) {
-            if (msg.getContent() != null) {
-                total += msg.getContent().length() / 4 + 10;
+    public CompletableFuture<ChatCompletionResponse.Usage> streamChatCompletion(Long userId, ChatCompletionRequest request,
+                                                                               Consumer<ChatCompletionChunk> sink) {
+        return streamChatCompletion(userId, request, CompletionCache.Mode.DEFAULT, sink);
+    }
+    
+    /**
+     * Reserves the worst-case cost, emits the role chunk once the model's bulkhead admits the
+     * request, then a content chunk for each piece the backend produces. A cached completion is
+     * replayed at once. The returned future completes with the usage after the finish chunk and,
+     * when requested, the usage chunk have been emitted. Throws {@code PaymentRequiredException}
+     * or {@code TooManyRequestsException} right away if the balance is short or the model's queue
+     * is full.
+     */
+    public CompletableFuture<ChatCompletionResponse.Usage> streamChatCompletion(Long userId, ChatCompletionRequest request,
+                                                                               CompletionCache.Mode cacheMode,
+                                                                               Consumer<ChatCompletionChunk> sink) {
+        int promptTokens = countPromptTokens(request.getMessages());
+        BalanceLedger.Reservation reservation = reserve(userId, request, promptTokens);
+        try {
+            return streamReserved(userId, request, cacheMode, promptTokens, sink, reservation).whenComplete((usage, error) -> {
+                if (error != null) {
+                    reservation.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+    }
+    
+    private CompletableFuture<ChatCompletionResponse.Usage> streamReserved(Long userId, ChatCompletionRequest request,
+                                                                         CompletionCache.Mode cacheMode, int promptTokens,
+                                                                         Consumer<ChatCompletionChunk> sink,
+                                                                         BalanceLedger.Reservation reservation) {
+        String model = resolveModel(request.getModel());
+        String id = newCompletionId();
+        long created = System.currentTimeMillis() / 1000;
+        Consumer<String> onContent = piece -> sink.accept(newChunk(id, created, model, null, piece, null));
+        
+        CompletableFuture<Generation> generation;
+        CompletionKey key = isDeterministic(request) ? CompletionKey.of(model, request) : null;
+        Generation cached = key != null && cacheMode.read() ? completionCache.get(key) : null;
+        if (cached != null) {
+            sink.accept(newChunk(id, created, model, "assistant", "", null));
+            SimulatorBackend.splitIntoPieces(cached.content()).forEach(onContent);
+            generation = CompletableFuture.completedFuture(cached);
+        } else {
+            ModelBackend backend = modelBackends.forModel(model);
+            generation = bulkheads.run(model, userId, () -> {
+                sink.accept(newChunk(id, created, model, "assistant", "", null));
+                return backend.stream(model, request, promptTokens, onContent);
+            });
+            if (key != null && cacheMode.write()) {
+                generation = generation.thenApply(result -> {
+                    completionCache.put(key, result);
+                    return result;
+                });
             }
         }
-        return Math.max(total, 10);
+        return generation.thenApply(result -> {
+            sink.accept(newChunk(id, created, model, null, null, result.finishReason()));
+            int cacheHitTokens = prefixCache.match(userId, model, request.getMessages());
+            return finishStream(userId, request, result, cacheHitTokens, id, created, sink, reservation);
+        });
     }
     
-    private int generateRandomCompletionTokens() {
-        Random random = new Random();
-        return 50 + random.nextInt(200);
+    private ChatCompletionResponse.Usage finishStream(Long userId, ChatCompletionRequest request, Generation generation,
+                                                      int cacheHitTokens, String id, long created,
+                                                      Consumer<ChatCompletionChunk> sink,
+                                                      BalanceLedger.Reservation reservation) {
+        String model = generation.model();
+        ChatCompletionResponse.Usage usage = toUsage(generation, cacheHitTokens);
+        recordUsage(userId, model, usage, reservation);
+        
+        ChatCompletionRequest.StreamOptions options = request.getStreamOptions();
+        if (options != null && Boolean.TRUE.equals(options.getIncludeUsage())) {
+            ChatCompletionChunk usageChunk = new ChatCompletionChunk();
+            usageChunk.setId(id);
+            usageChunk.setCreated(created);
+            usageChunk.setModel(model);
+            usageChunk.setChoices(List.of());
+            usageChunk.setUsage(usage);
+            sink.accept(usageChunk);
+        }
+        return usage;
     }
     
-    private String generateMockResponse(ChatCompletionRequest request) {
-        if (request.getMessages() == null || request.getMessages().isEmpty()) {
-            return "Hello! How can I help you today?";
+    private CompletableFuture<Generation> generate(Long userId, ChatCompletionRequest request, CompletionCache.Mode cacheMode,
+                                                   int promptTokens) {
+        String model = resolveModel(request.getModel());
+        ModelBackend backend = modelBackends.forModel(model);
+        if (!isDeterministic(request)) {
+            return bulkheads.run(model, userId, () -> backend.complete(model, request, promptTokens));
         }
         
-        String lastMessage = "";
-        for (ChatCompletionRequest.Message msg : request.getMessages()) {
-            if ("user".equals(msg.getRole())) {
-                lastMessage = msg.getContent();
+        CompletionKey key = CompletionKey.of(model, request);
+        if (cacheMode.read()) {
+            Generation cached = completionCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
             }
         }
-        
-        if (lastMessage.toLowerCase().contains("hello") || lastMessage.toLowerCase().contains("hi")) {
-            return "Hello! I'm DeepSeek AI assistant. How can I help you today?";
-        } else if (lastMessage.toLowerCase().contains("code") || lastMessage.toLowerCase().contains("programming")) {
-            return "I'd be happy to help with coding! Here's a sample response for your programming question. In a real implementation, this would connect to the actual DeepSeek API.";
-        } else {
-            return "Thank you for your message! This is a simulated response from the DeepSeek API platform. In production, this would be connected to the actual DeepSeek AI models. Your question was: \"" + lastMessage + "\"";
-        }
+        return inFlight.executeAsync(key, () -> bulkheads.run(model, userId,
+                        () -> backend.complete(model, request, promptTokens))
+                .thenApply(generation -> {
+                    if (cacheMode.write()) {
+                        completionCache.put(key, generation);
+                    }
+                    return generation;
+                }));
+    }
+    
+    /**
+     * Upper bound on the tokens a request can use, for rate limiting before it runs: the prompt
+     * plus {@code max_tokens} when the client set one.
+     */
+    public int estimateTokens(ChatCompletionRequest request) {
+        int maxTokens = request.getMaxTokens() != null && request.getMaxTokens() > 0 ? request.getMaxTokens() : 0;
+        return countPromptTokens(request.getMessages()) + maxTokens;
     }
     
-    private void updateUsageStats(Long userId, int promptTokens, int completionTokens) {
-        UsageStats stats = usageStatsRepository.findByUserId(userId)
-                .orElseGet(() -> createDefaultUsageStats(userId));
+    static boolean isDeterministic(ChatCompletionRequest request) {
+        return request.getSeed() != null
+                || (request.getTemperature() != null && request.getTemperature() == 0.0);
+    }
+    
+    private ChatCompletionResponse.Usage toUsage(Generation generation, int cacheHitTokens) {
+        ChatCompletionResponse.Usage usage = new ChatCompletionResponse.Usage();
+        usage.setPromptTokens(generation.promptTokens());
+        usage.setCompletionTokens(generation.completionTokens());
+        usage.setTotalTokens(generation.totalTokens());
+        usage.setPromptCacheHitTokens(cacheHitTokens);
+        usage.setPromptCacheMissTokens(generation.promptTokens() - cacheHitTokens);
+        return usage;
+    }
+    
+    private void recordUsage(Long userId, String model, ChatCompletionResponse.Usage usage,
+                             BalanceLedger.Reservation reservation) {
+        long cost = pricingService.cost(model, usage);
+        usageAggregator.record(userId, usage.getPromptTokens(), usage.getPromptCacheHitTokens(),
+                usage.getCompletionTokens(), cost, 1);
+        reservation.settle(cost);
+    }
+    
+    /**
+     * Reserves what the request would cost if none of the prompt hit the cache and the completion
+     * ran to {@code max_tokens}.
+     */
+    private BalanceLedger.Reservation reserve(Long userId, ChatCompletionRequest request, int promptTokens) {
+        int completionTokens = request.getMaxTokens() != null && request.getMaxTokens() > 0
+                ? request.getMaxTokens() : DEFAULT_RESERVED_COMPLETION_TOKENS;
+        return balanceLedger.reserve(userId,
+                pricingService.maxCost(resolveModel(request.getModel()), 0, promptTokens, completionTokens));
+    }
+    
+    private ChatCompletionChunk newChunk(String id, long created, String model, String role, String content, String finishReason) {
+        ChatCompletionChunk.Choice.Delta delta = new ChatCompletionChunk.Choice.Delta();
+        delta.setRole(role);
+        delta.setContent(content);
         
-        stats.setTotalTokens(stats.getTotalTokens() + promptTokens + completionTokens);
-        stats.setPromptTokens(stats.getPromptTokens() + promptTokens);
-        stats.setCompletionTokens(stats.getCompletionTokens() + completionTokens);
-        stats.setRequestCount(stats.getRequestCount() + 1);
+        ChatCompletionChunk.Choice choice = new ChatCompletionChunk.Choice();
+        choice.setIndex(0);
+        choice.setDelta(delta);
+        choice.setFinishReason(finishReason);
         
-        usageStatsRepository.save(stats);
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId(id);
+        chunk.setCreated(created);
+        chunk.setModel(model);
+        chunk.setChoices(List.of(choice));
+        return chunk;
+    }
+    
+    private String resolveModel(String model) {
+        if (model == null || !AVAILABLE_MODELS.contains(model)) {
+            return "deepseek-chat";
+        }
+        return model;
+    }
+    
+    private String newCompletionId() {
+        return "chatcmpl-" + UUID.randomUUID().toString().substring(0, 24);
     }
     
-    private UsageStats createDefaultUsageStats(Long userId) {
-        UsageStats stats = new UsageStats();
-        stats.setUserId(userId);
-        stats.setTotalTokens(0L);
-        stats.setPromptTokens(0L);
-        stats.setCompletionTokens(0L);
-        stats.setRequestCount(0L);
-        return usageStatsRepository.save(stats);
+    private int countPromptTokens(List<ChatCompletionRequest.Message> messages) {
+        int total = REPLY_PRIMING_TOKENS;
+        if (messages == null) return total;
+        for (ChatCompletionRequest.Message msg : messages) {
+            total += MESSAGE_OVERHEAD_TOKENS + tokenCountCache.count(msg.getRole(), msg.getContent());
+        }
+        return total;
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.deepseek.apiplatform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Exact-match cache of deterministic completions. Entries are stored as serialized JSON and the
+ * cache is bounded by the total bytes of keys and values rather than by entry count; Caffeine's
+ * W-TinyLFU policy decides what to evict.
+ */
+@Component
+public class CompletionCache {
+    static final String CACHE_NAME = "completions";
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    private static final Logger log = LoggerFactory.getLogger(CompletionCache.class);
+    
+    private final ObjectMapper objectMapper;
+    private final Cache<CompletionKey, byte[]> cache;
+
+    public CompletionCache(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${completion-cache.maximum-size:256MB}") DataSize maximumSize,
+                           @Value("${completion-cache.ttl:1h}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher(CompletionCache::weigh)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.memory.estimated", this, CompletionCache::weightedSize)
+                .tag("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+    
+    public Generation get(CompletionKey key) {
+        byte[] value = cache.getIfPresent(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(value, Generation.class);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable completion cache entry", e);
+            cache.invalidate(key);
+            return null;
+        }
+    }
+    
+    public void put(CompletionKey key, Generation generation) {
+        try {
+            cache.put(key, objectMapper.writeValueAsBytes(generation));
+        } catch (IOException e) {
+            log.warn("Failed to serialize completion for caching", e);
+        }
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    void cleanUp() {
+        cache.cleanUp();
+    }
+    
+    public long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+    
+    static int weigh(CompletionKey key, byte[] value) {
+        long bytes = ENTRY_OVERHEAD_BYTES + value.length + 2L * key.model().length();
+        for (CompletionKey.MessageKey message : key.messages()) {
+            bytes += 2L * ((message.role() != null ? message.role().length() : 0)
+                    + (message.content() != null ? message.content().length() : 0));
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+    
+    public enum Mode {
+        DEFAULT(true, true),
+        REFRESH(false, true),
+        BYPASS(false, false);
+        
+        private final boolean read;
+        private final boolean write;
+        
+        Mode(boolean read, boolean write) {
+            this.read = read;
+            this.write = write;
+        }
+        
+        public boolean read() { return read; }
+        public boolean write() { return write; }
+        
+        public static Mode fromCacheControl(String cacheControl) {
+            if (cacheControl == null) {
+                return DEFAULT;
+            }
+            String value = cacheControl.toLowerCase();
+            if (value.contains("no-store")) {
+                return BYPASS;
+            }
+            if (value.contains("no-cache")) {
+                return REFRESH;
+            }
+            return DEFAULT;
+        }
+    }
+}
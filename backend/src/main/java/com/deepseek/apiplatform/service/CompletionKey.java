@@ -0,0 +1,29 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonical identity of a completion request: the resolved model, every message (role
+ * lower-cased, missing content treated as empty) and the sampling parameters. Equality compares
+ * the actual strings, so distinct prompts never share a key even if their hashes collide.
+ */
+public record CompletionKey(String model, List<MessageKey> messages, Double temperature, Integer maxTokens, Long seed) {
+    
+    public record MessageKey(String role, String content) {
+    }
+    
+    public static CompletionKey of(String model, ChatCompletionRequest request) {
+        List<MessageKey> messages = new ArrayList<>();
+        if (request.getMessages() != null) {
+            for (ChatCompletionRequest.Message message : request.getMessages()) {
+                String role = message.getRole() != null ? message.getRole().trim().toLowerCase() : null;
+                String content = message.getContent() != null ? message.getContent() : "";
+                messages.add(new MessageKey(role, content));
+            }
+        }
+        Double temperature = request.getTemperature() != null ? request.getTemperature() + 0.0 : null;
+        return new CompletionKey(model, List.copyOf(messages), temperature, request.getMaxTokens(), request.getSeed());
+    }
+}
@@ -0,0 +1,109 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.FileResponse;
+import com.deepseek.apiplatform.entity.StoredFile;
+import com.deepseek.apiplatform.repository.StoredFileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+public class FileStorageService {
+    public static final String PURPOSE_BATCH = "batch";
+    public static final String PURPOSE_BATCH_OUTPUT = "batch_output";
+    public static final String PURPOSE_BATCH_ERROR = "batch_error";
+    
+    private final StoredFileRepository storedFileRepository;
+    private final Path storageDir;
+
+    public FileStorageService(StoredFileRepository storedFileRepository,
+                              @Value("${files.storage-dir:./data/files}") String storageDir) {
+        this.storedFileRepository = storedFileRepository;
+        this.storageDir = Path.of(storageDir).toAbsolutePath();
+    }
+    
+    public FileResponse upload(Long userId, MultipartFile file, String purpose) {
+        if (!PURPOSE_BATCH.equals(purpose)) {
+            throw new RuntimeException("不支持的文件用途: " + purpose);
+        }
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("文件不能为空");
+        }
+        
+        Path target = newStoragePath();
+        try {
+            file.transferTo(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("文件保存失败", e);
+        }
+        
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : target.getFileName().toString();
+        return toFileResponse(register(userId, filename, purpose, target));
+    }
+    
+    public StoredFile register(Long userId, String filename, String purpose, Path path) {
+        StoredFile storedFile = new StoredFile();
+        storedFile.setUserId(userId);
+        storedFile.setFilename(filename);
+        storedFile.setPurpose(purpose);
+        storedFile.setStoragePath(path.toString());
+        try {
+            storedFile.setBytes(Files.size(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("文件保存失败", e);
+        }
+        return storedFileRepository.save(storedFile);
+    }
+    
+    public Path newStoragePath() {
+        try {
+            Files.createDirectories(storageDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法创建文件存储目录", e);
+        }
+        return storageDir.resolve(UUID.randomUUID() + ".jsonl");
+    }
+    
+    public StoredFile getFile(Long userId, Long fileId) {
+        return storedFileRepository.findByIdAndUserId(fileId, userId)
+                .orElseThrow(() -> new RuntimeException("文件不存在"));
+    }
+    
+    public FileResponse getFileResponse(Long userId, Long fileId) {
+        return toFileResponse(getFile(userId, fileId));
+    }
+    
+    public List<FileResponse> listFiles(Long userId) {
+        return storedFileRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+                .map(this::toFileResponse)
+                .collect(Collectors.toList());
+    }
+    
+    public Resource openContent(Long userId, Long fileId) {
+        return new FileSystemResource(resolve(getFile(userId, fileId)));
+    }
+    
+    public Path resolve(StoredFile storedFile) {
+        return Path.of(storedFile.getStoragePath());
+    }
+    
+    private FileResponse toFileResponse(StoredFile storedFile) {
+        return new FileResponse(
+            storedFile.getId(),
+            storedFile.getBytes(),
+            storedFile.getCreatedAt() != null ? storedFile.getCreatedAt().atZone(ZoneId.systemDefault()).toEpochSecond() : null,
+            storedFile.getFilename(),
+            storedFile.getPurpose()
+        );
+    }
+}
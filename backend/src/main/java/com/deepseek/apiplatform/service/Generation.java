@@ -0,0 +1,20 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.simulation.LatencySchedule;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One generated completion. {@code schedule} is when its tokens become available and is
+ * {@code null} when they are available immediately; it is not cached with the rest.
+ */
+public record Generation(String model, String content, int promptTokens, int completionTokens, String finishReason,
+                         @JsonIgnore LatencySchedule schedule) {
+    
+    public Generation(String model, String content, int promptTokens, int completionTokens) {
+        this(model, content, promptTokens, completionTokens, "stop", null);
+    }
+    
+    public int totalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
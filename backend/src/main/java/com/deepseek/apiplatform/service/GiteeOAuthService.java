@@ -1,5 +1,7 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.billing.Micros;
 import com.deepseek.apiplatform.config.OAuthConfig;
 import com.deepseek.apiplatform.dto.AuthResponse;
 import com.deepseek.apiplatform.dto.GiteeTokenResponse;
@@ -34,16 +36,19 @@ public class GiteeOAuthService {
     private final UserOAuthRepository userOAuthRepository;
     private final UserRepository userRepository;
     private final JwtUtils jwtUtils;
+    private final BalanceLedger balanceLedger;
     private final RestTemplate restTemplate;
 
     public GiteeOAuthService(OAuthConfig oAuthConfig, 
                             UserOAuthRepository userOAuthRepository,
                             UserRepository userRepository,
-                            JwtUtils jwtUtils) {
+                            JwtUtils jwtUtils,
+                            BalanceLedger balanceLedger) {
         this.oAuthConfig = oAuthConfig;
         this.userOAuthRepository = userOAuthRepository;
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
+        this.balanceLedger = balanceLedger;
         this.restTemplate = new RestTemplate();
     }
 
@@ -198,7 +203,7 @@ public class GiteeOAuthService {
         userResponse.setId(user.getId());
         userResponse.setEmail(user.getEmail());
         userResponse.setUsername(user.getUsername());
-        userResponse.setBalance(user.getBalance());
+        userResponse.setBalance(Micros.toYuan(balanceLedger.balance(user.getId())));
         userResponse.setAvatarUrl(user.getAvatarUrl());
         response.setUser(userResponse);
         
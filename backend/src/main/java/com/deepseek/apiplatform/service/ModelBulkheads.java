@@ -0,0 +1,159 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.concurrent.Bulkhead;
+import com.deepseek.apiplatform.config.BulkheadConfig;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One {@link Bulkhead} per model, so that a burst on one model queues and is shed on its own
+ * instead of taking capacity from the others. Within a model, queued completions are shared out
+ * between users by the weight of their tier. Rejections become {@link TooManyRequestsException}.
+ */
+@Component
+public class ModelBulkheads {
+    private static final int DEFAULT_MAX_CONCURRENT = 256;
+    private static final int DEFAULT_MAX_QUEUED = 512;
+    private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final BulkheadConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Map<String, Integer> tierWeights;
+    private final String defaultTier;
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public ModelBulkheads(BulkheadConfig config,
+                          MeterRegistry meterRegistry,
+                          @Qualifier("chatStreamExecutor") ExecutorService executor) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        BulkheadConfig.FairShare fairShare = config.getFairShare();
+        this.defaultTier = fairShare.getDefaultTier();
+        Map<String, Integer> weights = new HashMap<>(fairShare.getTiers());
+        weights.putIfAbsent(defaultTier, 1);
+        this.tierWeights = Map.copyOf(weights);
+    }
+
+    /**
+     * Runs {@code task} for {@code userId} within the bulkhead of {@code model}. Throws if the
+     * model's queue is full; the returned future fails if the task waits past the model's
+     * {@code max-wait} or is pushed out of the queue by a user with fewer completions waiting.
+     */
+    public <T> CompletableFuture<T> run(String model, Long userId, Supplier<CompletableFuture<T>> task) {
+        Tenant tenant = tenant(userId);
+        CompletableFuture<T> result;
+        try {
+            result = bulkhead(model).run(tenant, tierWeights.get(tenant.tier()), task);
+        } catch (Bulkhead.Rejected e) {
+            throw tooManyRequests(model, e);
+        }
+        return result.handle((value, error) -> {
+            if (error == null) {
+                return value;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof Bulkhead.Rejected rejected) {
+                throw tooManyRequests(model, rejected);
+            }
+            throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+        });
+    }
+
+    public Bulkhead bulkhead(String model) {
+        return bulkheads.computeIfAbsent(model, this::create);
+    }
+
+    private Tenant tenant(Long userId) {
+        String tier = userId != null ? config.getFairShare().getUsers().get(userId) : null;
+        return new Tenant(userId, tier != null && tierWeights.containsKey(tier) ? tier : defaultTier);
+    }
+
+    private Bulkhead create(String model) {
+        BulkheadConfig.Limits limits = config.getModels().getOrDefault(model, new BulkheadConfig.Limits());
+        BulkheadConfig.Limits defaults = config.getDefaults();
+        int maxConcurrent = firstNonNull(limits.getMaxConcurrent(), defaults.getMaxConcurrent(), DEFAULT_MAX_CONCURRENT);
+        int maxQueued = firstNonNull(limits.getMaxQueued(), defaults.getMaxQueued(), DEFAULT_MAX_QUEUED);
+        Duration maxWait = firstNonNull(limits.getMaxWait(), defaults.getMaxWait(), DEFAULT_MAX_WAIT);
+
+        Map<String, Timer> waits = new HashMap<>();
+        for (String tier : tierWeights.keySet()) {
+            waits.put(tier, Timer.builder("chat.bulkhead.wait")
+                    .description("Time completions waited for a slot in their model's bulkhead")
+                    .tags("model", model, "tier", tier)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+        Counter queueFull = rejectedCounter(model, "queue_full");
+        Counter timedOut = rejectedCounter(model, "timeout");
+        Bulkhead bulkhead = new Bulkhead(maxConcurrent, maxQueued, maxWait.toNanos(), new Bulkhead.Listener() {
+            @Override
+            public void admitted(Object flow, long waitedNanos) {
+                waits.get(((Tenant) flow).tier()).record(waitedNanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void rejected(Object flow, boolean timeout) {
+                (timeout ? timedOut : queueFull).increment();
+            }
+        }, executor);
+        Gauge.builder("chat.bulkhead.active", bulkhead, Bulkhead::active)
+                .tag("model", model)
+                .register(meterRegistry);
+        for (String tier : tierWeights.keySet()) {
+            Gauge.builder("chat.bulkhead.queued", bulkhead, b -> b.queued(flow -> ((Tenant) flow).tier().equals(tier)))
+                    .description("Completions waiting for a slot in their model's bulkhead")
+                    .tags("model", model, "tier", tier)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("chat.bulkhead.queued.users", bulkhead, Bulkhead::queuedFlows)
+                .description("Users with at least one completion waiting in the model's bulkhead")
+                .tag("model", model)
+                .register(meterRegistry);
+        return bulkhead;
+    }
+
+    private Counter rejectedCounter(String model, String reason) {
+        return Counter.builder("chat.bulkhead.rejected")
+                .tags("model", model, "reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static TooManyRequestsException tooManyRequests(String model, Bulkhead.Rejected rejected) {
+        long seconds = (rejected.getRetryAfterNanos() + 999_999_999L) / 1_000_000_000L;
+        return new TooManyRequestsException("模型 " + model + " 当前请求过多，请稍后重试",
+                "requests", "model_overloaded", Math.max(1, Math.min(seconds, MAX_RETRY_AFTER_SECONDS)));
+    }
+
+    /**
+     * The flow key of a user's completions in a bulkhead.
+     */
+    private record Tenant(Long userId, String tier) {
+    }
+
+    @SafeVarargs
+    private static <T> T firstNonNull(T... values) {
+        for (T value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
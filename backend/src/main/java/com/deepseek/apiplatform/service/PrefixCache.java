@@ -0,0 +1,132 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.tokenizer.TokenCountCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Simulates DeepSeek's context cache. Every message prefix a user sends is remembered as a SHA-256
+ * digest chained over the user, the model and each message up to that point, so a later request
+ * hits for as many leading messages as were already seen. Hits are billed at the cache-hit price,
+ * so the chain must not be collidable on purpose; the map keeps the first 128 bits of each link.
+ * Hits are reported in whole blocks of {@code prompt-cache.block-tokens}; prefixes expire after
+ * {@code prompt-cache.ttl} without use.
+ * <p>
+ * The index is weighed in bytes, like {@link CompletionCache}, and capped at
+ * {@code prompt-cache.maximum-size}. Every entry is a 128-bit key in a Caffeine node, measured at
+ * about {@value #ENTRY_BYTES} bytes of heap including the map table and frequency sketch. Eviction
+ * is Caffeine's W-TinyLFU rather than strict LRU on purpose: a long system prompt shared by many
+ * requests should survive a burst of one-off conversations, which LRU would let flush it out.
+ */
+@Component
+public class PrefixCache {
+    static final String CACHE_NAME = "promptPrefixes";
+    static final int ENTRY_BYTES = 128;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final TokenCountCache tokenCountCache;
+    private final Cache<Prefix, Boolean> cache;
+    private final int blockTokens;
+
+    public PrefixCache(TokenCountCache tokenCountCache,
+                       MeterRegistry meterRegistry,
+                       @Value("${prompt-cache.maximum-size:64MB}") DataSize maximumSize,
+                       @Value("${prompt-cache.ttl:1h}") Duration ttl,
+                       @Value("${prompt-cache.block-tokens:64}") int blockTokens) {
+        this.tokenCountCache = tokenCountCache;
+        this.blockTokens = Math.max(blockTokens, 1);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((Prefix prefix, Boolean present) -> ENTRY_BYTES)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.memory.estimated", this, PrefixCache::weightedSize)
+                .tag("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Returns the number of prompt tokens already cached for this user and model, then records
+     * every prefix of {@code messages} for later requests.
+     */
+    public int match(Long userId, String model, List<ChatCompletionRequest.Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return 0;
+        }
+        MessageDigest sha256 = SHA_256.get();
+        sha256.update(ByteBuffer.allocate(Long.BYTES).putLong(userId != null ? userId : 0L).array());
+        byte[] chain = sha256.digest(model != null ? model.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+        int cachedTokens = 0;
+        boolean matching = true;
+        for (ChatCompletionRequest.Message message : messages) {
+            String content = message.getContent() != null ? message.getContent() : "";
+            chain = link(sha256, chain, message.getRole(), content);
+            Prefix prefix = Prefix.of(chain);
+            if (matching && cache.getIfPresent(prefix) != null) {
+                cachedTokens += ChatService.MESSAGE_OVERHEAD_TOKENS + tokenCountCache.count(message.getRole(), content);
+            } else {
+                matching = false;
+                cache.put(prefix, Boolean.TRUE);
+            }
+        }
+        return cachedTokens / blockTokens * blockTokens;
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    void cleanUp() {
+        cache.cleanUp();
+    }
+    
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+    
+    public long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+    
+    record Prefix(long h0, long h1) {
+        static Prefix of(byte[] digest) {
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            return new Prefix(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    private static byte[] link(MessageDigest sha256, byte[] previous, String role, String content) {
+        byte[] roleBytes = role != null ? role.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        sha256.update(previous);
+        sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(roleBytes.length).array());
+        sha256.update(roleBytes);
+        return sha256.digest(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,189 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.billing.Micros;
+import com.deepseek.apiplatform.config.PricingConfig;
+import com.deepseek.apiplatform.dto.ChatCompletionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prices completions in micro-yuan. Prompt tokens served from the context cache are billed at the
+ * cache-hit rate, the remaining prompt tokens at the cache-miss rate, and inside the configured
+ * off-peak window each model's discount applies.
+ * <p>
+ * {@link PricingConfig} is compiled into a {@link RateTable} of integer rates, so pricing a
+ * request is a map lookup and a few multiplications on {@code long}s. A new table replaces the
+ * old one in a single write whenever the pricing file changes.
+ */
+@Service
+public class PricingService {
+    private static final Logger log = LoggerFactory.getLogger(PricingService.class);
+    private static final long TOKENS_PER_RATE = 1_000_000;
+
+    private final PricingConfig config;
+    private volatile RateTable table;
+    private long fileModifiedAt;
+
+    public PricingService(PricingConfig config) {
+        this.config = config;
+        this.table = RateTable.compile(config);
+        reloadIfChanged();
+    }
+
+    public long cost(String model, ChatCompletionResponse.Usage usage) {
+        return cost(model, usage.getPromptCacheHitTokens(), usage.getPromptCacheMissTokens(), usage.getCompletionTokens());
+    }
+
+    public long cost(String model, long promptCacheHitTokens, long promptCacheMissTokens, long completionTokens) {
+        return costAt(model, promptCacheHitTokens, promptCacheMissTokens, completionTokens, System.currentTimeMillis());
+    }
+
+    /**
+     * Cost in micro-yuan of a request that completes at {@code epochMillis}.
+     */
+    public long costAt(String model, long promptCacheHitTokens, long promptCacheMissTokens, long completionTokens,
+                       long epochMillis) {
+        RateTable table = this.table;
+        Rates rates = table.rates(model);
+        return table.isOffPeak(epochMillis)
+                ? rates.offPeak().cost(promptCacheHitTokens, promptCacheMissTokens, completionTokens)
+                : rates.regular().cost(promptCacheHitTokens, promptCacheMissTokens, completionTokens);
+    }
+
+    /**
+     * The highest cost the request can have whenever it completes, for reserving balance up front.
+     */
+    public long maxCost(String model, long promptCacheHitTokens, long promptCacheMissTokens, long completionTokens) {
+        Rates rates = table.rates(model);
+        return Math.max(rates.regular().cost(promptCacheHitTokens, promptCacheMissTokens, completionTokens),
+                rates.offPeak().cost(promptCacheHitTokens, promptCacheMissTokens, completionTokens));
+    }
+
+    /**
+     * Recompiles the table from {@code pricing.file} if it changed since the last load. A file
+     * that fails to parse leaves the current table in place.
+     */
+    @Scheduled(fixedDelayString = "${pricing.reload-interval-ms:10000}")
+    public synchronized void reloadIfChanged() {
+        if (config.getFile() == null || config.getFile().isBlank()) {
+            return;
+        }
+        Path path = Path.of(config.getFile());
+        try {
+            long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+            if (modifiedAt == fileModifiedAt) {
+                return;
+            }
+            PricingConfig loaded = new Binder(ConfigurationPropertySources.from(
+                    new YamlPropertySourceLoader().load(path.toString(), new FileSystemResource(path))))
+                    .bind("pricing", PricingConfig.class)
+                    .orElseThrow(() -> new IllegalArgumentException("缺少 pricing 配置"));
+            table = RateTable.compile(loaded);
+            fileModifiedAt = modifiedAt;
+            log.info("Loaded pricing for {} models from {}", loaded.getModels().size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load pricing from {}, keeping current prices", path, e);
+        }
+    }
+
+    /**
+     * Micro-yuan per million tokens, so that fractional micro-yuan per token stay exact.
+     */
+    record RateCard(long cacheHitInput, long cacheMissInput, long output) {
+        long cost(long promptCacheHitTokens, long promptCacheMissTokens, long completionTokens) {
+            long scaled = cacheHitInput * promptCacheHitTokens
+                    + cacheMissInput * promptCacheMissTokens
+                    + output * completionTokens;
+            return (scaled + TOKENS_PER_RATE / 2) / TOKENS_PER_RATE;
+        }
+
+        static RateCard of(PricingConfig.ModelRates rates, int discountPercent) {
+            BigDecimal factor = BigDecimal.valueOf(100 - discountPercent).movePointLeft(2);
+            return new RateCard(
+                    Micros.of(rates.getCacheHitInput().multiply(factor)),
+                    Micros.of(rates.getCacheMissInput().multiply(factor)),
+                    Micros.of(rates.getOutput().multiply(factor)));
+        }
+    }
+
+    record Rates(RateCard regular, RateCard offPeak) {}
+
+    static final class RateTable {
+        private static final int SECONDS_PER_DAY = 86_400;
+
+        private final Map<String, Rates> models;
+        private final Rates defaultRates;
+        private final ZoneId zone;
+        private final int fixedOffsetSeconds;
+        private final int offPeakStart;
+        private final int offPeakEnd;
+
+        private RateTable(Map<String, Rates> models, Rates defaultRates, ZoneId zone, int offPeakStart, int offPeakEnd) {
+            this.models = models;
+            this.defaultRates = defaultRates;
+            this.zone = zone;
+            this.fixedOffsetSeconds = zone != null && zone.getRules().isFixedOffset()
+                    ? zone.getRules().getOffset(Instant.EPOCH).getTotalSeconds() : Integer.MIN_VALUE;
+            this.offPeakStart = offPeakStart;
+            this.offPeakEnd = offPeakEnd;
+        }
+
+        static RateTable compile(PricingConfig config) {
+            if (config.getModels().isEmpty()) {
+                throw new IllegalArgumentException("pricing.models 不能为空");
+            }
+            Map<String, Rates> models = new HashMap<>();
+            config.getModels().forEach((model, rates) -> {
+                int discount = rates.getOffPeakDiscountPercent();
+                if (discount < 0 || discount > 100) {
+                    throw new IllegalArgumentException("模型 " + model + " 的错峰折扣必须在 0 到 100 之间");
+                }
+                RateCard regular = RateCard.of(rates, 0);
+                models.put(model, new Rates(regular, config.getOffPeak().isEnabled() ? RateCard.of(rates, discount) : regular));
+            });
+            Rates defaultRates = models.get(config.getDefaultModel());
+            if (defaultRates == null) {
+                throw new IllegalArgumentException("默认模型 " + config.getDefaultModel() + " 没有定价");
+            }
+            PricingConfig.OffPeak offPeak = config.getOffPeak();
+            if (!offPeak.isEnabled()) {
+                return new RateTable(Map.copyOf(models), defaultRates, null, 0, 0);
+            }
+            return new RateTable(Map.copyOf(models), defaultRates, ZoneId.of(offPeak.getZone()),
+                    LocalTime.parse(offPeak.getStart()).toSecondOfDay(), LocalTime.parse(offPeak.getEnd()).toSecondOfDay());
+        }
+
+        Rates rates(String model) {
+            Rates rates = model != null ? models.get(model) : null;
+            return rates != null ? rates : defaultRates;
+        }
+
+        boolean isOffPeak(long epochMillis) {
+            if (zone == null) {
+                return false;
+            }
+            long epochSecond = Math.floorDiv(epochMillis, 1000);
+            int offset = fixedOffsetSeconds != Integer.MIN_VALUE ? fixedOffsetSeconds
+                    : zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+            int secondOfDay = (int) Math.floorMod(epochSecond + offset, SECONDS_PER_DAY);
+            return offPeakStart <= offPeakEnd
+                    ? secondOfDay >= offPeakStart && secondOfDay < offPeakEnd
+                    : secondOfDay >= offPeakStart || secondOfDay < offPeakEnd;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.billing.Micros;
+import com.deepseek.apiplatform.entity.UsageStats;
+import com.deepseek.apiplatform.repository.UsageStatsRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Buffers usage per user in memory and adds it to {@code usage_stats} once per flush interval.
+ * A user's buffer is dropped once a flush finds it empty, so only users active since the last
+ * flush are held. A dropped buffer is marked retired first; a concurrent {@link #record} that
+ * finds its buffer retired moves what it added into a fresh one, so nothing recorded is lost.
+ */
+@Component
+public class UsageAggregator {
+    private static final Logger log = LoggerFactory.getLogger(UsageAggregator.class);
+    
+    private final UsageStatsRepository usageStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<Long, PendingUsage> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public UsageAggregator(UsageStatsRepository usageStatsRepository, PlatformTransactionManager transactionManager) {
+        this.usageStatsRepository = usageStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public void record(Long userId, long promptTokens, long completionTokens) {
+        record(userId, promptTokens, completionTokens, 1);
+    }
+    
+    public void record(Long userId, long promptTokens, long completionTokens, long requestCount) {
+        record(userId, promptTokens, 0, completionTokens, 0, requestCount);
+    }
+    
+    public void record(Long userId, long promptTokens, long promptCacheHitTokens, long completionTokens,
+                       long costMicros, long requestCount) {
+        Totals totals = new Totals(promptTokens, promptCacheHitTokens, completionTokens, costMicros, requestCount);
+        PendingUsage usage = pending.get(userId);
+        while (!totals.isEmpty()) {
+            if (usage == null || usage.retired) {
+                usage = pending.compute(userId, (id, current) -> current == null || current.retired ? new PendingUsage() : current);
+            }
+            usage.add(totals);
+            if (!usage.retired) {
+                return;
+            }
+            totals = usage.sumThenReset();
+        }
+    }
+    
+    public Totals pending(Long userId) {
+        PendingUsage usage = pending.get(userId);
+        if (usage == null) {
+            return Totals.EMPTY;
+        }
+        return new Totals(usage.promptTokens.sum(), usage.promptCacheHitTokens.sum(), usage.completionTokens.sum(),
+                usage.costMicros.sum(), usage.requestCount.sum());
+    }
+    
+    int trackedUsers() {
+        return pending.size();
+    }
+    
+    public <T> T readConsistently(Supplier<T> reader) {
+        flushLock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${usage.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.writeLock().lock();
+        try {
+            List<Delta> deltas = drain();
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> deltas.forEach(this::upsert));
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush usage for {} users, will retry", deltas.size(), e);
+                deltas.forEach(d -> record(d.userId(), d.totals().promptTokens(), d.totals().promptCacheHitTokens(),
+                        d.totals().completionTokens(), d.totals().costMicros(), d.totals().requestCount()));
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    private List<Delta> drain() {
+        List<Delta> deltas = new ArrayList<>();
+        for (Map.Entry<Long, PendingUsage> entry : pending.entrySet()) {
+            PendingUsage usage = entry.getValue();
+            Totals totals = usage.sumThenReset();
+            if (totals.isEmpty()) {
+                usage.retired = true;
+                pending.remove(entry.getKey(), usage);
+                totals = usage.sumThenReset();
+            }
+            if (!totals.isEmpty()) {
+                deltas.add(new Delta(entry.getKey(), totals));
+            }
+        }
+        return deltas;
+    }
+    
+    private void upsert(Delta delta) {
+        Totals totals = delta.totals();
+        int updated = usageStatsRepository.incrementUsage(
+            delta.userId(),
+            totals.promptTokens(),
+            totals.promptCacheHitTokens(),
+            totals.completionTokens(),
+            totals.cost(),
+            totals.requestCount(),
+            LocalDateTime.now()
+        );
+        if (updated == 0) {
+            UsageStats stats = new UsageStats();
+            stats.setUserId(delta.userId());
+            stats.setTotalTokens(totals.totalTokens());
+            stats.setPromptTokens(totals.promptTokens());
+            stats.setPromptCacheHitTokens(totals.promptCacheHitTokens());
+            stats.setCompletionTokens(totals.completionTokens());
+            stats.setTotalCost(totals.cost());
+            stats.setRequestCount(totals.requestCount());
+            usageStatsRepository.save(stats);
+        }
+    }
+    
+    public record Totals(long promptTokens, long promptCacheHitTokens, long completionTokens, long costMicros,
+                         long requestCount) {
+        static final Totals EMPTY = new Totals(0, 0, 0, 0, 0);
+        
+        public long totalTokens() {
+            return promptTokens + completionTokens;
+        }
+        
+        public BigDecimal cost() {
+            return Micros.toYuan(costMicros);
+        }
+        
+        boolean isEmpty() {
+            return promptTokens == 0 && completionTokens == 0 && requestCount == 0 && costMicros == 0;
+        }
+    }
+    
+    private record Delta(Long userId, Totals totals) {}
+    
+    private static class PendingUsage {
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder promptCacheHitTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder costMicros = new LongAdder();
+        private volatile boolean retired;
+
+        void add(Totals totals) {
+            promptTokens.add(totals.promptTokens());
+            promptCacheHitTokens.add(totals.promptCacheHitTokens());
+            completionTokens.add(totals.completionTokens());
+            requestCount.add(totals.requestCount());
+            costMicros.add(totals.costMicros());
+        }
+
+        Totals sumThenReset() {
+            return new Totals(promptTokens.sumThenReset(), promptCacheHitTokens.sumThenReset(),
+                    completionTokens.sumThenReset(), costMicros.sumThenReset(), requestCount.sumThenReset());
+        }
+    }
+}
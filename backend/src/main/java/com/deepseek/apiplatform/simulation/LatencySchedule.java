@@ -0,0 +1,17 @@
+package com.deepseek.apiplatform.simulation;
+
+/**
+ * When each completion token of one generation becomes available, as {@link System#nanoTime()}
+ * offsets from {@code startNanos}. The first offset is the time to first token.
+ */
+public record LatencySchedule(long startNanos, long[] tokenOffsetsNanos) {
+
+    public long tokenDueNanos(int tokenIndex) {
+        int last = tokenOffsetsNanos.length - 1;
+        return startNanos + tokenOffsetsNanos[Math.max(0, Math.min(tokenIndex, last))];
+    }
+
+    public long completionDueNanos() {
+        return tokenDueNanos(tokenOffsetsNanos.length - 1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.deepseek.apiplatform.simulation;
+
+import com.deepseek.apiplatform.config.SimulationConfig;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Compiled workload profile of one model: log-normal time to first token, log-normal jitter
+ * around a mean inter-token latency, and an optional log-normal completion length.
+ */
+public final class WorkloadModel {
+    private final long ttftMedianNanos;
+    private final double ttftSigma;
+    private final double interTokenNanos;
+    private final double interTokenSigma;
+    private final int completionTokensMedian;
+    private final double completionTokensSigma;
+    private final int maxCompletionTokens;
+
+    WorkloadModel(SimulationConfig.Profile profile, SimulationConfig.Profile defaults) {
+        Duration ttft = pick(profile.getTimeToFirstToken(), defaults.getTimeToFirstToken(), Duration.ZERO);
+        Duration interToken = pick(profile.getInterTokenLatency(), defaults.getInterTokenLatency(), null);
+        double tokensPerSecond = pick(profile.getTokensPerSecond(), defaults.getTokensPerSecond(), 0.0);
+        this.ttftMedianNanos = ttft.toNanos();
+        this.ttftSigma = pick(profile.getTimeToFirstTokenSigma(), defaults.getTimeToFirstTokenSigma(), 0.0);
+        if (interToken != null) {
+            this.interTokenNanos = interToken.toNanos();
+        } else {
+            this.interTokenNanos = tokensPerSecond > 0 ? 1e9 / tokensPerSecond : 0;
+        }
+        this.interTokenSigma = pick(profile.getInterTokenSigma(), defaults.getInterTokenSigma(), 0.0);
+        this.completionTokensMedian = pick(profile.getCompletionTokens(), defaults.getCompletionTokens(), 0);
+        this.completionTokensSigma = pick(profile.getCompletionTokensSigma(), defaults.getCompletionTokensSigma(), 0.0);
+        this.maxCompletionTokens = pick(profile.getMaxCompletionTokens(), defaults.getMaxCompletionTokens(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Samples a completion length, or returns 0 when the model has no length distribution and
+     * the canned reply should be used as is.
+     */
+    public int sampleCompletionTokens(SplittableRandom random) {
+        if (completionTokensMedian <= 0) {
+            return 0;
+        }
+        long tokens = Math.round(logNormal(random, completionTokensMedian, completionTokensSigma));
+        return (int) Math.max(1, Math.min(tokens, maxCompletionTokens));
+    }
+
+    public LatencySchedule schedule(SplittableRandom random, long startNanos, int completionTokens) {
+        long[] offsets = new long[Math.max(completionTokens, 1)];
+        long elapsed = Math.round(logNormal(random, ttftMedianNanos, ttftSigma));
+        offsets[0] = elapsed;
+        for (int i = 1; i < offsets.length; i++) {
+            elapsed += Math.round(logNormal(random, interTokenNanos, interTokenSigma));
+            offsets[i] = elapsed;
+        }
+        return new LatencySchedule(startNanos, offsets);
+    }
+
+    public boolean hasLatency() {
+        return ttftMedianNanos > 0 || interTokenNanos > 0;
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma) {
+        if (median <= 0 || sigma <= 0) {
+            return Math.max(median, 0);
+        }
+        return median * Math.exp(sigma * random.nextGaussian());
+    }
+
+    private static <T> T pick(T value, T fallback, T defaultValue) {
+        if (value != null) {
+            return value;
+        }
+        return fallback != null ? fallback : defaultValue;
+    }
+}
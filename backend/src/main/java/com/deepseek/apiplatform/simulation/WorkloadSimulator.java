@@ -0,0 +1,238 @@
+package com.deepseek.apiplatform.simulation;
+
+import com.deepseek.apiplatform.config.SimulationConfig;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Shapes simulated completions after the configured per-model workload: how many tokens they
+ * produce and when each token becomes available. Waiting is done by scheduling the next step on a
+ * small timer pool and running it on {@code chatStreamExecutor}, so a generation that is waiting
+ * for its next token holds no thread.
+ */
+@Component
+public class WorkloadSimulator {
+    private static final String[] FILLER_WORDS = {
+        " the", " model", " data", " request", " result", " value", " system", " time", " and", " of",
+        " to", " in", " is", " that", " for", " with", " this", " can", " be", " on"
+    };
+
+    private final boolean enabled;
+    private final Long seed;
+    private final WorkloadModel defaultModel;
+    private final Map<String, WorkloadModel> models = new HashMap<>();
+    private final BpeTokenizer tokenizer;
+    private final int[] fillerTokens = new int[FILLER_WORDS.length];
+    private final String singleTokenFiller;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public WorkloadSimulator(SimulationConfig config,
+                             BpeTokenizer tokenizer,
+                             @Qualifier("chatStreamExecutor") ExecutorService executor,
+                             MeterRegistry meterRegistry) {
+        this.enabled = config.isEnabled();
+        this.seed = config.getSeed();
+        this.defaultModel = new WorkloadModel(new SimulationConfig.Profile(), config.getDefaults());
+        config.getModels().forEach((model, profile) -> models.put(model, new WorkloadModel(profile, config.getDefaults())));
+        this.tokenizer = tokenizer;
+        String single = ".";
+        for (int i = 0; i < FILLER_WORDS.length; i++) {
+            fillerTokens[i] = tokenizer.countTokens(FILLER_WORDS[i]);
+            if (fillerTokens[i] == 1 && ".".equals(single)) {
+                single = FILLER_WORDS[i];
+            }
+        }
+        this.singleTokenFiller = single;
+        this.executor = executor;
+        this.timer = Executors.newScheduledThreadPool(Math.max(config.getSchedulerThreads(), 1), runnable -> {
+            Thread thread = new Thread(runnable, "workload-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("chat.simulation.waiting", waiting, AtomicInteger::get)
+                .description("Simulated generations waiting for their next token")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Starts a simulated generation for {@code model}, or returns {@code null} when simulation is
+     * disabled. A request seed makes the sampled workload reproducible on its own; otherwise
+     * {@code simulation.seed} makes a run of requests reproducible in arrival order.
+     */
+    public Workload begin(String model, Long requestSeed) {
+        if (!enabled) {
+            return null;
+        }
+        SplittableRandom random;
+        if (requestSeed != null) {
+            random = new SplittableRandom(mix(seed != null ? seed : 0L, requestSeed));
+        } else if (seed != null) {
+            random = new SplittableRandom(mix(seed, sequence.getAndIncrement()));
+        } else {
+            random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        }
+        return new Workload(models.getOrDefault(model, defaultModel), random, System.nanoTime());
+    }
+    
+    /**
+     * Returns a future completed with {@code value} once {@code dueNanos} has passed.
+     */
+    public <T> CompletableFuture<T> deliverAt(long dueNanos, T value) {
+        long delay = dueNanos - System.nanoTime();
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        schedule(() -> future.complete(value), delay, future);
+        return future;
+    }
+    
+    /**
+     * Hands {@code items} to {@code sink} in order, each no earlier than its due time. Items that
+     * are already due are emitted on the calling thread.
+     */
+    public <T> CompletableFuture<Void> emit(List<T> items, long[] dueNanos, Consumer<T> sink) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        new Emission<>(items, dueNanos, sink, done).run();
+        return done;
+    }
+    
+    public int waiting() {
+        return waiting.get();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+    
+    private void schedule(Runnable task, long delayNanos, CompletableFuture<?> future) {
+        waiting.incrementAndGet();
+        try {
+            timer.schedule(() -> {
+                waiting.decrementAndGet();
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            future.completeExceptionally(e);
+        }
+    }
+    
+    private static long mix(long a, long b) {
+        long x = a * 0x9E3779B97F4A7C15L + b;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+    
+    public final class Workload {
+        private final WorkloadModel model;
+        private final SplittableRandom random;
+        private final long startNanos;
+        
+        private Workload(WorkloadModel model, SplittableRandom random, long startNanos) {
+            this.model = model;
+            this.random = random;
+            this.startNanos = startNanos;
+        }
+        
+        public int sampleCompletionTokens() {
+            return model.sampleCompletionTokens(random);
+        }
+        
+        /**
+         * Returns {@code reply} cut or padded with filler words to about {@code targetTokens}.
+         */
+        public String compose(String reply, int targetTokens) {
+            StringBuilder text = new StringBuilder();
+            int tokens = 0;
+            for (int i = 0; i <= reply.length(); i++) {
+                if (i == reply.length() || reply.charAt(i) == ' ') {
+                    int count = tokenizer.countTokens(reply.substring(0, i));
+                    if (count > targetTokens) {
+                        break;
+                    }
+                    tokens = count;
+                    text.setLength(0);
+                    text.append(reply, 0, i);
+                }
+            }
+            while (tokens < targetTokens) {
+                int word = random.nextInt(FILLER_WORDS.length);
+                if (tokens + fillerTokens[word] > targetTokens) {
+                    text.append(singleTokenFiller);
+                    tokens++;
+                } else {
+                    text.append(FILLER_WORDS[word]);
+                    tokens += fillerTokens[word];
+                }
+            }
+            return text.toString();
+        }
+        
+        public LatencySchedule schedule(int completionTokens) {
+            if (!model.hasLatency()) {
+                return null;
+            }
+            return model.schedule(random, startNanos, completionTokens);
+        }
+    }
+    
+    private final class Emission<T> implements Runnable {
+        private final List<T> items;
+        private final long[] dueNanos;
+        private final Consumer<T> sink;
+        private final CompletableFuture<Void> done;
+        private int next;
+        
+        Emission(List<T> items, long[] dueNanos, Consumer<T> sink, CompletableFuture<Void> done) {
+            this.items = items;
+            this.dueNanos = dueNanos;
+            this.sink = sink;
+            this.done = done;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (next < items.size()) {
+                    long delay = dueNanos != null ? dueNanos[next] - System.nanoTime() : 0;
+                    if (delay > 0) {
+                        schedule(this, delay, done);
+                        return;
+                    }
+                    sink.accept(items.get(next++));
+                }
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.deepseek.apiplatform.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level BPE tokenizer backed by a rank-ordered merges file. Each line of the file is
+ * {@code left right}, where ids 0-255 are raw bytes and the merge on line {@code i} produces
+ * id {@code 256 + i}. Text is first split into chunks (letter runs with an optional leading
+ * space, single digits, CJK runs, punctuation runs, whitespace, newlines), each chunk is
+ * UTF-8 encoded and merged independently, lowest rank first.
+ * <p>
+ * The bundled merges were trained locally by {@code tools/tokenizer/bpe.py}, not taken from
+ * DeepSeek, so counts only approximate the official tokenizer, most of all for Chinese text.
+ * <p>
+ * Instances are immutable and thread-safe; the working buffers are kept per thread.
+ */
+public final class BpeTokenizer {
+    private static final int NEWLINE = 0;
+    private static final int SPACE = 1;
+    private static final int LETTER = 2;
+    private static final int DIGIT = 3;
+    private static final int PUNCT = 4;
+    private static final int CJK = 5;
+    private static final int OTHER = 6;
+
+    private static final int MAX_RUN = 64;
+    private static final int NO_RANK = Integer.MAX_VALUE;
+    private static final long EMPTY = -1L;
+
+    private final long[] pairKeys;
+    private final int[] pairRanks;
+    private final int mask;
+    private final int vocabSize;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    private BpeTokenizer(int[] lefts, int[] rights, int mergeCount) {
+        int capacity = Integer.highestOneBit(Math.max(mergeCount, 8) * 2 - 1) << 1;
+        this.pairKeys = new long[capacity];
+        this.pairRanks = new int[capacity];
+        this.mask = capacity - 1;
+        this.vocabSize = 256 + mergeCount;
+        Arrays.fill(pairKeys, EMPTY);
+        for (int rank = 0; rank < mergeCount; rank++) {
+            long key = pairKey(lefts[rank], rights[rank]);
+            int slot = slot(key);
+            while (pairKeys[slot] != EMPTY && pairKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (pairKeys[slot] == EMPTY) {
+                pairKeys[slot] = key;
+                pairRanks[slot] = rank;
+            }
+        }
+    }
+
+    public static BpeTokenizer load(InputStream in) throws IOException {
+        int[] lefts = new int[1024];
+        int[] rights = new int[1024];
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int sep = line.indexOf(' ');
+            if (sep < 0) {
+                throw new IOException("Invalid merge on line " + (count + 1) + ": " + line);
+            }
+            int left = Integer.parseInt(line.substring(0, sep).trim());
+            int right = Integer.parseInt(line.substring(sep + 1).trim());
+            if (left < 0 || right < 0 || left >= 256 + count || right >= 256 + count) {
+                throw new IOException("Merge references an unknown token: " + line);
+            }
+            if (count == lefts.length) {
+                lefts = Arrays.copyOf(lefts, count * 2);
+                rights = Arrays.copyOf(rights, count * 2);
+            }
+            lefts[count] = left;
+            rights[count] = right;
+            count++;
+        }
+        return new BpeTokenizer(lefts, rights, count);
+    }
+
+    public int vocabSize() {
+        return vocabSize;
+    }
+
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return process(text, workspaces.get(), false);
+    }
+
+    public int[] encode(String text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        Workspace ws = workspaces.get();
+        int count = process(text, ws, true);
+        return Arrays.copyOf(ws.output, count);
+    }
+
+    private int process(String text, Workspace ws, boolean collect) {
+        ws.outputSize = 0;
+        int total = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int cp = text.codePointAt(i);
+            int cat = category(cp);
+            int end;
+            if (cat == NEWLINE || cat == DIGIT) {
+                end = i + 1;
+            } else if (cat == SPACE) {
+                end = runEnd(text, i, SPACE);
+                int last = end - 1;
+                if (end < n && text.charAt(last) == ' ') {
+                    int nextCat = category(text.codePointAt(end));
+                    if (nextCat == LETTER || nextCat == PUNCT || nextCat == OTHER) {
+                        if (last > i) {
+                            total += mergeChunk(text, i, last, ws, collect);
+                        }
+                        i = last;
+                        end = runEnd(text, end, nextCat);
+                    }
+                }
+            } else {
+                end = runEnd(text, i, cat);
+            }
+            total += mergeChunk(text, i, end, ws, collect);
+            i = end;
+        }
+        return total;
+    }
+
+    private static int runEnd(String text, int start, int cat) {
+        int n = text.length();
+        int k = start + Character.charCount(text.codePointAt(start));
+        int runLength = 1;
+        while (k < n && runLength < MAX_RUN) {
+            int cp = text.codePointAt(k);
+            if (category(cp) != cat) {
+                break;
+            }
+            k += Character.charCount(cp);
+            runLength++;
+        }
+        return k;
+    }
+
+    private int mergeChunk(String text, int start, int end, Workspace ws, boolean collect) {
+        int length = utf8(text, start, end, ws);
+        int[] symbols = ws.symbols;
+        int[] ranks = ws.ranks;
+        for (int i = 0; i < length - 1; i++) {
+            ranks[i] = rank(symbols[i], symbols[i + 1]);
+        }
+        while (length > 1) {
+            int best = NO_RANK;
+            int at = -1;
+            for (int i = 0; i < length - 1; i++) {
+                if (ranks[i] < best) {
+                    best = ranks[i];
+                    at = i;
+                }
+            }
+            if (at < 0) {
+                break;
+            }
+            symbols[at] = 256 + best;
+            System.arraycopy(symbols, at + 2, symbols, at + 1, length - at - 2);
+            if (length - at - 3 > 0) {
+                System.arraycopy(ranks, at + 2, ranks, at + 1, length - at - 3);
+            }
+            length--;
+            if (at > 0) {
+                ranks[at - 1] = rank(symbols[at - 1], symbols[at]);
+            }
+            if (at < length - 1) {
+                ranks[at] = rank(symbols[at], symbols[at + 1]);
+            }
+        }
+        if (collect) {
+            ws.append(symbols, length);
+        }
+        return length;
+    }
+
+    private static int utf8(String text, int start, int end, Workspace ws) {
+        ws.ensureCapacity((end - start) * 3);
+        int[] out = ws.symbols;
+        int p = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i++);
+            if (c < 0x80) {
+                out[p++] = c;
+            } else if (c < 0x800) {
+                out[p++] = 0xC0 | (c >> 6);
+                out[p++] = 0x80 | (c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(text.charAt(i))) {
+                int cp = Character.toCodePoint(c, text.charAt(i++));
+                out[p++] = 0xF0 | (cp >> 18);
+                out[p++] = 0x80 | ((cp >> 12) & 0x3F);
+                out[p++] = 0x80 | ((cp >> 6) & 0x3F);
+                out[p++] = 0x80 | (cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                out[p++] = '?';
+            } else {
+                out[p++] = 0xE0 | (c >> 12);
+                out[p++] = 0x80 | ((c >> 6) & 0x3F);
+                out[p++] = 0x80 | (c & 0x3F);
+            }
+        }
+        return p;
+    }
+
+    private int rank(int left, int right) {
+        long key = pairKey(left, right);
+        int slot = slot(key);
+        while (true) {
+            long k = pairKeys[slot];
+            if (k == key) {
+                return pairRanks[slot];
+            }
+            if (k == EMPTY) {
+                return NO_RANK;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static long pairKey(int left, int right) {
+        return ((long) left << 32) | (right & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    static int category(int cp) {
+        if (cp == '\n' || cp == '\r') return NEWLINE;
+        if (cp == ' ' || cp == '\t' || cp == 0x0B || cp == '\f') return SPACE;
+        if (cp >= '0' && cp <= '9') return DIGIT;
+        if ((cp >= 'A' && cp <= 'Z') || (cp >= 'a' && cp <= 'z')) return LETTER;
+        if (cp < 0x80) return cp > 0x20 && cp != 0x7F ? PUNCT : OTHER;
+        if ((cp >= 0xC0 && cp <= 0x24F && cp != 0xD7 && cp != 0xF7) || (cp >= 0x370 && cp <= 0x52F)
+                || (cp >= 0xFF21 && cp <= 0xFF3A) || (cp >= 0xFF41 && cp <= 0xFF5A)) {
+            return LETTER;
+        }
+        if ((cp >= 0x4E00 && cp <= 0x9FFF) || (cp >= 0x3400 && cp <= 0x4DBF) || (cp >= 0x3040 && cp <= 0x30FF)
+                || (cp >= 0xAC00 && cp <= 0xD7AF) || (cp >= 0xF900 && cp <= 0xFAFF)) {
+            return CJK;
+        }
+        if ((cp >= 0xA1 && cp <= 0xBF) || cp == 0xD7 || cp == 0xF7 || (cp >= 0x2010 && cp <= 0x2027)
+                || (cp >= 0x3000 && cp <= 0x303F) || (cp >= 0xFF01 && cp <= 0xFF20)
+                || (cp >= 0xFF3B && cp <= 0xFF40) || (cp >= 0xFF5B && cp <= 0xFF65)) {
+            return PUNCT;
+        }
+        return OTHER;
+    }
+
+    private static final class Workspace {
+        int[] symbols = new int[256];
+        int[] ranks = new int[256];
+        int[] output = new int[1024];
+        int outputSize;
+
+        void ensureCapacity(int size) {
+            if (symbols.length < size) {
+                symbols = new int[size];
+                ranks = new int[size];
+            }
+        }
+
+        void append(int[] ids, int length) {
+            if (outputSize + length > output.length) {
+                output = Arrays.copyOf(output, Math.max(output.length * 2, outputSize + length));
+            }
+            System.arraycopy(ids, 0, output, outputSize, length);
+            outputSize += length;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.deepseek.apiplatform.tokenizer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Per-message token counts keyed by a SHA-256 digest of role and content, so that a multi-turn
+ * conversation only tokenizes the turns that were not seen before. The counts feed billing and
+ * TPM limits, so a hit must mean the same message: a 64-bit hash could be collided on purpose,
+ * 256 bits cannot, and the cache still holds 32 bytes per message instead of its content.
+ */
+@Component
+public class TokenCountCache {
+    static final String CACHE_NAME = "tokenCounts";
+    static final long ENTRY_BYTES = 128;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final BpeTokenizer tokenizer;
+    private final Cache<MessageKey, Integer> cache;
+
+    public TokenCountCache(BpeTokenizer tokenizer,
+                           MeterRegistry meterRegistry,
+                           @Value("${tokenizer.count-cache.maximum-size:200000}") long maximumSize) {
+        this.tokenizer = tokenizer;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.memory.estimated", cache, c -> c.estimatedSize() * ENTRY_BYTES)
+                .tag("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+    
+    public int count(String role, String content) {
+        if (content == null || content.isEmpty()) {
+            return 0;
+        }
+        return cache.get(key(role, content), k -> tokenizer.countTokens(content));
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+    
+    record MessageKey(long h0, long h1, long h2, long h3) {}
+
+    static MessageKey key(String role, String content) {
+        MessageDigest sha256 = SHA_256.get();
+        byte[] roleBytes = role != null ? role.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(roleBytes.length).array());
+        sha256.update(roleBytes);
+        ByteBuffer digest = ByteBuffer.wrap(sha256.digest(content.getBytes(StandardCharsets.UTF_8)));
+        return new MessageKey(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+    }
+}
@@ -0,0 +1,378 @@
+package com.deepseek.apiplatform.backend;
+
+import com.deepseek.apiplatform.config.ModelBackendConfig;
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.exception.UpstreamException;
+import com.deepseek.apiplatform.service.Generation;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiCompatibleBackendTest {
+
+    private static BpeTokenizer tokenizer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private HttpClient client;
+
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = OpenAiCompatibleBackendTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.start();
+        client = HttpClient.newBuilder().executor(executor).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdownNow();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("非流式请求转发到上游并解析响应")
+    void complete_ForwardsRequestAndParsesResponse() {
+        AtomicReference<JsonNode> received = new AtomicReference<>();
+        AtomicReference<String> authorization = new AtomicReference<>();
+        server.createContext("/v1/chat/completions", exchange -> {
+            received.set(objectMapper.readTree(exchange.getRequestBody()));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, 200, """
+                {"id":"x","choices":[{"index":0,"message":{"role":"assistant","content":"Hi there"},
+                "finish_reason":"stop"}],"usage":{"prompt_tokens":99,"completion_tokens":7,"total_tokens":106}}
+                """);
+        });
+        OpenAiCompatibleBackend backend = newBackend(upstream());
+
+        ChatCompletionRequest request = request("Hello");
+        request.setMaxTokens(32);
+        Generation generation = backend.complete("deepseek-chat", request, 12).join();
+
+        assertEquals("deepseek-chat", generation.model());
+        assertEquals("Hi there", generation.content());
+        assertEquals(12, generation.promptTokens());
+        assertEquals(7, generation.completionTokens());
+        assertEquals("stop", generation.finishReason());
+        assertEquals("upstream-chat", received.get().get("model").asText());
+        assertEquals("Hello", received.get().get("messages").get(0).get("content").asText());
+        assertEquals(32, received.get().get("max_tokens").asInt());
+        assertFalse(received.get().get("stream").asBoolean());
+        assertEquals("Bearer secret", authorization.get());
+    }
+
+    @Test
+    @DisplayName("流式响应逐条转发，不等待上游结束")
+    void stream_RelaysEachDeltaAsItArrives() throws Exception {
+        CountDownLatch firstRelayed = new CountDownLatch(1);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                write(out, "data: {\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}]}\n\n");
+                write(out, "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hello\"}}]}\n\n");
+                if (!firstRelayed.await(5, TimeUnit.SECONDS)) {
+                    return;
+                }
+                write(out, "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\" world\"}}]}\n\n");
+                write(out, "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"length\"}]}\n\n");
+                write(out, "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":2}}\n\n");
+                write(out, "data: [DONE]\n\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        OpenAiCompatibleBackend backend = newBackend(upstream());
+
+        List<String> pieces = new CopyOnWriteArrayList<>();
+        Generation generation = backend.stream("deepseek-chat", request("Hello"), 12, piece -> {
+            pieces.add(piece);
+            firstRelayed.countDown();
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("Hello", " world"), pieces);
+        assertEquals("Hello world", generation.content());
+        assertEquals("length", generation.finishReason());
+        assertEquals(2, generation.completionTokens());
+        assertEquals(12, generation.promptTokens());
+    }
+
+    @Test
+    @DisplayName("上游限流时返回 429，其他错误返回 502")
+    void complete_TranslatesUpstreamErrors() {
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 500, "{\"error\":{\"message\":\"nope\"}}");
+        });
+        OpenAiCompatibleBackend backend = newBackend(upstream());
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> backend.complete("deepseek-chat", request("Hello"), 1).join());
+        UpstreamException upstream = assertInstanceOf(UpstreamException.class, error.getCause());
+        assertEquals(HttpStatus.BAD_GATEWAY, upstream.getStatus());
+
+        server.removeContext("/v1/chat/completions");
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 429, "{\"error\":{\"message\":\"slow down\"}}");
+        });
+        error = assertThrows(CompletionException.class,
+                () -> backend.stream("deepseek-chat", request("Hello"), 1, piece -> { }).join());
+        upstream = assertInstanceOf(UpstreamException.class, error.getCause());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, upstream.getStatus());
+    }
+
+    @Test
+    @DisplayName("并发请求数不超过上游配置的上限")
+    void complete_LimitsConcurrentRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch arrived = new CountDownLatch(2);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            arrived.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"ok\"},\"finish_reason\":\"stop\"}]}");
+        });
+        ModelBackendConfig.Upstream config = upstream();
+        config.setMaxConcurrentRequests(2);
+        OpenAiCompatibleBackend backend = newBackend(config);
+
+        List<CompletableFuture<Generation>> calls = List.of(
+                backend.complete("deepseek-chat", request("a"), 1),
+                backend.complete("deepseek-chat", request("b"), 1),
+                backend.complete("deepseek-chat", request("c"), 1));
+        assertTrue(arrived.await(5, TimeUnit.SECONDS));
+        assertEquals(2, backend.replicas().get(0).permits().inUse());
+        assertEquals(1, backend.replicas().get(0).permits().queued());
+
+        release.countDown();
+        for (CompletableFuture<Generation> call : calls) {
+            Generation generation = call.get(10, TimeUnit.SECONDS);
+            assertEquals("ok", generation.content());
+            assertEquals(tokenizer.countTokens("ok"), generation.completionTokens());
+        }
+        assertEquals(0, backend.replicas().get(0).permits().inUse());
+    }
+
+    @Test
+    @DisplayName("副本响应过慢时向另一个副本发送对冲请求")
+    void complete_HedgesSlowReplica() throws Exception {
+        AtomicBoolean slow = new AtomicBoolean();
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/a/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (slow.get()) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"a\"},\"finish_reason\":\"stop\"}]}");
+        });
+        server.createContext("/b/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"b\"},\"finish_reason\":\"stop\"}]}");
+        });
+        ModelBackendConfig.Upstream config = replicated("a", "b");
+        config.getHedge().setEnabled(true);
+        config.getHedge().setMinDelay(Duration.ofMillis(1));
+        config.getHedge().setMaxRatio(1.0);
+        OpenAiCompatibleBackend backend = newBackend(config);
+
+        try {
+            for (int i = 0; i < 30; i++) {
+                backend.complete("deepseek-chat", request("warm up"), 1).get(5, TimeUnit.SECONDS);
+            }
+            slow.set(true);
+            long hedgesBefore = backend.hedges();
+
+            Generation generation = backend.complete("deepseek-chat", request("Hello"), 1).get(5, TimeUnit.SECONDS);
+
+            assertEquals("b", generation.content());
+            assertEquals(hedgesBefore + 1, backend.hedges());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("副本出错时改投另一个副本，连续出错的副本被摘除")
+    void complete_FailsOverAndEjectsFailingReplica() throws Exception {
+        AtomicInteger failing = new AtomicInteger();
+        server.createContext("/a/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            failing.incrementAndGet();
+            respond(exchange, 503, "{\"error\":{\"message\":\"overloaded\"}}");
+        });
+        server.createContext("/b/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"b\"},\"finish_reason\":\"stop\"}]}");
+        });
+        ModelBackendConfig.Upstream config = replicated("a", "b");
+        config.getEjection().setConsecutiveFailures(1);
+        OpenAiCompatibleBackend backend = newBackend(config);
+
+        for (int i = 0; i < 6 || failing.get() == 0 && i < 100; i++) {
+            Generation generation = backend.complete("deepseek-chat", request("Hello"), 1).get(5, TimeUnit.SECONDS);
+            assertEquals("b", generation.content());
+        }
+
+        Replica a = backend.replicas().get(0);
+        assertEquals(1, a.ejections());
+        assertEquals(1, failing.get());
+        assertFalse(a.isAvailable(System.nanoTime()));
+    }
+
+    @Test
+    @DisplayName("出错的副本在达到摘除阈值前就不再被选中")
+    void complete_AvoidsFailingReplicaBeforeEjection() throws Exception {
+        AtomicInteger failing = new AtomicInteger();
+        server.createContext("/a/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            failing.incrementAndGet();
+            respond(exchange, 503, "{\"error\":{\"message\":\"overloaded\"}}");
+        });
+        server.createContext("/b/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"b\"},\"finish_reason\":\"stop\"}]}");
+        });
+        OpenAiCompatibleBackend backend = newBackend(replicated("a", "b"));
+
+        for (int i = 0; i < 6; i++) {
+            Generation generation = backend.complete("deepseek-chat", request("Hello"), 1).get(5, TimeUnit.SECONDS);
+            assertEquals("b", generation.content());
+        }
+
+        Replica a = backend.replicas().get(0);
+        assertTrue(failing.get() <= 1);
+        assertEquals(0, a.ejections());
+        assertTrue(a.isAvailable(System.nanoTime()));
+    }
+
+    @Test
+    @DisplayName("2xx 但响应无法解析时计为副本失败，不重置失败计数")
+    void complete_CountsUnparseableResponseAsReplicaFailure() throws Exception {
+        AtomicInteger garbled = new AtomicInteger();
+        server.createContext("/a/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            garbled.incrementAndGet();
+            respond(exchange, 200, "<html>upstream proxy error</html>");
+        });
+        server.createContext("/b/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"b\"},\"finish_reason\":\"stop\"}]}");
+        });
+        ModelBackendConfig.Upstream config = replicated("a", "b");
+        config.getEjection().setConsecutiveFailures(1);
+        OpenAiCompatibleBackend backend = newBackend(config);
+
+        for (int i = 0; i < 6 || garbled.get() == 0 && i < 100; i++) {
+            Generation generation = backend.complete("deepseek-chat", request("Hello"), 1).get(5, TimeUnit.SECONDS);
+            assertEquals("b", generation.content());
+        }
+
+        Replica a = backend.replicas().get(0);
+        assertEquals(1, garbled.get());
+        assertEquals(1, a.ejections());
+        assertFalse(a.isAvailable(System.nanoTime()));
+    }
+
+    private OpenAiCompatibleBackend newBackend(ModelBackendConfig.Upstream config) {
+        return new OpenAiCompatibleBackend("test", config, client, objectMapper, tokenizer);
+    }
+
+    private ModelBackendConfig.Upstream upstream() {
+        ModelBackendConfig.Upstream config = new ModelBackendConfig.Upstream();
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        config.setApiKey("secret");
+        config.setModels(Map.of("deepseek-chat", "upstream-chat"));
+        return config;
+    }
+
+    private ModelBackendConfig.Upstream replicated(String... paths) {
+        ModelBackendConfig.Upstream config = new ModelBackendConfig.Upstream();
+        for (String path : paths) {
+            config.getReplicas().add("http://127.0.0.1:" + server.getAddress().getPort() + "/" + path);
+        }
+        config.setModels(Map.of("deepseek-chat", "upstream-chat"));
+        return config;
+    }
+
+    private static ChatCompletionRequest request(String content) {
+        ChatCompletionRequest.Message message = new ChatCompletionRequest.Message();
+        message.setRole("user");
+        message.setContent(content);
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setMessages(List.of(message));
+        return request;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void write(OutputStream out, String event) throws IOException {
+        out.write(event.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
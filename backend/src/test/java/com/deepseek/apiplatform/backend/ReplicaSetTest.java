@@ -0,0 +1,172 @@
+package com.deepseek.apiplatform.backend;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaSetTest {
+
+    private static final long EJECTION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final long MAX_EJECTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final long INITIAL_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long FAILURE_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @Test
+    @DisplayName("优先选择未完成请求更少的副本")
+    void choose_PrefersFewerOutstandingRequests() {
+        Replica a = replica("a");
+        Replica b = replica("b");
+        a.onLatency(10_000_000);
+        b.onLatency(10_000_000);
+        a.begin();
+        a.begin();
+        ReplicaSet set = new ReplicaSet(List.of(a, b));
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(b, set.choose());
+        }
+    }
+
+    @Test
+    @DisplayName("相同负载下优先选择延迟更低的副本")
+    void choose_PrefersLowerLatency() {
+        Replica a = replica("a");
+        Replica b = replica("b");
+        a.onLatency(50_000_000);
+        b.onLatency(5_000_000);
+        ReplicaSet set = new ReplicaSet(List.of(a, b));
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(b, set.choose());
+        }
+    }
+
+    @Test
+    @DisplayName("没有延迟样本的副本按其他副本的延迟中位数评分")
+    void choose_ScoresUnsampledReplicaAtMedianLatency() {
+        Replica fast = replica("fast");
+        Replica medium = replica("medium");
+        Replica slow = replica("slow");
+        Replica fresh = replica("fresh");
+        ReplicaSet set = new ReplicaSet(List.of(fast, medium, slow, fresh));
+
+        assertTrue(Double.isNaN(set.unsampledLatencyNanos()));
+        assertEquals(INITIAL_LATENCY_NANOS, fresh.score(set.unsampledLatencyNanos()));
+
+        fast.onLatency(10_000_000);
+        medium.onLatency(30_000_000);
+        slow.onLatency(50_000_000);
+
+        assertEquals(30_000_000, set.unsampledLatencyNanos());
+        assertTrue(fresh.score(set.unsampledLatencyNanos()) > fast.score(set.unsampledLatencyNanos()));
+        assertTrue(fresh.score(set.unsampledLatencyNanos()) < slow.score(set.unsampledLatencyNanos()));
+
+        fresh.onLatency(2_000_000);
+        assertEquals(2_000_000, fresh.latencyEwmaNanos());
+        assertEquals(20_000_000, set.unsampledLatencyNanos());
+    }
+
+    @Test
+    @DisplayName("新副本与已有副本延迟相当时也能分到流量")
+    void choose_ExploresUnsampledReplica() {
+        Replica sampled = replica("sampled");
+        Replica fresh = replica("fresh");
+        sampled.onLatency(10_000_000);
+        ReplicaSet set = new ReplicaSet(List.of(sampled, fresh));
+
+        boolean freshChosen = false;
+        for (int i = 0; i < 100 && !freshChosen; i++) {
+            freshChosen = set.choose() == fresh;
+        }
+        assertTrue(freshChosen);
+    }
+
+    @Test
+    @DisplayName("失败的副本在达到摘除阈值前就输掉比较")
+    void choose_PenalizesFailuresBeforeEjection() {
+        Replica failing = replica("failing");
+        Replica healthy = replica("healthy");
+        failing.onLatency(10_000_000);
+        healthy.onLatency(10_000_000);
+        healthy.begin();
+        healthy.begin();
+        ReplicaSet set = new ReplicaSet(List.of(failing, healthy));
+
+        failing.onFailure(System.nanoTime(), 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+
+        assertTrue(failing.isAvailable(System.nanoTime()));
+        for (int i = 0; i < 20; i++) {
+            assertSame(healthy, set.choose());
+        }
+    }
+
+    @Test
+    @DisplayName("从未成功的副本也不会因为没有样本而胜出")
+    void choose_UnsampledFailingReplicaLoses() {
+        Replica failing = replica("failing");
+        Replica healthy = replica("healthy");
+        healthy.onLatency(500_000_000);
+        ReplicaSet set = new ReplicaSet(List.of(failing, healthy));
+
+        failing.onFailure(System.nanoTime(), 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+
+        assertEquals(FAILURE_LATENCY_NANOS, failing.latencyEwmaNanos());
+        for (int i = 0; i < 20; i++) {
+            assertSame(healthy, set.choose());
+        }
+    }
+
+    @Test
+    @DisplayName("连续失败的副本被摘除，到期后恢复，再次失败时摘除时间加倍")
+    void onFailure_EjectsAndReadmits() {
+        Replica a = replica("a");
+        Replica b = replica("b");
+        ReplicaSet set = new ReplicaSet(List.of(a, b));
+        long now = System.nanoTime();
+
+        a.onFailure(now, 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+        a.onFailure(now, 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+        assertTrue(a.isAvailable(now));
+        a.onFailure(now, 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+        assertFalse(a.isAvailable(now));
+        assertEquals(1, a.ejections());
+        for (int i = 0; i < 20; i++) {
+            assertSame(b, set.choose());
+        }
+        assertNull(set.chooseOther(b));
+
+        long later = now + EJECTION_NANOS;
+        assertTrue(a.isAvailable(later));
+        a.onFailure(later, 3, EJECTION_NANOS, MAX_EJECTION_NANOS);
+        assertFalse(a.isAvailable(later + EJECTION_NANOS));
+        assertTrue(a.isAvailable(later + 2 * EJECTION_NANOS));
+
+        a.onSuccess();
+        assertTrue(a.isAvailable(now));
+    }
+
+    @Test
+    @DisplayName("所有副本都被摘除时仍然返回一个副本")
+    void choose_FallsBackWhenAllEjected() {
+        Replica a = replica("a");
+        long now = System.nanoTime();
+        a.onFailure(now, 1, EJECTION_NANOS, MAX_EJECTION_NANOS);
+        ReplicaSet set = new ReplicaSet(List.of(a));
+
+        assertSame(a, set.choose());
+        assertNull(set.chooseOther(a));
+    }
+
+    private static Replica replica(String name) {
+        return new Replica(URI.create("http://" + name + "/v1/chat/completions"), 8,
+                INITIAL_LATENCY_NANOS, FAILURE_LATENCY_NANOS);
+    }
+}
@@ -0,0 +1,126 @@
+package com.deepseek.apiplatform.benchmark;
+
+import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.security.ApiKeyIndex;
+import com.deepseek.apiplatform.security.KeyDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * API key lookup by plaintext string, by SHA-256 digest, through a map of JPA entities keyed by
+ * digest (what the entity cache held) and through {@link ApiKeyIndex}, including hashing the
+ * presented key. Heap per indexed key is printed when the index is built; with ten million
+ * entities the heap is nearly full, so the {@code entity} lookup time is mostly garbage collection.
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ApiKeyIndexBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ApiKeyIndexBenchmark {
+    private static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int PROBES = 1 << 16;
+
+    @Param({"10000000"})
+    public int keys;
+
+    @Param({"plaintext", "digest", "entity", "compact"})
+    public String index;
+
+    private Map<String, Long> plaintextIndex;
+    private Map<KeyDigest, Long> digestIndex;
+    private Map<KeyDigest, ApiKey> entityIndex;
+    private ApiKeyIndex compactIndex;
+    private String[] probes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        long before = usedHeap();
+        switch (index) {
+            case "plaintext" -> {
+                plaintextIndex = new HashMap<>(keys * 2);
+                for (int i = 0; i < keys; i++) {
+                    plaintextIndex.put(key(i), (long) i);
+                }
+            }
+            case "digest" -> {
+                digestIndex = new HashMap<>(keys * 2);
+                for (int i = 0; i < keys; i++) {
+                    digestIndex.put(KeyDigest.of(key(i)), (long) i);
+                }
+            }
+            case "entity" -> {
+                entityIndex = new HashMap<>(keys * 2);
+                for (int i = 0; i < keys; i++) {
+                    KeyDigest digest = KeyDigest.of(key(i));
+                    entityIndex.put(digest, entity(i, digest));
+                }
+            }
+            default -> {
+                compactIndex = new ApiKeyIndex(mock(ApiKeyRepository.class), new SimpleMeterRegistry(), 1);
+                for (int i = 0; i < keys; i++) {
+                    compactIndex.put(KeyDigest.of(key(i)), i, i % 100_000, true);
+                }
+            }
+        }
+        System.out.printf("%n%s index: %.1f bytes/key%n", index, (double) (usedHeap() - before) / keys);
+
+        SplittableRandom random = new SplittableRandom(42);
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = key(random.nextInt(keys));
+        }
+    }
+
+    @Benchmark
+    public Object lookup() {
+        String key = probes[next++ & (PROBES - 1)];
+        if (plaintextIndex != null) {
+            return plaintextIndex.get(key);
+        }
+        KeyDigest digest = KeyDigest.of(key);
+        if (digestIndex != null) {
+            return digestIndex.get(digest);
+        }
+        return entityIndex != null ? entityIndex.get(digest) : compactIndex.get(digest);
+    }
+
+    private static ApiKey entity(int i, KeyDigest digest) {
+        ApiKey apiKey = new ApiKey();
+        apiKey.setId((long) i);
+        apiKey.setUserId((long) (i % 100_000));
+        apiKey.setName("key-" + i);
+        apiKey.setKeyDigest(digest.toBytes());
+        apiKey.setKeyPrefix(key(i).substring(0, 7));
+        apiKey.setStatus(ApiKey.KeyStatus.ACTIVE);
+        apiKey.setCreatedAt(LocalDateTime.now());
+        return apiKey;
+    }
+
+    private static String key(int i) {
+        SplittableRandom random = new SplittableRandom(i);
+        StringBuilder sb = new StringBuilder("sk-");
+        for (int j = 0; j < 32; j++) {
+            sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return sb.toString();
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,93 @@
+package com.deepseek.apiplatform.benchmark;
+
+import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.repository.UserRepository;
+import com.deepseek.apiplatform.security.ApiKeyAuthenticationFilter;
+import com.deepseek.apiplatform.security.ApiKeyIndex;
+import com.deepseek.apiplatform.security.JwtAuthenticationFilter;
+import com.deepseek.apiplatform.security.JwtUtils;
+import com.deepseek.apiplatform.security.KeyDigest;
+import com.deepseek.apiplatform.security.TokenVersionCache;
+import com.deepseek.apiplatform.service.ApiKeyLastUsedTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServlet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Authentication filter cost per request. {@code shared} runs both filters the way the single
+ * global chain did, {@code scoped} runs only the filter of the chain matching the path.
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=AuthFilterBenchmark</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthFilterBenchmark {
+    private static final String API_KEY = "sk-0123456789abcdef0123456789abcdef";
+
+    @Param({"v1", "api"})
+    public String path;
+
+    @Param({"shared", "scoped"})
+    public String chain;
+
+    private Filter[] filters;
+    private String uri;
+    private String authorization;
+    private final HttpServlet servlet = new HttpServlet() {};
+
+    @Setup
+    public void setup() {
+        ApiKeyRepository apiKeyRepository = mock(ApiKeyRepository.class);
+        User user = new User();
+        user.setId(1L);
+        user.setTokenVersion(0);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ApiKeyIndex apiKeyIndex = new ApiKeyIndex(apiKeyRepository, registry, 1);
+        apiKeyIndex.put(KeyDigest.of(API_KEY), 1, 1, true);
+        JwtUtils jwtUtils = new JwtUtils("benchmark-secret-key-that-is-at-least-256-bits-long!", 86_400_000);
+        ApiKeyAuthenticationFilter apiKeyFilter = new ApiKeyAuthenticationFilter(apiKeyIndex,
+                new ApiKeyLastUsedTracker(apiKeyRepository, mock(PlatformTransactionManager.class)));
+        JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(jwtUtils,
+                new TokenVersionCache(userRepository, registry, 1_000, Duration.ofMinutes(10)));
+
+        boolean v1 = path.equals("v1");
+        uri = v1 ? "/v1/chat/completions" : "/api/auth/me";
+        authorization = "Bearer " + (v1 ? API_KEY : jwtUtils.generateToken(1L, "bench@example.com", 0));
+        if (chain.equals("shared")) {
+            filters = new Filter[] {apiKeyFilter, jwtFilter};
+        } else {
+            filters = new Filter[] {v1 ? apiKeyFilter : jwtFilter};
+        }
+    }
+
+    @Benchmark
+    public Object authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.addHeader("Authorization", authorization);
+        new MockFilterChain(servlet, filters).doFilter(request, new MockHttpServletResponse());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
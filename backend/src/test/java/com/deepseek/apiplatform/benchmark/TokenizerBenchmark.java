@@ -0,0 +1,70 @@
+package com.deepseek.apiplatform.benchmark;
+
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizer throughput. The {@code tokens} aux counter is reported as tokens/sec.
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TokenizerBenchmark</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+    private static final String CJK =
+        "人工智能是计算机科学的一个重要分支，它研究如何让机器具备感知、推理、学习和决策的能力。"
+        + "近年来，大规模语言模型取得了显著进展，它们能够理解自然语言、回答问题、编写代码、翻译文本以及进行多轮对话。";
+    private static final String ASCII =
+        "Licensed under the Apache License, Version 2.0 (the \"License\"); you may not use this file "
+        + "except in compliance with the License. for (int i = 0; i < n; i++) { total += values[i]; }\n";
+    private static final String MIXED =
+        "请用 Java 写一个线程安全的 LRU 缓存，容量为 1024。DeepSeek 开放平台兼容 OpenAI 的接口格式，"
+        + "只需修改 base_url 即可。价格：¥12.50 / 1M tokens（缓存命中 ¥0.10）\n";
+
+    @Param({"mixed", "cjk", "ascii"})
+    public String input;
+
+    private BpeTokenizer tokenizer;
+    private String text;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = TokenizerBenchmark.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+        String paragraph = switch (input) {
+            case "cjk" -> CJK;
+            case "ascii" -> ASCII;
+            default -> MIXED;
+        };
+        text = paragraph.repeat(16);
+    }
+
+    @Benchmark
+    public int countTokens(Counters counters) {
+        int tokens = tokenizer.countTokens(text);
+        counters.tokens += tokens;
+        return tokens;
+    }
+
+    @Benchmark
+    public void encode(Counters counters, Blackhole bh) {
+        int[] ids = tokenizer.encode(text);
+        counters.tokens += ids.length;
+        bh.consume(ids);
+    }
+}
@@ -0,0 +1,248 @@
+package com.deepseek.apiplatform.billing;
+
+import com.deepseek.apiplatform.entity.BalanceSnapshot;
+import com.deepseek.apiplatform.entity.BillingRecord;
+import com.deepseek.apiplatform.entity.LedgerEntry;
+import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.exception.PaymentRequiredException;
+import com.deepseek.apiplatform.repository.BalanceSnapshotRepository;
+import com.deepseek.apiplatform.repository.BillingRecordRepository;
+import com.deepseek.apiplatform.repository.LedgerEntryRepository;
+import com.deepseek.apiplatform.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceLedgerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private BillingRecordRepository billingRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new BalanceLedger(userRepository, ledgerEntryRepository, balanceSnapshotRepository,
+                billingRecordRepository, transactionManager, true, Duration.ofMinutes(1));
+    }
+
+    private void givenBalance(Long userId, String yuan) {
+        User user = new User();
+        user.setId(userId);
+        user.setBalance(new BigDecimal(yuan));
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    @DisplayName("余额不足以覆盖预留金额时返回 402 且不扣减余额")
+    void reserve_RejectsWhenBalanceShort() {
+        givenBalance(1L, "0.001");
+
+        PaymentRequiredException e = assertThrows(PaymentRequiredException.class, () -> ledger.reserve(1L, 1_001));
+        assertEquals("insufficient_balance", e.getCode());
+        assertEquals(1_000, ledger.balance(1L));
+        assertNotNull(ledger.reserve(1L, 1_000));
+    }
+
+    @Test
+    @DisplayName("结算按实际费用扣款并退回剩余预留，释放则全部退回")
+    void settle_ChargesActualAndReturnsRest() {
+        givenBalance(1L, "1");
+
+        BalanceLedger.Reservation settled = ledger.reserve(1L, 400_000);
+        BalanceLedger.Reservation released = ledger.reserve(1L, 600_000);
+        assertThrows(PaymentRequiredException.class, () -> ledger.reserve(1L, 1));
+
+        settled.settle(150_000);
+        settled.settle(150_000);
+        released.release();
+        released.settle(100);
+
+        assertEquals(850_000, ledger.balance(1L));
+        assertNotNull(ledger.reserve(1L, 850_000));
+    }
+
+    @Test
+    @DisplayName("并发预留不会超出余额")
+    void reserve_ConcurrentReservationsNeverOverdraw() throws Exception {
+        givenBalance(1L, "0.001");
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                try {
+                    ledger.reserve(1L, 30);
+                    admitted.incrementAndGet();
+                } catch (PaymentRequiredException ignored) {
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(33, admitted.get());
+        assertEquals(1_000, ledger.balance(1L));
+    }
+
+    @Test
+    @DisplayName("加载一个用户的余额时不阻塞其他用户")
+    void balance_LoadDoesNotBlockOtherUsers() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        User slow = new User();
+        slow.setBalance(BigDecimal.ONE);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(slow);
+        });
+        givenBalance(17L, "2");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> ledger.balance(1L));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            assertEquals(2_000_000, executor.submit(() -> ledger.balance(17L)).get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertEquals(1_000_000, first.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("定期批量持久化：每个用户一笔借贷平衡的账本交易和一条消费记录")
+    @SuppressWarnings("unchecked")
+    void flush_AppendsOneTransactionAndRecordPerUser() {
+        givenBalance(1L, "1");
+        ledger.reserve(1L, 300_000).settle(200_000);
+        ledger.reserve(1L, 300_000).settle(50_000);
+
+        ledger.flush();
+
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).appendAll(entries.capture());
+        LedgerEntry debit = entries.getValue().get(0);
+        LedgerEntry credit = entries.getValue().get(1);
+        assertEquals(2, entries.getValue().size());
+        assertEquals(LedgerEntry.Account.USER_BALANCE, debit.getAccount());
+        assertEquals(-250_000, debit.getAmountMicros());
+        assertEquals(LedgerEntry.Account.USAGE_REVENUE, credit.getAccount());
+        assertEquals(250_000, credit.getAmountMicros());
+        assertEquals(debit.getTxId(), credit.getTxId());
+        ArgumentCaptor<List<BillingRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(billingRecordRepository).saveAll(records.capture());
+        BillingRecord record = records.getValue().get(0);
+        assertEquals(BillingRecord.RecordType.USAGE, record.getType());
+        assertEquals(new BigDecimal("0.250000"), record.getAmount());
+        assertEquals(new BigDecimal("0.750000"), record.getBalance());
+
+        ledger.flush();
+        verify(ledgerEntryRepository, times(1)).appendAll(anyList());
+    }
+
+    @Test
+    @DisplayName("持久化失败时保留待写入的扣费，下次重试")
+    void flush_RetriesAfterFailure() {
+        givenBalance(1L, "1");
+        ledger.reserve(1L, 100_000).settle(100_000);
+        when(billingRecordRepository.saveAll(anyList()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(List.of());
+
+        ledger.flush();
+        ledger.flush();
+
+        verify(ledgerEntryRepository, times(2)).appendAll(anyList());
+        verify(billingRecordRepository, times(2)).saveAll(anyList());
+        assertEquals(900_000, ledger.balance(1L));
+    }
+
+    @Test
+    @DisplayName("余额从最近的快照加上之后的账本分录计算")
+    void balance_LoadsSnapshotPlusTail() {
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setUserId(1L);
+        snapshot.setBalanceMicros(500_000);
+        snapshot.setLastEntryId(10);
+        when(balanceSnapshotRepository.findById(1L)).thenReturn(Optional.of(snapshot));
+        when(ledgerEntryRepository.sumBalanceBetween(1L, 10, Long.MAX_VALUE)).thenReturn(-100_000L);
+
+        assertEquals(400_000, ledger.balance(1L));
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("充值写入借贷平衡的账本交易")
+    @SuppressWarnings("unchecked")
+    void credit_AppendsPaymentTransaction() {
+        givenBalance(1L, "0");
+
+        ledger.credit(1L, 2_000_000, "账户充值 - 支付宝");
+
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).appendAll(entries.capture());
+        assertEquals(LedgerEntry.Account.PAYMENTS, entries.getValue().get(0).getAccount());
+        assertEquals(-2_000_000, entries.getValue().get(0).getAmountMicros());
+        assertEquals(LedgerEntry.Account.USER_BALANCE, entries.getValue().get(1).getAccount());
+        assertEquals(2_000_000, entries.getValue().get(1).getAmountMicros());
+        assertEquals(2_000_000, ledger.balance(1L));
+    }
+
+    @Test
+    @DisplayName("快照累加上次快照之后、延迟窗口之前的分录")
+    void snapshot_FoldsEntriesOlderThanLag() {
+        givenBalance(1L, "1");
+        ledger.reserve(1L, 300_000).settle(250_000);
+        ledger.flush();
+        when(ledgerEntryRepository.findMaxIdCreatedBefore(any(LocalDateTime.class))).thenReturn(42L);
+        when(ledgerEntryRepository.sumBalanceBetween(1L, 0, 42)).thenReturn(-250_000L);
+
+        ledger.snapshot();
+
+        ArgumentCaptor<BalanceSnapshot> snapshot = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(balanceSnapshotRepository).save(snapshot.capture());
+        assertEquals(750_000, snapshot.getValue().getBalanceMicros());
+        assertEquals(42, snapshot.getValue().getLastEntryId());
+
+        ledger.snapshot();
+        verify(balanceSnapshotRepository, times(1)).save(any());
+    }
+}
@@ -0,0 +1,195 @@
+package com.deepseek.apiplatform.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    private final Bulkhead.Listener listener = new Bulkhead.Listener() {
+        @Override
+        public void admitted(Object flow, long waitedNanos) {
+            admitted.incrementAndGet();
+        }
+
+        @Override
+        public void rejected(Object flow, boolean timedOut) {
+            rejected.incrementAndGet();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("超出并发上限的任务排队，前面的任务完成后按顺序执行")
+    void run_QueuesBeyondMaxConcurrent() {
+        Bulkhead bulkhead = new Bulkhead(1, 2, TimeUnit.SECONDS.toNanos(10), listener, executor);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+
+        CompletableFuture<String> a = bulkhead.run(() -> first);
+        CompletableFuture<String> b = bulkhead.run(() -> second);
+        CompletableFuture<String> c = bulkhead.run(() -> CompletableFuture.completedFuture("c"));
+        assertEquals(1, bulkhead.active());
+        assertEquals(2, bulkhead.queued());
+        assertFalse(c.isDone());
+
+        first.complete("a");
+        assertEquals("a", a.join());
+        assertEquals(1, bulkhead.queued());
+        second.complete("b");
+        assertEquals("b", b.join());
+        assertEquals("c", c.join());
+        assertEquals(0, bulkhead.active());
+        assertEquals(3, admitted.get());
+    }
+
+    @Test
+    @DisplayName("排队已满时立即拒绝")
+    void run_RejectsWhenQueueFull() {
+        Bulkhead bulkhead = new Bulkhead(1, 1, TimeUnit.SECONDS.toNanos(10), listener, executor);
+        bulkhead.run(CompletableFuture::new);
+        bulkhead.run(CompletableFuture::new);
+
+        Bulkhead.Rejected e = assertThrows(Bulkhead.Rejected.class,
+                () -> bulkhead.run(() -> CompletableFuture.completedFuture("x")));
+        assertFalse(e.isTimedOut());
+        assertEquals(1, rejected.get());
+        assertEquals(1, bulkhead.queued());
+    }
+
+    @Test
+    @DisplayName("排队超过等待时限的任务被拒绝且不再执行")
+    void run_RejectsAfterMaxWait() {
+        Bulkhead bulkhead = new Bulkhead(1, 1, TimeUnit.MILLISECONDS.toNanos(50), listener, executor);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        AtomicInteger ran = new AtomicInteger();
+        bulkhead.run(() -> blocker);
+
+        CompletableFuture<String> waiting = bulkhead.run(() -> {
+            ran.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, waiting::join);
+        assertTrue(assertInstanceOf(Bulkhead.Rejected.class, e.getCause()).isTimedOut());
+        assertEquals(0, bulkhead.queued());
+
+        blocker.complete("done");
+        assertEquals(0, ran.get());
+        assertEquals(0, bulkhead.active());
+    }
+
+    @Test
+    @DisplayName("任务抛出异常时释放并发名额")
+    void run_ReleasesOnFailure() {
+        Bulkhead bulkhead = new Bulkhead(1, 0, TimeUnit.SECONDS.toNanos(10), listener, executor);
+
+        CompletableFuture<String> failed = bulkhead.run(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, bulkhead.active());
+        assertEquals("ok", bulkhead.run(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    @DisplayName("空出的名额按权重轮流分给各租户，而不是按到达顺序")
+    void run_SharesSlotsBetweenFlowsByWeight() {
+        Bulkhead bulkhead = new Bulkhead(1, 10, TimeUnit.SECONDS.toNanos(10), listener, executor);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        bulkhead.run("busy", 1, () -> blocker);
+        List<String> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            bulkhead.run("busy", 1, () -> {
+                order.add("busy");
+                return CompletableFuture.completedFuture("busy");
+            });
+        }
+        CompletableFuture<String> last = null;
+        for (int i = 0; i < 2; i++) {
+            last = bulkhead.run("vip", 2, () -> {
+                order.add("vip");
+                return CompletableFuture.completedFuture("vip");
+            });
+        }
+        assertEquals(2, bulkhead.queuedFlows());
+
+        blocker.complete("done");
+        assertEquals("vip", last.join());
+        while (bulkhead.active() > 0) {
+            Thread.onSpinWait();
+        }
+        assertEquals(List.of("busy", "vip", "vip", "busy", "busy", "busy"), order);
+    }
+
+    @Test
+    @DisplayName("排队已满时挤出等待最多的租户的最新任务")
+    void run_PushesOutLongestFlowWhenQueueFull() {
+        Bulkhead bulkhead = new Bulkhead(1, 2, TimeUnit.SECONDS.toNanos(10), listener, executor);
+        bulkhead.run("busy", 1, CompletableFuture::new);
+        CompletableFuture<String> older = bulkhead.run("busy", 1, CompletableFuture::new);
+        CompletableFuture<String> newer = bulkhead.run("busy", 1, CompletableFuture::new);
+
+        assertThrows(Bulkhead.Rejected.class, () -> bulkhead.run("busy", 1, CompletableFuture::new));
+        CompletableFuture<String> other = bulkhead.run("other", 1, CompletableFuture::new);
+
+        CompletionException e = assertThrows(CompletionException.class, newer::join);
+        assertFalse(assertInstanceOf(Bulkhead.Rejected.class, e.getCause()).isTimedOut());
+        assertFalse(older.isDone());
+        assertFalse(other.isDone());
+        assertEquals(2, bulkhead.queued());
+        assertEquals(2, rejected.get());
+    }
+
+    @Test
+    @DisplayName("名额交给下一个任务时不在释放方的线程上运行它")
+    void run_AdmitsNextTaskOffTheReleasingThread() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, TimeUnit.SECONDS.toNanos(10), listener, executor);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CountDownLatch unblock = new CountDownLatch(1);
+        CompletableFuture<String> a = bulkhead.run(() -> first);
+        CompletableFuture<String> b = bulkhead.run(() -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture("b");
+        });
+        CompletableFuture<String> downstream = a.thenApply(value -> value + " done");
+
+        Thread releasing = Thread.ofVirtual().start(() -> first.complete("a"));
+
+        try {
+            assertEquals("a done", downstream.get(5, TimeUnit.SECONDS));
+            releasing.join(5_000);
+            assertFalse(releasing.isAlive());
+        } finally {
+            unblock.countDown();
+        }
+        assertEquals("b", b.get(5, TimeUnit.SECONDS));
+    }
+}
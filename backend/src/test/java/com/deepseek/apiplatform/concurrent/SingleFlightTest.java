@@ -0,0 +1,135 @@
+package com.deepseek.apiplatform.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("并发的相同请求只执行一次")
+    void execute_CoalescesConcurrentCalls() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return 42;
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    return -1;
+                })));
+            }
+            while (singleFlight.coalesced() < 8) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(42, follower.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.executions());
+        assertEquals(8, singleFlight.coalesced());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("完成后不保留结果")
+    void execute_DoesNotCacheCompletedCalls() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("key", executions::incrementAndGet);
+        singleFlight.execute("key", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, singleFlight.coalesced());
+    }
+
+    @Test
+    @DisplayName("异步调用在完成前合并相同请求，完成后不再保留")
+    void executeAsync_CoalescesUntilCompletion() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<Integer> leader = singleFlight.executeAsync("key", () -> {
+            executions.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<Integer> follower = singleFlight.executeAsync("key", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture(-1);
+        });
+        assertEquals(1, singleFlight.inFlight());
+        assertFalse(follower.isDone());
+
+        pending.complete(42);
+        assertEquals(42, leader.join());
+        assertEquals(42, follower.join());
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.coalesced());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("异常传递给所有等待者")
+    void execute_PropagatesFailureToFollowers() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                leaderStarted.countDown();
+                await(release);
+                throw new IllegalStateException("boom");
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            Future<Integer> follower = executor.submit(() -> singleFlight.execute("key", () -> 1));
+            while (singleFlight.coalesced() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+            assertInstanceOf(IllegalStateException.class, followerError.getCause());
+        }
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.deepseek.apiplatform.config;
+
+import com.deepseek.apiplatform.security.KeyDigest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyStorageMigrationTest {
+
+    @Test
+    @DisplayName("旧库中的明文 Key 迁移为摘要和前缀，明文表被删除")
+    void migratesPlaintextKeys() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:api-key-migration;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE api_keys (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, name VARCHAR(255) NOT NULL, "
+                + "api_key VARCHAR(255) NOT NULL UNIQUE, created_at TIMESTAMP, last_used_at TIMESTAMP, status VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO api_keys VALUES (7, 1, 'Old Key', 'sk-abcdefgh12345678', CURRENT_TIMESTAMP, NULL, 'ACTIVE')");
+
+        ApiKeyStorageMigration migration = new ApiKeyStorageMigration(jdbcTemplate);
+        jdbcTemplate.execute("CREATE TABLE api_keys (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, name VARCHAR(255) NOT NULL, "
+                + "key_digest VARBINARY(32) NOT NULL UNIQUE, key_prefix VARCHAR(16) NOT NULL, created_at TIMESTAMP, "
+                + "last_used_at TIMESTAMP, status VARCHAR(16))");
+        migration.afterSingletonsInstantiated();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM api_keys WHERE id = 7");
+        assertEquals("sk-abcd", row.get("KEY_PREFIX"));
+        assertEquals(KeyDigest.of("sk-abcdefgh12345678"), KeyDigest.fromBytes((byte[]) row.get("KEY_DIGEST")));
+        assertEquals("ACTIVE", row.get("STATUS"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'API_KEYS_PLAINTEXT'", Integer.class));
+
+        migration.afterSingletonsInstantiated();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM api_keys", Integer.class));
+    }
+}
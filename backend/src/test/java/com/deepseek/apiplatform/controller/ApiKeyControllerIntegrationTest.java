@@ -89,7 +89,9 @@ class ApiKeyControllerIntegrationTest {
                 .header("Authorization", "Bearer " + token))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$").isArray())
-            .andExpect(jsonPath("$[0].name").value("My Key"));
+            .andExpect(jsonPath("$[0].name").value("My Key"))
+            .andExpect(jsonPath("$[0].key").doesNotExist())
+            .andExpect(jsonPath("$[0].prefix").value(org.hamcrest.Matchers.startsWith("sk-")));
     }
 
     @Test
@@ -0,0 +1,213 @@
+package com.deepseek.apiplatform.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BatchControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String[] registerAndGetTokenAndApiKey() throws Exception {
+        String uuid = UUID.randomUUID().toString().substring(0, 8);
+        String json = "{\"email\":\"batch_" + uuid + "@example.com\",\"username\":\"user_" + uuid + "\",\"password\":\"password123\"}";
+        
+        MvcResult result = mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String token = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+
+        MvcResult keyResult = mockMvc.perform(post("/api/api-keys")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Batch Key\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String apiKey = objectMapper.readTree(keyResult.getResponse().getContentAsString()).get("key").asText();
+        
+        return new String[]{token, apiKey};
+    }
+
+    private long uploadFile(String apiKey, String content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "requests.jsonl", "application/jsonl",
+                content.getBytes(StandardCharsets.UTF_8));
+
+        MvcResult result = mockMvc.perform(multipart("/v1/files")
+                .file(file)
+                .param("purpose", "batch")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.object").value("file"))
+            .andExpect(jsonPath("$.purpose").value("batch"))
+            .andExpect(jsonPath("$.filename").value("requests.jsonl"))
+            .andReturn();
+
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private JsonNode waitForBatch(String apiKey, long batchId) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            MvcResult result = mockMvc.perform(get("/v1/batches/" + batchId)
+                    .header("Authorization", "Bearer " + apiKey))
+                .andExpect(status().isOk())
+                .andReturn();
+            JsonNode batch = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = batch.get("status").asText();
+            if (status.equals("completed") || status.equals("failed") || status.equals("cancelled")) {
+                return batch;
+            }
+            Thread.sleep(50);
+        }
+        fail("batch did not finish in time");
+        return null;
+    }
+
+    private List<JsonNode> downloadLines(String apiKey, long fileId) throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/files/" + fileId + "/content")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        List<JsonNode> lines = new java.util.ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    @DisplayName("批处理 - 上传、执行并下载结果")
+    void batch_ProcessesInputFile() throws Exception {
+        String[] creds = registerAndGetTokenAndApiKey();
+        String token = creds[0];
+        String apiKey = creds[1];
+
+        String input = String.join("\n",
+            "{\"customId\":\"req-1\",\"method\":\"POST\",\"url\":\"/v1/chat/completions\",\"body\":{\"model\":\"deepseek-chat\",\"messages\":[{\"role\":\"user\",\"content\":\"Hello\"}]}}",
+            "",
+            "{\"customId\":\"req-2\",\"method\":\"POST\",\"url\":\"/v1/chat/completions\",\"body\":{\"model\":\"deepseek-coder\",\"messages\":[{\"role\":\"user\",\"content\":\"写一段代码\"}]}}",
+            "{\"customId\":\"req-3\",\"method\":\"POST\",\"url\":\"/v1/embeddings\",\"body\":{\"model\":\"deepseek-chat\"}}",
+            "not json");
+        long fileId = uploadFile(apiKey, input);
+
+        MvcResult created = mockMvc.perform(post("/v1/batches")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"inputFileId\":" + fileId + ",\"endpoint\":\"/v1/chat/completions\",\"completionWindow\":\"24h\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.object").value("batch"))
+            .andExpect(jsonPath("$.inputFileId").value(fileId))
+            .andReturn();
+        long batchId = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+
+        JsonNode batch = waitForBatch(apiKey, batchId);
+        assertEquals("completed", batch.get("status").asText());
+        assertEquals(4, batch.get("requestCounts").get("total").asInt());
+        assertEquals(2, batch.get("requestCounts").get("completed").asInt());
+        assertEquals(2, batch.get("requestCounts").get("failed").asInt());
+        assertTrue(batch.get("usage").get("totalTokens").asLong() > 0);
+
+        List<JsonNode> outputs = downloadLines(apiKey, batch.get("outputFileId").asLong());
+        assertEquals(2, outputs.size());
+        long outputTokens = 0;
+        for (JsonNode output : outputs) {
+            assertTrue(List.of("req-1", "req-2").contains(output.get("customId").asText()));
+            assertEquals(200, output.get("response").get("statusCode").asInt());
+            assertEquals("chat.completion", output.get("response").get("body").get("object").asText());
+            outputTokens += output.get("response").get("body").get("usage").get("totalTokens").asLong();
+        }
+        assertEquals(batch.get("usage").get("totalTokens").asLong(), outputTokens);
+
+        List<JsonNode> errors = downloadLines(apiKey, batch.get("errorFileId").asLong());
+        assertEquals(2, errors.size());
+        assertTrue(errors.stream().anyMatch(e -> e.get("error").get("code").asText().equals("invalid_json")));
+        assertTrue(errors.stream().anyMatch(e -> "req-3".equals(e.get("customId").asText())));
+
+        mockMvc.perform(get("/api/billing/usage")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.requestCount").value(2))
+            .andExpect(jsonPath("$.totalTokens").value(outputTokens));
+
+        mockMvc.perform(post("/v1/batches/" + batchId + "/cancel")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("批处理已结束，无法取消"));
+
+        mockMvc.perform(get("/v1/batches")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.object").value("list"))
+            .andExpect(jsonPath("$.data[0].id").value(batchId));
+    }
+
+    @Test
+    @DisplayName("批处理 - 文件用途不支持")
+    void uploadFile_UnsupportedPurpose() throws Exception {
+        String apiKey = registerAndGetTokenAndApiKey()[1];
+        MockMultipartFile file = new MockMultipartFile("file", "requests.jsonl", "application/jsonl",
+                "{}".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/v1/files")
+                .file(file)
+                .param("purpose", "fine-tune")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("批处理 - 不能访问其他用户的文件")
+    void createBatch_OtherUsersFile() throws Exception {
+        String owner = registerAndGetTokenAndApiKey()[1];
+        String other = registerAndGetTokenAndApiKey()[1];
+        long fileId = uploadFile(owner, "{}\n");
+
+        mockMvc.perform(post("/v1/batches")
+                .header("Authorization", "Bearer " + other)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"inputFileId\":" + fileId + ",\"endpoint\":\"/v1/chat/completions\"}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("文件不存在"));
+
+        mockMvc.perform(get("/v1/files/" + fileId + "/content")
+                .header("Authorization", "Bearer " + other))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("批处理 - 未认证")
+    void batches_Unauthorized() throws Exception {
+        mockMvc.perform(get("/v1/batches"))
+            .andExpect(status().isForbidden());
+    }
+}
@@ -1,6 +1,9 @@
 package com.deepseek.apiplatform.controller;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
 import com.deepseek.apiplatform.dto.RechargeRequest;
+import com.deepseek.apiplatform.repository.BalanceSnapshotRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,16 +11,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = {"billing.require-balance=true", "billing.snapshot-lag=0s"})
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 class BillingControllerIntegrationTest {
@@ -28,6 +39,12 @@ class BillingControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private BalanceLedger balanceLedger;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
     private String registerAndGetToken() throws Exception {
         String uuid = UUID.randomUUID().toString().substring(0, 8);
         String json = "{\"email\":\"billing_" + uuid + "@example.com\",\"username\":\"user_" + uuid + "\",\"password\":\"password123\"}";
@@ -38,7 +55,124 @@ class BillingControllerIntegrationTest {
             .andExpect(status().isOk())
             .andReturn();
 
-        return objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).get("token").asText();
+    }
+
+    private String createApiKey(String token) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/api-keys")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Billing Key\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).get("key").asText();
+    }
+
+    @Test
+    @DisplayName("余额不足时 Chat Completion 返回 402，充值后按实际用量扣费")
+    void chatCompletion_ChargesPrepaidBalance() throws Exception {
+        String token = registerAndGetToken();
+        String apiKey = createApiKey(token);
+        String body = "{\"model\":\"deepseek-chat\",\"messages\":[{\"role\":\"user\",\"content\":\"Hello\"}]}";
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isPaymentRequired())
+            .andExpect(jsonPath("$.error.code").value("insufficient_balance"));
+
+        RechargeRequest recharge = new RechargeRequest();
+        recharge.setAmount(1.0);
+        recharge.setPaymentMethod("alipay");
+        mockMvc.perform(post("/api/billing/recharge")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(recharge)))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk());
+        balanceLedger.flush();
+
+        mockMvc.perform(get("/api/billing/records")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].type").value("usage"))
+            .andExpect(jsonPath("$[0].balance").value(lessThan(1.0)));
+        MvcResult me = mockMvc.perform(get("/api/auth/me")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.balance").value(allOf(lessThan(1.0), greaterThan(0.9))))
+            .andReturn();
+
+        Long userId = objectMapper.readTree(me.getResponse().getContentAsString(StandardCharsets.UTF_8)).get("id").asLong();
+        balanceLedger.snapshot();
+        assertEquals(balanceLedger.balance(userId), balanceSnapshotRepository.findById(userId).orElseThrow().getBalanceMicros());
+    }
+
+    @Test
+    @DisplayName("余额为零时批处理不执行任何请求，以 insufficient_balance 失败")
+    void batch_StopsWhenBalanceRunsOut() throws Exception {
+        String token = registerAndGetToken();
+        String apiKey = createApiKey(token);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            input.append("{\"customId\":\"req-").append(i).append("\",\"method\":\"POST\",\"url\":\"/v1/chat/completions\",")
+                    .append("\"body\":{\"model\":\"deepseek-chat\",\"messages\":[{\"role\":\"user\",\"content\":\"Hello\"}]}}\n");
+        }
+        MvcResult uploaded = mockMvc.perform(multipart("/v1/files")
+                .file(new MockMultipartFile("file", "requests.jsonl", "application/jsonl",
+                        input.toString().getBytes(StandardCharsets.UTF_8)))
+                .param("purpose", "batch")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isOk())
+            .andReturn();
+        long fileId = objectMapper.readTree(uploaded.getResponse().getContentAsString(StandardCharsets.UTF_8)).get("id").asLong();
+
+        MvcResult created = mockMvc.perform(post("/v1/batches")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"inputFileId\":" + fileId + ",\"endpoint\":\"/v1/chat/completions\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+        long batchId = objectMapper.readTree(created.getResponse().getContentAsString(StandardCharsets.UTF_8)).get("id").asLong();
+
+        JsonNode batch = null;
+        for (int i = 0; i < 100 && batch == null; i++) {
+            JsonNode current = objectMapper.readTree(mockMvc.perform(get("/v1/batches/" + batchId)
+                    .header("Authorization", "Bearer " + apiKey))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+            if (current.get("status").asText().equals("failed") || current.get("status").asText().equals("completed")) {
+                batch = current;
+            } else {
+                Thread.sleep(50);
+            }
+        }
+        if (batch == null) {
+            fail("batch did not finish in time");
+        }
+
+        assertEquals("failed", batch.get("status").asText());
+        assertEquals("账户余额不足，批处理已停止", batch.get("errorMessage").asText());
+        assertEquals(0, batch.get("requestCounts").get("completed").asInt());
+        assertTrue(batch.get("requestCounts").get("failed").asInt() < 200);
+        String errors = mockMvc.perform(get("/v1/files/" + batch.get("errorFileId").asLong() + "/content")
+                .header("Authorization", "Bearer " + apiKey))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("\"insufficient_balance\""));
+
+        balanceLedger.flush();
+        mockMvc.perform(get("/api/auth/me")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.balance").value(0.0));
     }
 
     @Test
@@ -125,6 +259,54 @@ class BillingControllerIntegrationTest {
             .andExpect(jsonPath("$[0].amount").value(100.0));
     }
 
+    @Test
+    @DisplayName("账单记录按游标分页并支持类型过滤")
+    void getBillingRecords_PaginatesAndFilters() throws Exception {
+        String token = registerAndGetToken();
+        for (double amount : new double[]{10.0, 20.0, 30.0}) {
+            RechargeRequest request = new RechargeRequest();
+            request.setAmount(amount);
+            request.setPaymentMethod("alipay");
+            mockMvc.perform(post("/api/billing/recharge")
+                    .header("Authorization", "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/billing/records")
+                .param("limit", "2")
+                .header("Origin", "http://localhost:5173")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Access-Control-Expose-Headers", "X-Next-Cursor"))
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].amount").value(30.0))
+            .andExpect(jsonPath("$[1].amount").value(20.0))
+            .andExpect(header().exists("X-Next-Cursor"))
+            .andReturn();
+
+        mockMvc.perform(get("/api/billing/records")
+                .param("limit", "2")
+                .param("cursor", first.getResponse().getHeader("X-Next-Cursor"))
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].amount").value(10.0))
+            .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/api/billing/records")
+                .param("type", "usage")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/api/billing/records")
+                .param("type", "refund")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("充值后用户余额更新")
     void recharge_UpdatesUserBalance() throws Exception {
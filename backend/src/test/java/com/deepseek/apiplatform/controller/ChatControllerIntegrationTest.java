@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -89,7 +90,120 @@ class ChatControllerIntegrationTest {
             .andExpect(jsonPath("$.model").value("deepseek-chat"))
             .andExpect(jsonPath("$.choices[0].message.role").value("assistant"))
             .andExpect(jsonPath("$.choices[0].message.content").exists())
-            .andExpect(jsonPath("$.usage.totalTokens").exists());
+            .andExpect(jsonPath("$.usage.totalTokens").exists())
+            .andExpect(header().string("x-ratelimit-limit-requests", "600"))
+            .andExpect(header().string("x-ratelimit-remaining-requests", "599"))
+            .andExpect(header().exists("x-ratelimit-remaining-tokens"))
+            .andExpect(header().exists("x-ratelimit-reset-tokens"));
+    }
+
+    @Test
+    @DisplayName("Chat Completion - stream 模式返回 SSE 分块")
+    void chatCompletion_Stream() throws Exception {
+        String[] creds = registerAndGetTokenAndApiKey();
+        String apiKey = creds[1];
+        
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setStream(true);
+        ChatCompletionRequest.StreamOptions options = new ChatCompletionRequest.StreamOptions();
+        options.setIncludeUsage(true);
+        request.setStreamOptions(options);
+        
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        MvcResult result = mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+
+        String body = result.getResponse().getContentAsString();
+        List<String> events = body.lines()
+            .filter(line -> line.startsWith("data:"))
+            .map(line -> line.substring(5).trim())
+            .toList();
+
+        assertTrue(events.size() > 3);
+        assertEquals("[DONE]", events.get(events.size() - 1));
+
+        var first = objectMapper.readTree(events.get(0));
+        assertEquals("chat.completion.chunk", first.get("object").asText());
+        assertEquals("assistant", first.get("choices").get(0).get("delta").get("role").asText());
+
+        var finish = objectMapper.readTree(events.get(events.size() - 3));
+        assertEquals("stop", finish.get("choices").get(0).get("finishReason").asText());
+
+        var usage = objectMapper.readTree(events.get(events.size() - 2));
+        assertEquals(0, usage.get("choices").size());
+        assertTrue(usage.get("usage").get("totalTokens").asInt() > 0);
+    }
+
+    @Test
+    @DisplayName("Chat Completion - 删除或禁用 API Key 后立即失效")
+    void chatCompletion_RevokedApiKeyRejectedImmediately() throws Exception {
+        String[] creds = registerAndGetTokenAndApiKey();
+        String token = creds[0];
+        String apiKey = creds[1];
+        
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setMessages(new ArrayList<>());
+        String body = objectMapper.writeValueAsString(request);
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk());
+
+        MvcResult keys = mockMvc.perform(get("/api/api-keys")
+                .header("Authorization", "Bearer " + token))
+            .andReturn();
+        long keyId = objectMapper.readTree(keys.getResponse().getContentAsString()).get(0).get("id").asLong();
+
+        mockMvc.perform(put("/api/api-keys/" + keyId + "/status")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\":\"disabled\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("disabled"));
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isForbidden());
+
+        mockMvc.perform(put("/api/api-keys/" + keyId + "/status")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\":\"active\"}"))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/api-keys/" + keyId)
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isForbidden());
     }
 
     @Test
@@ -145,6 +259,11 @@ class ChatControllerIntegrationTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.totalTokens").value(org.hamcrest.Matchers.greaterThan(0)))
             .andExpect(jsonPath("$.requestCount").value(1));
+
+        mockMvc.perform(get("/api/api-keys")
+                .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].lastUsedAt").isNotEmpty());
     }
 
     @Test
@@ -0,0 +1,152 @@
+package com.deepseek.apiplatform.controller;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+    "simulation.enabled=true",
+    "simulation.models.deepseek-chat.time-to-first-token=100ms",
+    "simulation.models.deepseek-chat.time-to-first-token-sigma=0",
+    "simulation.models.deepseek-chat.tokens-per-second=1000",
+    "simulation.models.deepseek-chat.completion-tokens=30",
+    "simulation.models.deepseek-chat.completion-tokens-sigma=0",
+    "simulation.models.deepseek-reasoner.time-to-first-token=500ms",
+    "simulation.models.deepseek-reasoner.time-to-first-token-sigma=0",
+    "simulation.models.deepseek-reasoner.completion-tokens=10",
+    "simulation.models.deepseek-reasoner.completion-tokens-sigma=0",
+    "bulkhead.models.deepseek-reasoner.max-concurrent=1",
+    "bulkhead.models.deepseek-reasoner.max-queued=0"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChatControllerSimulationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String registerAndGetApiKey() throws Exception {
+        String uuid = UUID.randomUUID().toString().substring(0, 8);
+        String json = "{\"email\":\"sim_" + uuid + "@example.com\",\"username\":\"sim_" + uuid + "\",\"password\":\"password123\"}";
+        
+        MvcResult result = mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        String token = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+
+        MvcResult keyResult = mockMvc.perform(post("/api/api-keys")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Simulation Key\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        return objectMapper.readTree(keyResult.getResponse().getContentAsString()).get("key").asText();
+    }
+
+    private String requestBody(boolean stream) throws Exception {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setStream(stream);
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Test
+    @DisplayName("负载模拟 - 非流式请求异步返回")
+    void chatCompletion_DeliveredAfterSimulatedLatency() throws Exception {
+        String apiKey = registerAndGetApiKey();
+
+        long start = System.nanoTime();
+        MvcResult result = mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody(false)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.object").value("chat.completion"))
+            .andExpect(jsonPath("$.usage.completionTokens").value(30));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    @DisplayName("负载模拟 - 流式请求按时间线输出")
+    void chatCompletion_StreamDeliveredAfterSimulatedLatency() throws Exception {
+        String apiKey = registerAndGetApiKey();
+
+        long start = System.nanoTime();
+        MvcResult result = mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody(true)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        List<String> events = result.getResponse().getContentAsString().lines()
+            .filter(line -> line.startsWith("data:"))
+            .map(line -> line.substring(5).trim())
+            .toList();
+        assertEquals("[DONE]", events.get(events.size() - 1));
+        var finish = objectMapper.readTree(events.get(events.size() - 2));
+        assertEquals("stop", finish.get("choices").get(0).get("finishReason").asText());
+    }
+
+    @Test
+    @DisplayName("模型并发已满且无排队空间时返回 429 与 Retry-After")
+    void chatCompletion_RejectedWhenBulkheadFull() throws Exception {
+        String apiKey = registerAndGetApiKey();
+        String body = requestBody(false).replace("deepseek-chat", "deepseek-reasoner");
+
+        MvcResult running = mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(post("/v1/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody(true).replace("deepseek-chat", "deepseek-reasoner")))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().exists("Retry-After"))
+            .andExpect(jsonPath("$.error.code").value("model_overloaded"))
+            .andExpect(jsonPath("$.error.message").exists());
+
+        mockMvc.perform(asyncDispatch(running))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.model").value("deepseek-reasoner"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.deepseek.apiplatform.ratelimit;
+
+import com.deepseek.apiplatform.config.RateLimitConfig;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final TokenBucket.Limit PER_MINUTE_60 = new TokenBucket.Limit(60, TimeUnit.MINUTES.toNanos(1));
+
+    private static RateLimiter limiter(long keyRpm, long keyTpm, long userRpm, long userTpm) {
+        RateLimitConfig config = new RateLimitConfig();
+        config.getPerKey().setRequestsPerMinute(keyRpm);
+        config.getPerKey().setTokensPerMinute(keyTpm);
+        config.getPerUser().setRequestsPerMinute(userRpm);
+        config.getPerUser().setTokensPerMinute(userTpm);
+        return new RateLimiter(config, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("令牌桶 - 用完后按速率逐个恢复")
+    void tokenBucket_RefillsAtConfiguredRate() {
+        long start = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(start);
+
+        for (int i = 0; i < 60; i++) {
+            assertTrue(bucket.tryAcquire(1, start, PER_MINUTE_60));
+        }
+        assertFalse(bucket.tryAcquire(1, start, PER_MINUTE_60));
+        assertEquals(0, bucket.remaining(start, PER_MINUTE_60));
+        assertEquals(SECOND, bucket.retryAfterNanos(1, start, PER_MINUTE_60));
+
+        assertTrue(bucket.tryAcquire(1, start + SECOND, PER_MINUTE_60));
+        assertFalse(bucket.tryAcquire(1, start + SECOND, PER_MINUTE_60));
+        assertEquals(30, bucket.remaining(start + 31 * SECOND, PER_MINUTE_60));
+    }
+
+    @Test
+    @DisplayName("令牌桶 - 超过桶容量的请求仅在桶满时放行，之后需等待欠额恢复")
+    void tokenBucket_OversizedCostOnlyWhenFull() {
+        long start = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(start);
+
+        assertTrue(bucket.tryAcquire(90, start, PER_MINUTE_60));
+        assertFalse(bucket.tryAcquire(1, start + 30 * SECOND, PER_MINUTE_60));
+        assertTrue(bucket.tryAcquire(1, start + 31 * SECOND, PER_MINUTE_60));
+    }
+
+    @Test
+    @DisplayName("超出每分钟请求数时返回 429 并附带限额响应头")
+    void acquire_RejectsWhenRequestsExhausted() {
+        RateLimiter limiter = limiter(2, 0, 0, 0);
+
+        RateLimiter.Permit first = limiter.acquire(1L, 1L, 10);
+        assertEquals("2", first.headers().getFirst("x-ratelimit-limit-requests"));
+        assertEquals("1", first.headers().getFirst("x-ratelimit-remaining-requests"));
+        assertNull(first.headers().getFirst("x-ratelimit-limit-tokens"));
+        limiter.acquire(1L, 1L, 10);
+
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire(1L, 1L, 10));
+        assertEquals("requests", ex.getType());
+        assertEquals("rate_limit_exceeded", ex.getCode());
+        assertEquals(30, ex.getRetryAfterSeconds());
+        assertEquals("0", ex.getHeaders().getFirst("x-ratelimit-remaining-requests"));
+        assertNotNull(ex.getHeaders().getFirst("x-ratelimit-reset-requests"));
+    }
+
+    @Test
+    @DisplayName("TPM 不足时拒绝且不扣除已通过检查的请求数")
+    void acquire_TokenRejectionRefundsRequest() {
+        RateLimiter limiter = limiter(10, 100, 0, 0);
+
+        limiter.acquire(1L, 1L, 80);
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire(1L, 1L, 30));
+        assertEquals("tokens", ex.getType());
+        assertEquals("9", ex.getHeaders().getFirst("x-ratelimit-remaining-requests"));
+        assertEquals("20", ex.getHeaders().getFirst("x-ratelimit-remaining-tokens"));
+    }
+
+    @Test
+    @DisplayName("完成后按实际用量结算，退还多预扣的 token")
+    void settle_ReturnsUnusedTokens() {
+        RateLimiter limiter = limiter(0, 100, 0, 100);
+
+        RateLimiter.Permit permit = limiter.acquire(1L, 1L, 80);
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire(1L, 1L, 80));
+
+        permit.settle(10);
+        permit.settle(10);
+        RateLimiter.Permit next = limiter.acquire(1L, 1L, 80);
+        assertTrue(Long.parseLong(next.headers().getFirst("x-ratelimit-remaining-tokens")) >= 10);
+    }
+
+    @Test
+    @DisplayName("欠额超过空闲超时的令牌桶保留到恢复满额，不会被提前淘汰")
+    void acquire_KeepsIndebtedBucketsPastIdleTimeout() {
+        RateLimitConfig config = new RateLimitConfig();
+        config.getPerKey().setTokensPerMinute(1000);
+        config.setIdleTimeout(Duration.ofMinutes(2));
+        RateLimiter limiter = new RateLimiter(config, new SimpleMeterRegistry());
+        long idle = TimeUnit.MINUTES.toNanos(2);
+        long period = TimeUnit.MINUTES.toNanos(1);
+
+        RateLimiter.Permit oversized = limiter.acquire(1L, 1L, 10_000);
+        oversized.settle(10_000);
+        assertTrue(limiter.keyRetentionNanos(1L) > 9 * period);
+
+        limiter.acquire(2L, 1L, 10).settle(10);
+        assertTrue(limiter.keyRetentionNanos(2L) <= idle);
+
+        limiter.acquire(3L, 1L, 10).settle(5_000);
+        assertTrue(limiter.keyRetentionNanos(3L) > 4 * period);
+    }
+
+    @Test
+    @DisplayName("账户限额由同一用户的所有 API Key 共享")
+    void acquire_UserLimitSpansKeys() {
+        RateLimiter limiter = limiter(0, 0, 2, 0);
+
+        limiter.acquire(1L, 7L, 0);
+        limiter.acquire(2L, 7L, 0);
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire(3L, 7L, 0));
+        assertDoesNotThrow(() -> limiter.acquire(4L, 8L, 0));
+    }
+
+    @Test
+    @DisplayName("重置时间按 OpenAI 的格式输出")
+    void formatDuration_MatchesOpenAiStyle() {
+        assertEquals("20ms", RateLimiter.formatDuration(TimeUnit.MILLISECONDS.toNanos(20)));
+        assertEquals("1.5s", RateLimiter.formatDuration(TimeUnit.MILLISECONDS.toNanos(1500)));
+        assertEquals("6m0s", RateLimiter.formatDuration(TimeUnit.MINUTES.toNanos(6)));
+        assertEquals("1m2.25s", RateLimiter.formatDuration(TimeUnit.MILLISECONDS.toNanos(62_250)));
+    }
+}
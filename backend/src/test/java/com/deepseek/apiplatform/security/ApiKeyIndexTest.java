@@ -0,0 +1,155 @@
+package com.deepseek.apiplatform.security;
+
+import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.event.ApiKeyChangedEvent;
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.repository.ApiKeyRepositoryCustom;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ApiKeyIndexTest {
+
+    @Mock
+    private ApiKeyRepository apiKeyRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ApiKeyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new ApiKeyIndex(apiKeyRepository, meterRegistry, 4);
+    }
+
+    @Test
+    @DisplayName("启动时按 id 区间并行加载全部 Key")
+    void rebuild_LoadsEveryKeyByIdRange() {
+        when(apiKeyRepository.findIdRange()).thenReturn(new ApiKeyRepositoryCustom.IdRange(1, 1000, 1000));
+        doAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            ApiKeyRepositoryCustom.KeyRowHandler handler = invocation.getArgument(2);
+            for (long id = Math.max(fromId, 1); id <= Math.min(toId, 1000); id++) {
+                handler.accept(KeyDigest.of("sk-" + id).toBytes(), id, id % 7, id % 10 != 0);
+            }
+            return null;
+        }).when(apiKeyRepository).forEachKey(anyLong(), anyLong(), any());
+
+        index.rebuild();
+
+        verify(apiKeyRepository, times(4)).forEachKey(anyLong(), anyLong(), any());
+        assertEquals(1000, index.size());
+        assertEquals(new ApiKeyIndex.Entry(42, 0, true), index.get(KeyDigest.of("sk-42")));
+        assertEquals(new ApiKeyIndex.Entry(50, 1, false), index.get(KeyDigest.of("sk-50")));
+        assertNull(index.get(KeyDigest.of("sk-1001")));
+        assertEquals(1000, meterRegistry.get("api_key.index.keys").gauge().value());
+    }
+
+    @Test
+    @DisplayName("各区间在专用线程上加载，任一区间失败则重建失败")
+    void rebuild_ReadsOnDedicatedThreadsAndPropagatesFailure() {
+        when(apiKeyRepository.findIdRange()).thenReturn(new ApiKeyRepositoryCustom.IdRange(1, 1000, 1000));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            if ((long) invocation.getArgument(0) > 500) {
+                throw new IllegalStateException("boom");
+            }
+            return null;
+        }).when(apiKeyRepository).forEachKey(anyLong(), anyLong(), any());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> index.rebuild());
+
+        assertEquals("boom", e.getMessage());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("api-key-index-")));
+    }
+
+    @Test
+    @DisplayName("空表启动后仍可写入")
+    void rebuild_EmptyTable() {
+        when(apiKeyRepository.findIdRange()).thenReturn(new ApiKeyRepositoryCustom.IdRange(0, 0, 0));
+
+        index.rebuild();
+        index.put(KeyDigest.of("sk-new"), 1, 2, true);
+
+        verify(apiKeyRepository, never()).forEachKey(anyLong(), anyLong(), any());
+        assertEquals(new ApiKeyIndex.Entry(1, 2, true), index.get(KeyDigest.of("sk-new")));
+    }
+
+    @Test
+    @DisplayName("新建、禁用、删除事件更新索引")
+    void onApiKeyChanged_AppliesChanges() {
+        KeyDigest digest = KeyDigest.of("sk-key1");
+
+        index.onApiKeyChanged(new ApiKeyChangedEvent(1L, 9L, digest, ApiKey.KeyStatus.ACTIVE));
+        assertEquals(new ApiKeyIndex.Entry(1, 9, true), index.get(digest));
+
+        index.onApiKeyChanged(new ApiKeyChangedEvent(1L, 9L, digest, ApiKey.KeyStatus.DISABLED));
+        assertFalse(index.get(digest).active());
+        assertEquals(1, index.size());
+
+        index.onApiKeyChanged(new ApiKeyChangedEvent(1L, 9L, digest, null));
+        assertNull(index.get(digest));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    @DisplayName("扩容与删除后所有 Key 仍可查到")
+    void put_GrowsAndSkipsTombstones() {
+        for (int i = 0; i < 10_000; i++) {
+            index.put(KeyDigest.of("sk-" + i), i, i, true);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            index.remove(KeyDigest.of("sk-" + i));
+        }
+        for (int i = 10_000; i < 20_000; i++) {
+            index.put(KeyDigest.of("sk-" + i), i, i, true);
+        }
+
+        assertEquals(15_000, index.size());
+        for (int i = 0; i < 20_000; i++) {
+            ApiKeyIndex.Entry entry = index.get(KeyDigest.of("sk-" + i));
+            if (i < 10_000 && i % 2 == 0) {
+                assertNull(entry);
+            } else {
+                assertEquals(i, entry.keyId());
+            }
+        }
+        assertTrue(meterRegistry.get("api_key.index.memory").gauge().value() < 15_000 * 4 * 32);
+    }
+
+    @Test
+    @DisplayName("写入期间并发读取不加锁也能读到已有 Key")
+    void get_WhileWriting() throws InterruptedException {
+        KeyDigest existing = KeyDigest.of("sk-existing");
+        index.put(existing, 1, 1, true);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 50_000; i++) {
+                index.put(KeyDigest.of("sk-" + i), i + 2, 1, true);
+            }
+        });
+
+        writer.start();
+        while (writer.isAlive()) {
+            assertEquals(1, index.get(existing).keyId());
+        }
+        writer.join();
+
+        assertEquals(50_001, index.size());
+    }
+}
@@ -0,0 +1,76 @@
+package com.deepseek.apiplatform.security;
+
+import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.event.TokenVersionChangedEvent;
+import com.deepseek.apiplatform.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenVersionCache tokenVersionCache;
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionCache = new TokenVersionCache(userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    private User newUser(int tokenVersion) {
+        User user = new User();
+        user.setId(1L);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+
+    @Test
+    @DisplayName("命中缓存时不再查询数据库")
+    void isCurrent_CachesLookups() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser(2)));
+
+        assertTrue(tokenVersionCache.isCurrent(1L, 2));
+        assertFalse(tokenVersionCache.isCurrent(1L, 1));
+        assertTrue(tokenVersionCache.isCurrent(1L, 2));
+
+        verify(userRepository, times(1)).findById(1L);
+        assertEquals(2, tokenVersionCache.stats().hitCount());
+    }
+
+    @Test
+    @DisplayName("版本变更事件后重新读取，旧令牌失效")
+    void onTokenVersionChanged_InvalidatesEntry() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser(0))).thenReturn(Optional.of(newUser(1)));
+
+        assertTrue(tokenVersionCache.isCurrent(1L, 0));
+        tokenVersionCache.onTokenVersionChanged(new TokenVersionChangedEvent(1L));
+
+        assertFalse(tokenVersionCache.isCurrent(1L, 0));
+        assertTrue(tokenVersionCache.isCurrent(1L, 1));
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("不存在的用户视为无效且不缓存")
+    void isCurrent_UnknownUser() {
+        when(userRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertFalse(tokenVersionCache.isCurrent(9L, 0));
+        assertFalse(tokenVersionCache.isCurrent(9L, 0));
+
+        verify(userRepository, times(2)).findById(9L);
+    }
+}
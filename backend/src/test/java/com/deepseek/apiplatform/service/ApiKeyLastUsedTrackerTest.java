@@ -0,0 +1,72 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ApiKeyLastUsedTrackerTest {
+
+    @Mock
+    private ApiKeyRepository apiKeyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ApiKeyLastUsedTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ApiKeyLastUsedTracker(apiKeyRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("多次使用合并为一次批量更新")
+    @SuppressWarnings("unchecked")
+    void flush_CoalescesRepeatedUse() {
+        for (int i = 0; i < 1000; i++) {
+            tracker.record(1L);
+            tracker.record(2L);
+        }
+
+        tracker.flush();
+
+        ArgumentCaptor<Map<Long, LocalDateTime>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(apiKeyRepository, times(1)).batchUpdateLastUsedAt(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertNull(tracker.pending(1L));
+        assertNull(tracker.pending(2L));
+    }
+
+    @Test
+    @DisplayName("无待写入数据时不访问数据库")
+    void flush_NothingPending_SkipsDatabase() {
+        tracker.flush();
+
+        verifyNoInteractions(apiKeyRepository);
+    }
+
+    @Test
+    @DisplayName("写库失败时保留待写入的时间")
+    void flush_FailureKeepsPending() {
+        doThrow(new RuntimeException("database is locked")).when(apiKeyRepository).batchUpdateLastUsedAt(anyMap());
+
+        tracker.record(1L);
+        tracker.flush();
+
+        assertNotNull(tracker.pending(1L));
+    }
+}
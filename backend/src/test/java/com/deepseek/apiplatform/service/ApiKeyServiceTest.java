@@ -3,16 +3,22 @@ package com.deepseek.apiplatform.service;
 import com.deepseek.apiplatform.dto.ApiKeyResponse;
 import com.deepseek.apiplatform.dto.CreateApiKeyRequest;
 import com.deepseek.apiplatform.entity.ApiKey;
+import com.deepseek.apiplatform.event.ApiKeyChangedEvent;
 import com.deepseek.apiplatform.repository.ApiKeyRepository;
+import com.deepseek.apiplatform.security.KeyDigest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,11 +30,17 @@ class ApiKeyServiceTest {
     @Mock
     private ApiKeyRepository apiKeyRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ApiKeyLastUsedTracker lastUsedTracker;
+
     private ApiKeyService apiKeyService;
 
     @BeforeEach
     void setUp() {
-        apiKeyService = new ApiKeyService(apiKeyRepository);
+        apiKeyService = new ApiKeyService(apiKeyRepository, eventPublisher, lastUsedTracker);
     }
 
     @Test
@@ -38,14 +50,16 @@ class ApiKeyServiceTest {
         key1.setId(1L);
         key1.setUserId(1L);
         key1.setName("Key 1");
-        key1.setApiKey("sk-key1");
+        key1.setKeyDigest(KeyDigest.of("sk-key1").toBytes());
+        key1.setKeyPrefix("sk-key1");
         key1.setStatus(ApiKey.KeyStatus.ACTIVE);
 
         ApiKey key2 = new ApiKey();
         key2.setId(2L);
         key2.setUserId(1L);
         key2.setName("Key 2");
-        key2.setApiKey("sk-key2");
+        key2.setKeyDigest(KeyDigest.of("sk-key2").toBytes());
+        key2.setKeyPrefix("sk-key2");
         key2.setStatus(ApiKey.KeyStatus.ACTIVE);
 
         when(apiKeyRepository.findByUserId(1L)).thenReturn(Arrays.asList(key1, key2));
@@ -55,6 +69,28 @@ class ApiKeyServiceTest {
         assertEquals(2, responses.size());
         assertEquals("Key 1", responses.get(0).getName());
         assertEquals("Key 2", responses.get(1).getName());
+        assertNull(responses.get(0).getKey());
+        assertEquals("sk-key1", responses.get(0).getPrefix());
+    }
+
+    @Test
+    @DisplayName("获取 API Keys 列表 - 叠加未落库的最近使用时间")
+    void getUserApiKeys_OverlaysPendingLastUsedAt() {
+        ApiKey key = new ApiKey();
+        key.setId(1L);
+        key.setUserId(1L);
+        key.setName("Key 1");
+        key.setKeyDigest(KeyDigest.of("sk-key1").toBytes());
+        key.setKeyPrefix("sk-key1");
+        key.setStatus(ApiKey.KeyStatus.ACTIVE);
+        key.setLastUsedAt(LocalDateTime.of(2024, 1, 1, 10, 0, 0));
+
+        when(apiKeyRepository.findByUserId(1L)).thenReturn(List.of(key));
+        when(lastUsedTracker.pending(1L)).thenReturn(LocalDateTime.of(2024, 1, 1, 10, 5, 30));
+
+        List<ApiKeyResponse> responses = apiKeyService.getUserApiKeys(1L);
+
+        assertEquals("2024-01-01 10:05:30", responses.get(0).getLastUsedAt());
     }
 
     @Test
@@ -76,7 +112,17 @@ class ApiKeyServiceTest {
         assertTrue(response.getKey().startsWith("sk-"));
         assertEquals("active", response.getStatus());
 
-        verify(apiKeyRepository).save(any(ApiKey.class));
+        assertEquals(response.getKey().substring(0, 7), response.getPrefix());
+
+        ArgumentCaptor<ApiKey> saved = ArgumentCaptor.forClass(ApiKey.class);
+        verify(apiKeyRepository).save(saved.capture());
+        assertArrayEquals(KeyDigest.of(response.getKey()).toBytes(), saved.getValue().getKeyDigest());
+
+        ArgumentCaptor<ApiKeyChangedEvent> event = ArgumentCaptor.forClass(ApiKeyChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().getKeyId());
+        assertEquals(1L, event.getValue().getUserId());
+        assertEquals(ApiKey.KeyStatus.ACTIVE, event.getValue().getStatus());
     }
 
     @Test
@@ -89,6 +135,57 @@ class ApiKeyServiceTest {
         verify(apiKeyRepository).deleteByIdAndUserId(1L, 1L);
     }
 
+    @Test
+    @DisplayName("删除 API Key 发布失效事件")
+    void deleteApiKey_PublishesChangedEvent() {
+        ApiKey key = new ApiKey();
+        key.setId(1L);
+        key.setUserId(1L);
+        key.setKeyDigest(KeyDigest.of("sk-key1").toBytes());
+        key.setKeyPrefix("sk-key1");
+
+        when(apiKeyRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(key));
+
+        apiKeyService.deleteApiKey(1L, 1L);
+
+        ArgumentCaptor<ApiKeyChangedEvent> captor = ArgumentCaptor.forClass(ApiKeyChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(KeyDigest.of("sk-key1"), captor.getValue().getKeyDigest());
+        assertNull(captor.getValue().getStatus());
+    }
+
+    @Test
+    @DisplayName("禁用 API Key 成功并发布失效事件")
+    void updateApiKeyStatus_Disable() {
+        ApiKey key = new ApiKey();
+        key.setId(1L);
+        key.setUserId(1L);
+        key.setName("Key 1");
+        key.setKeyDigest(KeyDigest.of("sk-key1").toBytes());
+        key.setKeyPrefix("sk-key1");
+        key.setStatus(ApiKey.KeyStatus.ACTIVE);
+
+        when(apiKeyRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(key));
+        when(apiKeyRepository.save(any(ApiKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ApiKeyResponse response = apiKeyService.updateApiKeyStatus(1L, 1L, ApiKey.KeyStatus.DISABLED);
+
+        assertEquals("disabled", response.getStatus());
+        verify(eventPublisher).publishEvent(any(ApiKeyChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("修改不存在的 API Key 状态失败")
+    void updateApiKeyStatus_NotFound_ThrowsException() {
+        when(apiKeyRepository.findByIdAndUserId(99L, 1L)).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                apiKeyService.updateApiKeyStatus(1L, 99L, ApiKey.KeyStatus.DISABLED));
+
+        assertEquals("API Key 不存在", exception.getMessage());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     @DisplayName("API Key 格式正确")
     void createApiKey_FormatCorrect() {
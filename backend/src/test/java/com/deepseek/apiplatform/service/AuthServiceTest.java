@@ -1,10 +1,12 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
 import com.deepseek.apiplatform.dto.AuthResponse;
 import com.deepseek.apiplatform.dto.LoginRequest;
 import com.deepseek.apiplatform.dto.RegisterRequest;
 import com.deepseek.apiplatform.dto.UserResponse;
 import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.event.TokenVersionChangedEvent;
 import com.deepseek.apiplatform.repository.UserRepository;
 import com.deepseek.apiplatform.security.JwtUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.math.BigDecimal;
@@ -35,11 +38,17 @@ class AuthServiceTest {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private BalanceLedger balanceLedger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private AuthService authService;
 
     @BeforeEach
     void setUp() {
-        authService = new AuthService(userRepository, passwordEncoder, jwtUtils);
+        authService = new AuthService(userRepository, passwordEncoder, jwtUtils, balanceLedger, eventPublisher);
     }
 
     @Test
@@ -220,6 +229,7 @@ class AuthServiceTest {
         });
 
         verify(userRepository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(TokenVersionChangedEvent.class));
         assertEquals(1, user.getTokenVersion());
     }
 
@@ -254,6 +264,7 @@ class AuthServiceTest {
 
         assertEquals(1, user.getTokenVersion());
         verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(any(TokenVersionChangedEvent.class));
     }
 
     @Test
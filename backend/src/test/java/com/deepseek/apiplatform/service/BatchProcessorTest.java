@@ -0,0 +1,181 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.dto.ChatCompletionResponse;
+import com.deepseek.apiplatform.entity.Batch;
+import com.deepseek.apiplatform.entity.StoredFile;
+import com.deepseek.apiplatform.exception.TooManyRequestsException;
+import com.deepseek.apiplatform.exception.UpstreamException;
+import com.deepseek.apiplatform.repository.BatchRepository;
+import com.deepseek.apiplatform.repository.StoredFileRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchProcessorTest {
+
+    @Mock
+    private BatchRepository batchRepository;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private UsageAggregator usageAggregator;
+
+    @Mock
+    private PricingService pricingService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Path> registered = new HashMap<>();
+
+    private BatchProcessor batchProcessor;
+
+    @BeforeEach
+    void setUp() {
+        batchProcessor = new BatchProcessor(batchRepository, storedFileRepository, fileStorageService, chatService,
+                usageAggregator, pricingService, objectMapper, transactionManager, 1, 4, 1000,
+                3, Duration.ofMillis(1), Duration.ofMillis(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchProcessor.shutdown();
+    }
+
+    @Test
+    @DisplayName("模型过载与上游错误按退避重试，仍失败时按原因记录错误码")
+    void run_RetriesCapacityAndUpstreamFailures() throws IOException {
+        givenBatch("overloaded", "rejected", "down");
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        when(chatService.complete(eq(1L), any(ChatCompletionRequest.class))).thenAnswer(invocation -> {
+            ChatCompletionRequest request = invocation.getArgument(1);
+            String content = request.getMessages().get(0).getContent();
+            int call = calls.computeIfAbsent(content, key -> new AtomicInteger()).incrementAndGet();
+            return switch (content) {
+                case "overloaded" -> {
+                    if (call == 1) {
+                        throw new TooManyRequestsException("模型 deepseek-chat 当前请求过多，请稍后重试",
+                                "requests", "model_overloaded", 1);
+                    }
+                    yield response();
+                }
+                case "rejected" -> throw new UpstreamException(HttpStatus.BAD_REQUEST, "上游服务拒绝了请求: bad");
+                default -> throw new UpstreamException(HttpStatus.BAD_GATEWAY, "上游服务错误 (HTTP 503)");
+            };
+        });
+
+        batchProcessor.run(5L);
+
+        assertEquals(2, calls.get("overloaded").get());
+        assertEquals(1, calls.get("rejected").get());
+        assertEquals(3, calls.get("down").get());
+        assertEquals(1, Files.readAllLines(registered.get("output"), StandardCharsets.UTF_8).size());
+        Map<String, String> codes = new HashMap<>();
+        for (String line : Files.readAllLines(registered.get("error"), StandardCharsets.UTF_8)) {
+            JsonNode node = objectMapper.readTree(line);
+            codes.put(node.path("customId").asText(), node.path("error").path("code").asText());
+        }
+        assertEquals(Map.of("rejected", "invalid_request", "down", "upstream_error"), codes);
+    }
+
+    @Test
+    @DisplayName("重试次数用尽后模型过载记为 model_overloaded 而非请求错误")
+    void run_ReportsPersistentOverloadAsModelOverloaded() throws IOException {
+        givenBatch("overloaded");
+        when(chatService.complete(eq(1L), any(ChatCompletionRequest.class))).thenThrow(
+                new TooManyRequestsException("模型 deepseek-chat 当前请求过多，请稍后重试", "requests", "model_overloaded", 1));
+
+        batchProcessor.run(5L);
+
+        verify(chatService, times(3)).complete(eq(1L), any(ChatCompletionRequest.class));
+        List<String> errors = Files.readAllLines(registered.get("error"), StandardCharsets.UTF_8);
+        assertEquals(1, errors.size());
+        assertEquals("model_overloaded", objectMapper.readTree(errors.get(0)).path("error").path("code").asText());
+    }
+
+    private void givenBatch(String... contents) throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (String content : contents) {
+            input.append("{\"customId\":\"").append(content)
+                    .append("\",\"method\":\"POST\",\"url\":\"/v1/chat/completions\",\"body\":{\"model\":\"deepseek-chat\",")
+                    .append("\"messages\":[{\"role\":\"user\",\"content\":\"").append(content).append("\"}]}}\n");
+        }
+        Path inputPath = Files.writeString(dir.resolve("input.jsonl"), input, StandardCharsets.UTF_8);
+
+        Batch batch = new Batch();
+        batch.setId(5L);
+        batch.setUserId(1L);
+        batch.setEndpoint("/v1/chat/completions");
+        batch.setInputFileId(10L);
+        batch.setStatus(Batch.BatchStatus.VALIDATING);
+        StoredFile inputFile = new StoredFile();
+        inputFile.setId(10L);
+        when(batchRepository.findById(5L)).thenReturn(Optional.of(batch));
+        when(batchRepository.transition(eq(5L), any(), any())).thenReturn(1);
+        when(storedFileRepository.findById(10L)).thenReturn(Optional.of(inputFile));
+        when(fileStorageService.resolve(inputFile)).thenReturn(inputPath);
+        when(fileStorageService.newStoragePath()).thenReturn(dir.resolve("output.jsonl"), dir.resolve("error.jsonl"));
+        when(fileStorageService.register(eq(1L), anyString(), anyString(), any(Path.class))).thenAnswer(invocation -> {
+            String purpose = invocation.getArgument(2);
+            registered.put(purpose.endsWith("error") ? "error" : "output", invocation.getArgument(3));
+            StoredFile file = new StoredFile();
+            file.setId((long) (11 + registered.size()));
+            return file;
+        });
+    }
+
+    private static ChatCompletionResponse response() {
+        ChatCompletionResponse.Usage usage = new ChatCompletionResponse.Usage();
+        usage.setPromptTokens(10);
+        usage.setPromptCacheHitTokens(0);
+        usage.setPromptCacheMissTokens(10);
+        usage.setCompletionTokens(5);
+        usage.setTotalTokens(15);
+        ChatCompletionResponse response = new ChatCompletionResponse();
+        response.setModel("deepseek-chat");
+        response.setUsage(usage);
+        return response;
+    }
+}
@@ -0,0 +1,160 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.BatchResponse;
+import com.deepseek.apiplatform.dto.CreateBatchRequest;
+import com.deepseek.apiplatform.entity.Batch;
+import com.deepseek.apiplatform.entity.StoredFile;
+import com.deepseek.apiplatform.repository.BatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchServiceTest {
+
+    @Mock
+    private BatchRepository batchRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private BatchProcessor batchProcessor;
+
+    private BatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        batchService = new BatchService(batchRepository, fileStorageService, batchProcessor);
+    }
+
+    private StoredFile newFile(String purpose) {
+        StoredFile file = new StoredFile();
+        file.setId(10L);
+        file.setUserId(1L);
+        file.setPurpose(purpose);
+        file.setFilename("input.jsonl");
+        file.setBytes(100L);
+        return file;
+    }
+
+    private CreateBatchRequest newRequest(String endpoint) {
+        CreateBatchRequest request = new CreateBatchRequest();
+        request.setInputFileId(10L);
+        request.setEndpoint(endpoint);
+        return request;
+    }
+
+    private Batch newBatch(Batch.BatchStatus status) {
+        Batch batch = new Batch();
+        batch.setId(5L);
+        batch.setUserId(1L);
+        batch.setEndpoint("/v1/chat/completions");
+        batch.setCompletionWindow("24h");
+        batch.setInputFileId(10L);
+        batch.setStatus(status);
+        return batch;
+    }
+
+    @Test
+    @DisplayName("创建批处理任务并提交执行")
+    void createBatch_Success() {
+        when(fileStorageService.getFile(1L, 10L)).thenReturn(newFile("batch"));
+        when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> {
+            Batch batch = invocation.getArgument(0);
+            batch.setId(5L);
+            return batch;
+        });
+
+        BatchResponse response = batchService.createBatch(1L, newRequest("/v1/chat/completions"));
+
+        assertEquals(5L, response.getId());
+        assertEquals("batch", response.getObject());
+        assertEquals("validating", response.getStatus());
+        assertEquals(10L, response.getInputFileId());
+        verify(batchProcessor).submit(5L);
+    }
+
+    @Test
+    @DisplayName("创建批处理任务 - 不支持的 endpoint")
+    void createBatch_UnsupportedEndpoint() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> batchService.createBatch(1L, newRequest("/v1/embeddings")));
+
+        assertTrue(exception.getMessage().contains("endpoint"));
+        verify(batchProcessor, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("创建批处理任务 - 输入文件用途错误")
+    void createBatch_WrongFilePurpose() {
+        when(fileStorageService.getFile(1L, 10L)).thenReturn(newFile("batch_output"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> batchService.createBatch(1L, newRequest("/v1/chat/completions")));
+
+        assertEquals("输入文件的用途必须为 batch", exception.getMessage());
+        verify(batchRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("查询运行中的批处理任务时返回实时进度")
+    void getBatch_OverlaysLiveProgress() {
+        Batch batch = newBatch(Batch.BatchStatus.IN_PROGRESS);
+        batch.setTotalRequests(100L);
+        when(batchRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(batch));
+        when(batchProcessor.progress(5L)).thenReturn(new BatchProcessor.Progress(40, 2, 400, 800));
+
+        BatchResponse response = batchService.getBatch(1L, 5L);
+
+        assertEquals("in_progress", response.getStatus());
+        assertEquals(100L, response.getRequestCounts().getTotal());
+        assertEquals(40L, response.getRequestCounts().getCompleted());
+        assertEquals(2L, response.getRequestCounts().getFailed());
+        assertEquals(1200L, response.getUsage().getTotalTokens());
+    }
+
+    @Test
+    @DisplayName("取消运行中的批处理任务")
+    void cancelBatch_InProgress() {
+        Batch batch = newBatch(Batch.BatchStatus.IN_PROGRESS);
+        Batch cancelling = newBatch(Batch.BatchStatus.CANCELLING);
+        when(batchRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(batch)).thenReturn(Optional.of(cancelling));
+        when(batchProcessor.cancel(5L)).thenReturn(true);
+
+        BatchResponse response = batchService.cancelBatch(1L, 5L);
+
+        assertEquals("cancelling", response.getStatus());
+        verify(batchProcessor).cancel(5L);
+    }
+
+    @Test
+    @DisplayName("取消已完成的批处理任务失败")
+    void cancelBatch_AlreadyCompleted() {
+        when(batchRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(newBatch(Batch.BatchStatus.COMPLETED)));
+        when(batchProcessor.cancel(5L)).thenReturn(false);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> batchService.cancelBatch(1L, 5L));
+
+        assertEquals("批处理已结束，无法取消", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("批处理任务不存在")
+    void getBatch_NotFound() {
+        when(batchRepository.findByIdAndUserId(5L, 2L)).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> batchService.getBatch(2L, 5L));
+
+        assertEquals("批处理任务不存在", exception.getMessage());
+    }
+}
@@ -1,27 +1,40 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.dto.BillingRecordPage;
 import com.deepseek.apiplatform.dto.BillingRecordResponse;
 import com.deepseek.apiplatform.dto.RechargeRequest;
 import com.deepseek.apiplatform.dto.UsageStatsResponse;
 import com.deepseek.apiplatform.entity.BillingRecord;
 import com.deepseek.apiplatform.entity.UsageStats;
 import com.deepseek.apiplatform.entity.User;
+import com.deepseek.apiplatform.repository.BalanceSnapshotRepository;
+import com.deepseek.apiplatform.repository.BillingRecordQuery;
 import com.deepseek.apiplatform.repository.BillingRecordRepository;
+import com.deepseek.apiplatform.repository.BillingRecordRow;
+import com.deepseek.apiplatform.repository.LedgerEntryRepository;
 import com.deepseek.apiplatform.repository.UsageStatsRepository;
 import com.deepseek.apiplatform.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,11 +49,28 @@ class BillingServiceTest {
     @Mock
     private UsageStatsRepository usageStatsRepository;
 
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UsageAggregator usageAggregator;
+
+    private BalanceLedger balanceLedger;
+
     private BillingService billingService;
 
     @BeforeEach
     void setUp() {
-        billingService = new BillingService(userRepository, billingRecordRepository, usageStatsRepository);
+        usageAggregator = new UsageAggregator(usageStatsRepository, transactionManager);
+        balanceLedger = new BalanceLedger(userRepository, ledgerEntryRepository, balanceSnapshotRepository,
+                billingRecordRepository, transactionManager, true, Duration.ofMinutes(1));
+        billingService = new BillingService(userRepository, billingRecordRepository, usageStatsRepository, usageAggregator,
+                balanceLedger);
     }
 
     @Test
@@ -64,6 +94,53 @@ class BillingServiceTest {
         assertEquals(10L, response.getRequestCount());
     }
 
+    @Test
+    @DisplayName("获取用量统计 - 合并未落库的增量")
+    void getUsageStats_MergesPendingUsage() {
+        UsageStats stats = new UsageStats();
+        stats.setUserId(1L);
+        stats.setTotalTokens(1000L);
+        stats.setPromptTokens(600L);
+        stats.setCompletionTokens(400L);
+        stats.setRequestCount(10L);
+
+        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.of(stats));
+
+        usageAggregator.record(1L, 30, 70);
+        usageAggregator.record(1L, 20, 80);
+        usageAggregator.record(2L, 5, 5);
+
+        UsageStatsResponse response = billingService.getUsageStats(1L);
+
+        assertEquals(1200L, response.getTotalTokens());
+        assertEquals(650L, response.getPromptTokens());
+        assertEquals(550L, response.getCompletionTokens());
+        assertEquals(12L, response.getRequestCount());
+    }
+
+    @Test
+    @DisplayName("获取用量统计 - 缓存命中 token 与累计费用")
+    void getUsageStats_IncludesCacheHitTokensAndCost() {
+        UsageStats stats = new UsageStats();
+        stats.setUserId(1L);
+        stats.setTotalTokens(1000L);
+        stats.setPromptTokens(600L);
+        stats.setPromptCacheHitTokens(256L);
+        stats.setCompletionTokens(400L);
+        stats.setRequestCount(10L);
+        stats.setTotalCost(new BigDecimal("0.0012"));
+
+        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.of(stats));
+
+        usageAggregator.record(1L, 100, 64, 20, 100, 1);
+
+        UsageStatsResponse response = billingService.getUsageStats(1L);
+
+        assertEquals(320L, response.getPromptCacheHitTokens());
+        assertEquals(380L, response.getPromptCacheMissTokens());
+        assertEquals(0, new BigDecimal("0.0013").compareTo(response.getTotalCost()));
+    }
+
     @Test
     @DisplayName("获取用量统计 - 无数据时创建默认值")
     void getUsageStats_WithNoData_CreatesDefault() {
@@ -95,7 +172,6 @@ class BillingServiceTest {
         request.setPaymentMethod("alipay");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user);
         when(billingRecordRepository.save(any(BillingRecord.class))).thenAnswer(invocation -> {
             BillingRecord record = invocation.getArgument(0);
             record.setId(1L);
@@ -110,8 +186,9 @@ class BillingServiceTest {
         assertEquals(150.0, response.getBalance());
         assertTrue(response.getDescription().contains("支付宝"));
 
-        verify(userRepository).save(any(User.class));
+        verify(ledgerEntryRepository).appendAll(anyList());
         verify(billingRecordRepository).save(any(BillingRecord.class));
+        assertEquals(150_000_000L, balanceLedger.balance(1L));
     }
 
     @Test
@@ -133,29 +210,59 @@ class BillingServiceTest {
     @Test
     @DisplayName("获取账单记录")
     void getBillingRecords_Success() {
-        BillingRecord record1 = new BillingRecord();
-        record1.setId(1L);
-        record1.setUserId(1L);
-        record1.setType(BillingRecord.RecordType.RECHARGE);
-        record1.setAmount(BigDecimal.valueOf(100));
-        record1.setBalance(BigDecimal.valueOf(100));
-        record1.setDescription("充值");
-
-        BillingRecord record2 = new BillingRecord();
-        record2.setId(2L);
-        record2.setUserId(1L);
-        record2.setType(BillingRecord.RecordType.USAGE);
-        record2.setAmount(BigDecimal.valueOf(-10));
-        record2.setBalance(BigDecimal.valueOf(90));
-        record2.setDescription("消费");
-
-        when(billingRecordRepository.findByUserIdOrderByCreatedAtDesc(1L))
+        BillingRecordRow record1 = new BillingRecordRow(2L, BillingRecord.RecordType.RECHARGE, BigDecimal.valueOf(100),
+                BigDecimal.valueOf(100), "充值", LocalDateTime.of(2026, 1, 2, 0, 0));
+        BillingRecordRow record2 = new BillingRecordRow(1L, BillingRecord.RecordType.USAGE, BigDecimal.valueOf(-10),
+                BigDecimal.valueOf(90), "消费", LocalDateTime.of(2026, 1, 1, 0, 0));
+
+        when(billingRecordRepository.findPage(any(BillingRecordQuery.class)))
                 .thenReturn(Arrays.asList(record1, record2));
 
-        var responses = billingService.getBillingRecords(1L);
+        BillingRecordPage page = billingService.getBillingRecords(1L, null, null, null, null, 20);
 
-        assertEquals(2, responses.size());
-        assertEquals("recharge", responses.get(0).getType());
-        assertEquals("usage", responses.get(1).getType());
+        assertEquals(2, page.getData().size());
+        assertEquals("recharge", page.getData().get(0).getType());
+        assertEquals("usage", page.getData().get(1).getType());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("账单记录分页：多取一条判断是否有下一页，游标定位到本页最后一条之后")
+    void getBillingRecords_KeysetPagination() {
+        BillingRecordRow newer = new BillingRecordRow(7L, BillingRecord.RecordType.USAGE, BigDecimal.ONE,
+                BigDecimal.TEN, "消费", LocalDateTime.of(2026, 1, 2, 12, 0, 0, 123_000_000));
+        BillingRecordRow older = new BillingRecordRow(5L, BillingRecord.RecordType.USAGE, BigDecimal.ONE,
+                BigDecimal.TEN, "消费", LocalDateTime.of(2026, 1, 1, 0, 0));
+        when(billingRecordRepository.findPage(any(BillingRecordQuery.class)))
+                .thenReturn(Arrays.asList(newer, older))
+                .thenReturn(List.of(older));
+
+        BillingRecordPage first = billingService.getBillingRecords(1L, "usage", LocalDate.of(2026, 1, 1),
+                LocalDate.of(2026, 1, 31), null, 1);
+        BillingRecordPage second = billingService.getBillingRecords(1L, "usage", LocalDate.of(2026, 1, 1),
+                LocalDate.of(2026, 1, 31), first.getNextCursor(), 1);
+
+        assertEquals(1, first.getData().size());
+        assertNotNull(first.getNextCursor());
+        assertNull(second.getNextCursor());
+        ArgumentCaptor<BillingRecordQuery> queries = ArgumentCaptor.forClass(BillingRecordQuery.class);
+        verify(billingRecordRepository, times(2)).findPage(queries.capture());
+        BillingRecordQuery firstQuery = queries.getAllValues().get(0);
+        assertEquals(2, firstQuery.limit());
+        assertEquals(BillingRecord.RecordType.USAGE, firstQuery.type());
+        assertEquals(LocalDateTime.of(2026, 1, 1, 0, 0), firstQuery.from());
+        assertEquals(LocalDateTime.of(2026, 2, 1, 0, 0), firstQuery.to());
+        assertNull(firstQuery.beforeCreatedAt());
+        BillingRecordQuery secondQuery = queries.getAllValues().get(1);
+        assertEquals(newer.createdAt(), secondQuery.beforeCreatedAt());
+        assertEquals(7L, secondQuery.beforeId());
+    }
+
+    @Test
+    @DisplayName("账单记录：无效的类型或游标返回错误")
+    void getBillingRecords_RejectsInvalidTypeAndCursor() {
+        assertThrows(RuntimeException.class, () -> billingService.getBillingRecords(1L, "refund", null, null, null, 20));
+        assertThrows(RuntimeException.class, () -> billingService.getBillingRecords(1L, null, null, null, "bm90LWEtY3Vyc29y", 20));
+        verify(billingRecordRepository, never()).findPage(any());
     }
 }
@@ -1,36 +1,129 @@
 package com.deepseek.apiplatform.service;
 
+import com.deepseek.apiplatform.backend.ModelBackendRegistry;
+import com.deepseek.apiplatform.backend.SimulatorBackend;
+import com.deepseek.apiplatform.billing.BalanceLedger;
+import com.deepseek.apiplatform.config.BulkheadConfig;
+import com.deepseek.apiplatform.config.ModelBackendConfig;
+import com.deepseek.apiplatform.config.PricingConfig;
+import com.deepseek.apiplatform.config.SimulationConfig;
+import com.deepseek.apiplatform.dto.ChatCompletionChunk;
 import com.deepseek.apiplatform.dto.ChatCompletionRequest;
 import com.deepseek.apiplatform.dto.ChatCompletionResponse;
 import com.deepseek.apiplatform.dto.ModelListResponse;
-import com.deepseek.apiplatform.entity.UsageStats;
-import com.deepseek.apiplatform.repository.UsageStatsRepository;
+import com.deepseek.apiplatform.repository.BalanceSnapshotRepository;
+import com.deepseek.apiplatform.repository.BillingRecordRepository;
+import com.deepseek.apiplatform.repository.LedgerEntryRepository;
+import com.deepseek.apiplatform.repository.UserRepository;
+import com.deepseek.apiplatform.simulation.WorkloadSimulator;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import com.deepseek.apiplatform.tokenizer.TokenCountCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ChatServiceTest {
 
     @Mock
-    private UsageStatsRepository usageStatsRepository;
+    private UsageAggregator usageAggregator;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BillingRecordRepository billingRecordRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceLedger balanceLedger;
+
+    private static BpeTokenizer tokenizer;
+
+    private TokenCountCache tokenCountCache;
+
+    private CompletionCache completionCache;
+
+    private PrefixCache prefixCache;
+
+    private PricingService pricingService = new PricingService(new PricingConfig());
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private WorkloadSimulator workloadSimulator;
+
+    private SimpleMeterRegistry meterRegistry;
 
     private ChatService chatService;
 
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = ChatServiceTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
     @BeforeEach
     void setUp() {
-        chatService = new ChatService(usageStatsRepository);
+        tokenCountCache = new TokenCountCache(tokenizer, new SimpleMeterRegistry(), 1000);
+        meterRegistry = new SimpleMeterRegistry();
+        completionCache = new CompletionCache(new ObjectMapper(), meterRegistry, DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+        prefixCache = new PrefixCache(tokenCountCache, meterRegistry, DataSize.ofMegabytes(1), Duration.ofMinutes(10), 64);
+        balanceLedger = new BalanceLedger(userRepository, ledgerEntryRepository, balanceSnapshotRepository,
+                billingRecordRepository, transactionManager, false, Duration.ofMinutes(1));
+        chatService = newChatService(new SimulationConfig());
+    }
+
+    private ChatService newChatService(SimulationConfig simulationConfig) {
+        workloadSimulator = new WorkloadSimulator(simulationConfig, tokenizer, executor, meterRegistry);
+        ModelBackendRegistry modelBackends = new ModelBackendRegistry(new ModelBackendConfig(),
+                new SimulatorBackend(tokenizer, workloadSimulator), new ObjectMapper(), tokenizer, executor, meterRegistry);
+        return new ChatService(usageAggregator, tokenCountCache, completionCache, prefixCache,
+                pricingService, modelBackends, new ModelBulkheads(new BulkheadConfig(), meterRegistry, executor), balanceLedger,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workloadSimulator.shutdown();
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
     }
 
     @Test
@@ -59,16 +152,6 @@ class ChatServiceTest {
         msg.setContent("Hello");
         request.setMessages(List.of(msg));
 
-        UsageStats stats = new UsageStats();
-        stats.setUserId(1L);
-        stats.setTotalTokens(0L);
-        stats.setPromptTokens(0L);
-        stats.setCompletionTokens(0L);
-        stats.setRequestCount(0L);
-
-        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.of(stats));
-        when(usageStatsRepository.save(any(UsageStats.class))).thenReturn(stats);
-
         ChatCompletionResponse response = chatService.chatCompletion(1L, request);
 
         assertNotNull(response);
@@ -83,12 +166,30 @@ class ChatServiceTest {
         assertNotNull(response.getUsage());
         assertTrue(response.getUsage().getTotalTokens() > 0);
 
-        verify(usageStatsRepository).save(any(UsageStats.class));
+        verify(usageAggregator).record(eq(1L), anyLong(), anyLong(), anyLong(), anyLong(), eq(1L));
+    }
+
+    @Test
+    @DisplayName("Chat Completion 按实际用量从余额扣费，预留的最大费用全部释放")
+    void chatCompletion_ChargesActualCost() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        ChatCompletionResponse response = chatService.chatCompletion(1L, request);
+
+        long cost = pricingService.cost("deepseek-chat", response.getUsage());
+        assertTrue(cost > 0);
+        assertEquals(-cost, balanceLedger.balance(1L));
     }
 
     @Test
-    @DisplayName("Chat Completion - 无用量统计时创建")
-    void chatCompletion_CreatesUsageStats_WhenNotExists() {
+    @DisplayName("Chat Completion - 用量写入聚合器")
+    void chatCompletion_RecordsUsageInAggregator() {
         ChatCompletionRequest request = new ChatCompletionRequest();
         request.setModel("deepseek-chat");
         
@@ -97,17 +198,214 @@ class ChatServiceTest {
         msg.setContent("Test");
         request.setMessages(List.of(msg));
 
-        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.empty());
-        when(usageStatsRepository.save(any(UsageStats.class))).thenAnswer(invocation -> {
-            UsageStats s = invocation.getArgument(0);
-            s.setId(1L);
-            return s;
-        });
+        ChatCompletionResponse response = chatService.chatCompletion(1L, request);
+
+        verify(usageAggregator).record(1L, 
+                (long) response.getUsage().getPromptTokens(), 
+                0L,
+                (long) response.getUsage().getCompletionTokens(),
+                pricingService.cost("deepseek-chat", response.getUsage()),
+                1L);
+    }
+
+    @Test
+    @DisplayName("Chat Completion - 按分词器计算 token 数")
+    void chatCompletion_CountsTokensWithTokenizer() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        
+        ChatCompletionRequest.Message system = new ChatCompletionRequest.Message();
+        system.setRole("system");
+        system.setContent("你是一个乐于助人的助手。");
+        ChatCompletionRequest.Message user = new ChatCompletionRequest.Message();
+        user.setRole("user");
+        user.setContent("请解释一下什么是数据库索引");
+        request.setMessages(List.of(system, user));
 
         ChatCompletionResponse response = chatService.chatCompletion(1L, request);
 
-        assertNotNull(response);
-        verify(usageStatsRepository, times(2)).save(any(UsageStats.class));
+        int expectedPrompt = 3 + 4 + tokenizer.countTokens(system.getContent())
+                + 4 + tokenizer.countTokens(user.getContent());
+        assertEquals(expectedPrompt, response.getUsage().getPromptTokens());
+        assertEquals(tokenizer.countTokens(response.getChoices().get(0).getMessage().getContent()),
+                response.getUsage().getCompletionTokens());
+    }
+
+    @Test
+    @DisplayName("Chat Completion - 多轮对话只对新消息分词")
+    void chatCompletion_ReusesCountsForEarlierTurns() {
+        ChatCompletionRequest.Message first = new ChatCompletionRequest.Message();
+        first.setRole("user");
+        first.setContent("请解释一下什么是数据库索引");
+        ChatCompletionRequest.Message reply = new ChatCompletionRequest.Message();
+        reply.setRole("assistant");
+        reply.setContent("索引就像一本书的目录。");
+        ChatCompletionRequest.Message second = new ChatCompletionRequest.Message();
+        second.setRole("user");
+        second.setContent("那它有什么代价？");
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setMessages(List.of(first));
+        chatService.chatCompletion(1L, request);
+        request.setMessages(List.of(first, reply, second));
+        ChatCompletionResponse response = chatService.chatCompletion(1L, request);
+
+        // the first turn is looked up twice: once for prompt_tokens, once for the prefix cache hit
+        assertEquals(2, tokenCountCache.stats().hitCount());
+        assertEquals(3, tokenCountCache.stats().missCount());
+        assertEquals(3 + 12 + tokenizer.countTokens(first.getContent()) + tokenizer.countTokens(reply.getContent())
+                + tokenizer.countTokens(second.getContent()), response.getUsage().getPromptTokens());
+    }
+
+    @Test
+    @DisplayName("上下文缓存 - 重复的系统提示词按 64 token 块命中并折价计费")
+    void chatCompletion_ReportsPromptCacheHits() {
+        ChatCompletionRequest.Message system = new ChatCompletionRequest.Message();
+        system.setRole("system");
+        system.setContent("你是一个严谨的代码审查助手，请逐条列出问题并给出修改建议。".repeat(10));
+        ChatCompletionRequest.Message first = new ChatCompletionRequest.Message();
+        first.setRole("user");
+        first.setContent("请审查这段代码");
+        ChatCompletionRequest.Message second = new ChatCompletionRequest.Message();
+        second.setRole("user");
+        second.setContent("再看看另一段");
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setMessages(List.of(system, first));
+        ChatCompletionResponse cold = chatService.chatCompletion(1L, request);
+        request.setMessages(List.of(system, second));
+        ChatCompletionResponse warm = chatService.chatCompletion(1L, request);
+        ChatCompletionResponse otherUser = chatService.chatCompletion(2L, request);
+
+        assertEquals(0, cold.getUsage().getPromptCacheHitTokens());
+        assertEquals(cold.getUsage().getPromptTokens(), cold.getUsage().getPromptCacheMissTokens());
+
+        int systemTokens = 4 + tokenizer.countTokens(system.getContent());
+        ChatCompletionResponse.Usage usage = warm.getUsage();
+        assertEquals(systemTokens / 64 * 64, usage.getPromptCacheHitTokens());
+        assertEquals(usage.getPromptTokens() - usage.getPromptCacheHitTokens(), usage.getPromptCacheMissTokens());
+        assertEquals(0, otherUser.getUsage().getPromptCacheHitTokens());
+
+        assertTrue(pricingService.cost("deepseek-chat", usage) < pricingService.cost("deepseek-chat", otherUser.getUsage()));
+        verify(usageAggregator).record(1L, (long) usage.getPromptTokens(), (long) usage.getPromptCacheHitTokens(),
+                (long) usage.getCompletionTokens(), pricingService.cost("deepseek-chat", usage), 1L);
+    }
+
+    @Test
+    @DisplayName("确定性请求 - temperature 为 0 或指定 seed")
+    void isDeterministic() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        assertFalse(ChatService.isDeterministic(request));
+
+        request.setTemperature(0.7);
+        assertFalse(ChatService.isDeterministic(request));
+
+        request.setTemperature(0.0);
+        assertTrue(ChatService.isDeterministic(request));
+
+        request.setTemperature(1.0);
+        request.setSeed(42L);
+        assertTrue(ChatService.isDeterministic(request));
+    }
+
+    @Test
+    @DisplayName("确定性请求 - 每个调用方独立计费并获得独立 id")
+    void chatCompletion_DeterministicCallersBilledSeparately() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setTemperature(0.0);
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        ChatCompletionResponse first = chatService.chatCompletion(1L, request);
+        ChatCompletionResponse second = chatService.chatCompletion(2L, request);
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getChoices().get(0).getMessage().getContent(), second.getChoices().get(0).getMessage().getContent());
+        verify(usageAggregator).record(eq(1L), anyLong(), anyLong(), anyLong(), anyLong(), eq(1L));
+        verify(usageAggregator).record(eq(2L), anyLong(), anyLong(), anyLong(), anyLong(), eq(1L));
+        assertNotNull(meterRegistry.find("chat.completions.coalesced").functionCounter());
+    }
+
+    @Test
+    @DisplayName("确定性请求 - 重复请求命中响应缓存并照常计费")
+    void chatCompletion_RepeatedDeterministicRequestHitsCache() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setSeed(7L);
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        ChatCompletionResponse first = chatService.chatCompletion(1L, request);
+        ChatCompletionResponse second = chatService.chatCompletion(1L, request);
+
+        assertEquals(1, completionCache.stats().hitCount());
+        assertEquals(first.getChoices().get(0).getMessage().getContent(), second.getChoices().get(0).getMessage().getContent());
+        assertEquals(first.getUsage().getTotalTokens(), second.getUsage().getTotalTokens());
+        verify(usageAggregator, times(2)).record(eq(1L), anyLong(), anyLong(), anyLong(), anyLong(), eq(1L));
+    }
+
+    @Test
+    @DisplayName("响应缓存 - no-store 与非确定性请求不读写缓存")
+    void chatCompletion_BypassesCache() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        chatService.chatCompletion(1L, request);
+        request.setTemperature(0.0);
+        chatService.chatCompletion(1L, request, CompletionCache.Mode.BYPASS);
+        chatService.chatCompletion(1L, request, CompletionCache.Mode.BYPASS);
+
+        assertEquals(0, completionCache.stats().requestCount());
+        assertEquals(0, completionCache.weightedSize());
+
+        chatService.chatCompletion(1L, request, CompletionCache.Mode.REFRESH);
+        completionCache.cleanUp();
+        assertEquals(0, completionCache.stats().requestCount());
+        assertTrue(completionCache.weightedSize() > 0);
+    }
+
+    @Test
+    @DisplayName("负载模拟 - 按配置的长度生成并在首 token 延迟后返回")
+    void chatCompletionAsync_SimulatesWorkload() throws Exception {
+        SimulationConfig.Profile profile = new SimulationConfig.Profile();
+        profile.setTimeToFirstToken(Duration.ofMillis(100));
+        profile.setTokensPerSecond(2000.0);
+        profile.setCompletionTokens(40);
+        SimulationConfig config = new SimulationConfig();
+        config.setEnabled(true);
+        config.setDefaults(profile);
+        chatService = newChatService(config);
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        long start = System.nanoTime();
+        CompletableFuture<ChatCompletionResponse> future = chatService.chatCompletionAsync(1L, request, CompletionCache.Mode.DEFAULT);
+        assertFalse(future.isDone());
+        verifyNoInteractions(usageAggregator);
+
+        ChatCompletionResponse response = future.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(40, response.getUsage().getCompletionTokens());
+        assertEquals("stop", response.getChoices().get(0).getFinishReason());
+        verify(usageAggregator).record(eq(1L), anyLong(), anyLong(), eq(40L), anyLong(), eq(1L));
+
+        request.setMaxTokens(10);
+        List<ChatCompletionChunk> chunks = new ArrayList<>();
+        chatService.streamChatCompletion(1L, request, chunks::add).get(5, TimeUnit.SECONDS);
+        assertEquals("length", chunks.get(chunks.size() - 1).getChoices().get(0).getFinishReason());
     }
 
     @Test
@@ -121,16 +419,6 @@ class ChatServiceTest {
         msg.setContent("Test");
         request.setMessages(List.of(msg));
 
-        UsageStats stats = new UsageStats();
-        stats.setUserId(1L);
-        stats.setTotalTokens(0L);
-        stats.setPromptTokens(0L);
-        stats.setCompletionTokens(0L);
-        stats.setRequestCount(0L);
-
-        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.of(stats));
-        when(usageStatsRepository.save(any(UsageStats.class))).thenReturn(stats);
-
         ChatCompletionResponse response = chatService.chatCompletion(1L, request);
 
         assertEquals("deepseek-chat", response.getModel());
@@ -143,19 +431,49 @@ class ChatServiceTest {
         request.setModel("deepseek-chat");
         request.setMessages(new ArrayList<>());
 
-        UsageStats stats = new UsageStats();
-        stats.setUserId(1L);
-        stats.setTotalTokens(0L);
-        stats.setPromptTokens(0L);
-        stats.setCompletionTokens(0L);
-        stats.setRequestCount(0L);
-
-        when(usageStatsRepository.findByUserId(1L)).thenReturn(Optional.of(stats));
-        when(usageStatsRepository.save(any(UsageStats.class))).thenReturn(stats);
-
         ChatCompletionResponse response = chatService.chatCompletion(1L, request);
 
         assertNotNull(response);
         assertNotNull(response.getChoices().get(0).getMessage().getContent());
     }
+
+    @Test
+    @DisplayName("Stream Chat Completion - 按顺序输出分块并附带用量")
+    void streamChatCompletion_EmitsChunksAndUsage() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("deepseek-chat");
+        request.setStream(true);
+        ChatCompletionRequest.StreamOptions options = new ChatCompletionRequest.StreamOptions();
+        options.setIncludeUsage(true);
+        request.setStreamOptions(options);
+        
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent("Hello");
+        request.setMessages(List.of(msg));
+
+        List<ChatCompletionChunk> chunks = new ArrayList<>();
+        chatService.streamChatCompletion(1L, request, chunks::add);
+
+        assertTrue(chunks.size() > 3);
+        assertTrue(chunks.stream().allMatch(c -> c.getId().equals(chunks.get(0).getId())));
+        assertEquals("assistant", chunks.get(0).getChoices().get(0).getDelta().getRole());
+
+        StringBuilder content = new StringBuilder();
+        for (ChatCompletionChunk chunk : chunks.subList(1, chunks.size() - 2)) {
+            assertNull(chunk.getChoices().get(0).getFinishReason());
+            content.append(chunk.getChoices().get(0).getDelta().getContent());
+        }
+        assertEquals("Hello! I'm DeepSeek AI assistant. How can I help you today?", content.toString());
+
+        ChatCompletionChunk finish = chunks.get(chunks.size() - 2);
+        assertEquals("stop", finish.getChoices().get(0).getFinishReason());
+
+        ChatCompletionChunk usageChunk = chunks.get(chunks.size() - 1);
+        assertTrue(usageChunk.getChoices().isEmpty());
+        assertEquals(usageChunk.getUsage().getPromptTokens() + usageChunk.getUsage().getCompletionTokens(),
+                usageChunk.getUsage().getTotalTokens());
+
+        verify(usageAggregator).record(eq(1L), anyLong(), anyLong(), anyLong(), anyLong(), eq(1L));
+    }
 }
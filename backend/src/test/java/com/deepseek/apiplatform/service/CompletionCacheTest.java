@@ -0,0 +1,103 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.simulation.LatencySchedule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CompletionCache completionCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        completionCache = new CompletionCache(new ObjectMapper(), meterRegistry, DataSize.ofKilobytes(16), Duration.ofMinutes(10));
+    }
+
+    @Test
+    @DisplayName("存取 - 反序列化后内容一致")
+    void putAndGet() {
+        CompletionKey key = key("你好");
+        Generation generation = new Generation("deepseek-chat", "你好！有什么可以帮你？", 12, 8);
+
+        assertNull(completionCache.get(key));
+        completionCache.put(key, generation);
+
+        assertEquals(generation, completionCache.get(key));
+        assertEquals(1, completionCache.stats().hitCount());
+        assertEquals(1, completionCache.stats().missCount());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "completions").gauge().value());
+    }
+
+    @Test
+    @DisplayName("存取 - 不缓存模拟时间线")
+    void putAndGet_DropsSchedule() {
+        CompletionKey key = key("hello");
+        LatencySchedule schedule = new LatencySchedule(System.nanoTime(), new long[] {1_000_000L, 2_000_000L});
+        completionCache.put(key, new Generation("deepseek-chat", "Hi there", 9, 2, "length", schedule));
+
+        Generation cached = completionCache.get(key);
+
+        assertEquals("length", cached.finishReason());
+        assertNull(cached.schedule());
+    }
+
+    @Test
+    @DisplayName("请求键 - 角色大小写与空白不影响命中")
+    void keyNormalizesRole() {
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole(" User");
+        msg.setContent("hi");
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setTemperature(-0.0);
+        request.setMessages(List.of(msg));
+
+        assertEquals(key("hi"), CompletionKey.of("deepseek-chat", request));
+    }
+
+    @Test
+    @DisplayName("淘汰 - 按字节数限制缓存大小")
+    void boundedByBytes() {
+        String content = "x".repeat(1000);
+        for (int i = 0; i < 100; i++) {
+            completionCache.put(key("prompt " + i), new Generation("deepseek-chat", content, 10, 250));
+        }
+        completionCache.cleanUp();
+
+        assertTrue(completionCache.weightedSize() <= DataSize.ofKilobytes(16).toBytes());
+        assertTrue(completionCache.weightedSize() > 0);
+        assertEquals(completionCache.weightedSize(),
+                meterRegistry.get("cache.memory.estimated").tag("cache", "completions").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Cache-Control - no-cache 跳过读取，no-store 跳过读写")
+    void modeFromCacheControl() {
+        assertEquals(CompletionCache.Mode.DEFAULT, CompletionCache.Mode.fromCacheControl(null));
+        assertEquals(CompletionCache.Mode.DEFAULT, CompletionCache.Mode.fromCacheControl("max-age=60"));
+        assertEquals(CompletionCache.Mode.REFRESH, CompletionCache.Mode.fromCacheControl("no-cache"));
+        assertEquals(CompletionCache.Mode.BYPASS, CompletionCache.Mode.fromCacheControl("No-Cache, No-Store"));
+    }
+
+    private static CompletionKey key(String content) {
+        ChatCompletionRequest.Message msg = new ChatCompletionRequest.Message();
+        msg.setRole("user");
+        msg.setContent(content);
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setTemperature(0.0);
+        request.setMessages(List.of(msg));
+        return CompletionKey.of("deepseek-chat", request);
+    }
+}
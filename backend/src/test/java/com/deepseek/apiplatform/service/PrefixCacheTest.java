@@ -0,0 +1,119 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.dto.ChatCompletionRequest;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import com.deepseek.apiplatform.tokenizer.TokenCountCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixCacheTest {
+
+    private static BpeTokenizer tokenizer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PrefixCache prefixCache;
+
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = PrefixCacheTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        TokenCountCache tokenCountCache = new TokenCountCache(tokenizer, meterRegistry, 1000);
+        prefixCache = new PrefixCache(tokenCountCache, meterRegistry, DataSize.ofKilobytes(64), Duration.ofMinutes(10), 1);
+    }
+
+    @Test
+    @DisplayName("命中 - 只计算与历史请求相同的前缀消息")
+    void matchesLongestSeenPrefix() {
+        ChatCompletionRequest.Message system = message("system", "You are a helpful assistant.");
+        ChatCompletionRequest.Message first = message("user", "What is an index?");
+        ChatCompletionRequest.Message other = message("user", "What is a view?");
+
+        assertEquals(0, prefixCache.match(1L, "deepseek-chat", List.of(system, first)));
+        assertEquals(tokens(system), prefixCache.match(1L, "deepseek-chat", List.of(system, other)));
+        assertEquals(tokens(system) + tokens(first),
+                prefixCache.match(1L, "deepseek-chat", List.of(system, first, message("assistant", "A lookup structure."))));
+        assertEquals(0, prefixCache.match(1L, "deepseek-chat", List.of(first, system)));
+    }
+
+    @Test
+    @DisplayName("隔离 - 不同用户与不同模型互不命中")
+    void isolatesUsersAndModels() {
+        List<ChatCompletionRequest.Message> messages = List.of(message("system", "You are a helpful assistant."));
+        prefixCache.match(1L, "deepseek-chat", messages);
+
+        assertEquals(0, prefixCache.match(2L, "deepseek-chat", messages));
+        assertEquals(0, prefixCache.match(1L, "deepseek-coder", messages));
+        assertEquals(tokens(messages.get(0)), prefixCache.match(1L, "deepseek-chat", messages));
+    }
+
+    @Test
+    @DisplayName("摘要 - 角色与内容的边界不同、消息拆分不同都不会命中")
+    void digestSeparatesRoleContentAndMessages() {
+        String prompt = "You are a helpful assistant. ".repeat(20);
+        prefixCache.match(1L, "deepseek-chat", List.of(message("user", prompt)));
+
+        assertEquals(0, prefixCache.match(1L, "deepseek-chat", List.of(message("us", "er" + prompt))));
+        assertEquals(0, prefixCache.match(1L, "deepseek-chat",
+                List.of(message("user", prompt.substring(0, 10)), message("user", prompt.substring(10)))));
+        assertTrue(prefixCache.match(1L, "deepseek-chat", List.of(message("user", prompt))) > 0);
+    }
+
+    @Test
+    @DisplayName("按块计数 - 不足一块的前缀不计为命中")
+    void roundsDownToBlocks() {
+        TokenCountCache tokenCountCache = new TokenCountCache(tokenizer, new SimpleMeterRegistry(), 1000);
+        PrefixCache blocks = new PrefixCache(tokenCountCache, new SimpleMeterRegistry(), DataSize.ofKilobytes(64), Duration.ofMinutes(10), 64);
+        ChatCompletionRequest.Message shortPrompt = message("system", "Be brief.");
+        ChatCompletionRequest.Message longPrompt = message("system", "Answer as a senior database engineer. ".repeat(20));
+
+        blocks.match(1L, "deepseek-chat", List.of(shortPrompt));
+        blocks.match(1L, "deepseek-chat", List.of(longPrompt));
+
+        assertEquals(0, blocks.match(1L, "deepseek-chat", List.of(shortPrompt)));
+        assertEquals(tokens(longPrompt) / 64 * 64, blocks.match(1L, "deepseek-chat", List.of(longPrompt)));
+    }
+
+    @Test
+    @DisplayName("容量 - 条目数受内存上限约束")
+    void boundedByMemory() {
+        for (int i = 0; i < 5000; i++) {
+            prefixCache.match((long) i, "deepseek-chat", List.of(message("user", "hi")));
+        }
+        prefixCache.cleanUp();
+
+        assertTrue(prefixCache.estimatedSize() * PrefixCache.ENTRY_BYTES <= DataSize.ofKilobytes(64).toBytes());
+        assertTrue(prefixCache.weightedSize() <= DataSize.ofKilobytes(64).toBytes());
+        assertEquals(prefixCache.estimatedSize() * PrefixCache.ENTRY_BYTES, prefixCache.weightedSize());
+        assertEquals(prefixCache.weightedSize(),
+                meterRegistry.get("cache.memory.estimated").tag("cache", "promptPrefixes").gauge().value());
+    }
+
+    private static int tokens(ChatCompletionRequest.Message message) {
+        return ChatService.MESSAGE_OVERHEAD_TOKENS + tokenizer.countTokens(message.getContent());
+    }
+
+    private static ChatCompletionRequest.Message message(String role, String content) {
+        ChatCompletionRequest.Message message = new ChatCompletionRequest.Message();
+        message.setRole(role);
+        message.setContent(content);
+        return message;
+    }
+}
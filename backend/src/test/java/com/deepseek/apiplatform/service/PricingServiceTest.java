@@ -0,0 +1,95 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.config.PricingConfig;
+import com.deepseek.apiplatform.dto.ChatCompletionResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingServiceTest {
+
+    private final PricingService pricingService = new PricingService(new PricingConfig());
+
+    private static long at(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+
+    private static PricingService withOffPeak() {
+        PricingConfig config = new PricingConfig();
+        config.getOffPeak().setEnabled(true);
+        return new PricingService(config);
+    }
+
+    @Test
+    @DisplayName("计费 - 缓存命中按折扣价计算")
+    void cost_DiscountsCacheHits() {
+        assertEquals(3_100, pricingService.cost("deepseek-chat", 1000, 1000, 1000));
+        assertEquals(3_000, pricingService.cost("deepseek-chat", 0, 1000, 1000));
+        assertEquals(2_200, pricingService.cost("deepseek-reasoner", 1000, 0, 500));
+    }
+
+    @Test
+    @DisplayName("计费 - 未知模型按 deepseek-chat 计价")
+    void cost_UnknownModelUsesDefault() {
+        ChatCompletionResponse.Usage usage = new ChatCompletionResponse.Usage();
+        usage.setPromptCacheHitTokens(64);
+        usage.setPromptCacheMissTokens(36);
+        usage.setCompletionTokens(50);
+
+        assertEquals(pricingService.cost("deepseek-chat", usage), pricingService.cost("unknown", usage));
+    }
+
+    @Test
+    @DisplayName("计费 - 不足一微元的部分四舍五入")
+    void cost_RoundsToNearestMicro() {
+        assertEquals(0, pricingService.cost("deepseek-chat", 4, 0, 0));
+        assertEquals(1, pricingService.cost("deepseek-chat", 5, 0, 0));
+        assertEquals(1, pricingService.cost("deepseek-chat", 0, 1, 0));
+    }
+
+    @Test
+    @DisplayName("错峰时段按模型折扣计价，时段可以跨越午夜")
+    void costAt_AppliesOffPeakDiscount() {
+        PricingService offPeak = withOffPeak();
+
+        assertEquals(3_000, offPeak.costAt("deepseek-chat", 0, 1000, 1000, at("2026-01-01T12:00:00Z")));
+        assertEquals(1_500, offPeak.costAt("deepseek-chat", 0, 1000, 1000, at("2026-01-01T16:30:00Z")));
+        assertEquals(1_500, offPeak.costAt("deepseek-chat", 0, 1000, 1000, at("2026-01-02T00:29:59Z")));
+        assertEquals(3_000, offPeak.costAt("deepseek-chat", 0, 1000, 1000, at("2026-01-02T00:30:00Z")));
+        assertEquals(1_500, offPeak.costAt("deepseek-reasoner", 0, 1000, 1000, at("2026-01-01T20:00:00Z")));
+        assertEquals(6_000, offPeak.maxCost("deepseek-reasoner", 0, 1000, 1000));
+    }
+
+    @Test
+    @DisplayName("定价文件变化后重新加载，解析失败时保留原价格")
+    void reloadIfChanged_SwapsTableFromFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("pricing.yml");
+        Files.writeString(file, """
+                pricing:
+                  models:
+                    deepseek-chat:
+                      cache-hit-input: 0.5
+                      cache-miss-input: 4
+                      output: 8
+                """);
+        PricingConfig config = new PricingConfig();
+        config.setFile(file.toString());
+        PricingService reloading = new PricingService(config);
+
+        assertEquals(12_000, reloading.cost("deepseek-chat", 0, 1000, 1000));
+        assertEquals(4_500, reloading.cost("deepseek-coder", 0, 1000, 1000));
+
+        Files.writeString(file, "pricing:\n  default-model: missing\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        reloading.reloadIfChanged();
+
+        assertEquals(12_000, reloading.cost("deepseek-chat", 0, 1000, 1000));
+    }
+}
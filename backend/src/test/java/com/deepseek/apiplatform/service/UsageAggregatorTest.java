@@ -0,0 +1,176 @@
+package com.deepseek.apiplatform.service;
+
+import com.deepseek.apiplatform.entity.UsageStats;
+import com.deepseek.apiplatform.repository.UsageStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsageAggregatorTest {
+
+    @Mock
+    private UsageStatsRepository usageStatsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UsageAggregator usageAggregator;
+
+    @BeforeEach
+    void setUp() {
+        usageAggregator = new UsageAggregator(usageStatsRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("并发累加不丢失")
+    void record_ConcurrentIncrementsAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    usageAggregator.record(1L, 3, 7);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        UsageAggregator.Totals totals = usageAggregator.pending(1L);
+        assertEquals(240_000L, totals.promptTokens());
+        assertEquals(560_000L, totals.completionTokens());
+        assertEquals(80_000L, totals.requestCount());
+        assertEquals(800_000L, totals.totalTokens());
+    }
+
+    @Test
+    @DisplayName("刷新时增量写入已有记录")
+    void flush_IncrementsExistingRow() {
+        when(usageStatsRepository.incrementUsage(eq(1L), eq(50L), eq(0L), eq(150L), eq(new BigDecimal("0.000000")), eq(2L), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        usageAggregator.record(1L, 20, 100);
+        usageAggregator.record(1L, 30, 50);
+        usageAggregator.flush();
+
+        verify(usageStatsRepository).incrementUsage(eq(1L), eq(50L), eq(0L), eq(150L), eq(new BigDecimal("0.000000")), eq(2L), any(LocalDateTime.class));
+        verify(usageStatsRepository, never()).save(any());
+        assertEquals(0L, usageAggregator.pending(1L).requestCount());
+    }
+
+    @Test
+    @DisplayName("缓存命中 token 与费用随增量一起写入")
+    void flush_IncludesCacheHitTokensAndCost() {
+        when(usageStatsRepository.incrementUsage(eq(1L), anyLong(), anyLong(), anyLong(), any(BigDecimal.class), anyLong(), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        usageAggregator.record(1L, 200, 128, 50, 200, 1);
+        usageAggregator.record(1L, 100, 64, 10, 50, 1);
+        assertEquals(192L, usageAggregator.pending(1L).promptCacheHitTokens());
+        usageAggregator.flush();
+
+        verify(usageStatsRepository).incrementUsage(eq(1L), eq(300L), eq(192L), eq(60L), eq(new BigDecimal("0.000250")), eq(2L), any(LocalDateTime.class));
+        assertEquals(0, usageAggregator.pending(1L).costMicros());
+    }
+
+    @Test
+    @DisplayName("刷新时无记录则插入")
+    void flush_InsertsMissingRow() {
+        when(usageStatsRepository.incrementUsage(eq(1L), anyLong(), anyLong(), anyLong(), any(BigDecimal.class), anyLong(), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        usageAggregator.record(1L, 10, 40);
+        usageAggregator.flush();
+
+        ArgumentCaptor<UsageStats> captor = ArgumentCaptor.forClass(UsageStats.class);
+        verify(usageStatsRepository).save(captor.capture());
+        assertEquals(1L, captor.getValue().getUserId());
+        assertEquals(50L, captor.getValue().getTotalTokens());
+        assertEquals(1L, captor.getValue().getRequestCount());
+    }
+
+    @Test
+    @DisplayName("刷新后无新增量的用户不再占用缓冲")
+    void flush_DropsUsersWithoutNewUsage() {
+        when(usageStatsRepository.incrementUsage(anyLong(), anyLong(), anyLong(), anyLong(), any(BigDecimal.class), anyLong(), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        usageAggregator.record(1L, 10, 40);
+        usageAggregator.record(2L, 5, 5);
+        usageAggregator.flush();
+        usageAggregator.record(2L, 5, 5);
+        usageAggregator.flush();
+
+        assertEquals(1, usageAggregator.trackedUsers());
+        usageAggregator.flush();
+        assertEquals(0, usageAggregator.trackedUsers());
+    }
+
+    @Test
+    @DisplayName("刷新回收缓冲时并发累加不丢失")
+    void flush_ConcurrentRecordsAreNotLostWhenBuffersAreDropped() throws Exception {
+        AtomicLong flushedRequests = new AtomicLong();
+        when(usageStatsRepository.incrementUsage(eq(1L), anyLong(), anyLong(), anyLong(), any(BigDecimal.class), anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    flushedRequests.addAndGet(invocation.<Long>getArgument(5));
+                    return 1;
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 5_000; j++) {
+                    usageAggregator.record(1L, 1, 1);
+                    LockSupport.parkNanos(1_000);
+                }
+            });
+        }
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            usageAggregator.flush();
+        }
+        usageAggregator.flush();
+
+        assertEquals(20_000L, flushedRequests.get() + usageAggregator.pending(1L).requestCount());
+    }
+
+    @Test
+    @DisplayName("无增量时不访问数据库")
+    void flush_NothingPending_SkipsDatabase() {
+        usageAggregator.flush();
+
+        verifyNoInteractions(usageStatsRepository);
+    }
+
+    @Test
+    @DisplayName("写库失败时增量保留待重试")
+    void flush_FailureKeepsDeltas() {
+        when(usageStatsRepository.incrementUsage(eq(1L), anyLong(), anyLong(), anyLong(), any(BigDecimal.class), anyLong(), any(LocalDateTime.class)))
+                .thenThrow(new RuntimeException("database is locked"));
+
+        usageAggregator.record(1L, 10, 40);
+        usageAggregator.flush();
+
+        assertEquals(50L, usageAggregator.pending(1L).totalTokens());
+        assertEquals(1L, usageAggregator.pending(1L).requestCount());
+    }
+}
@@ -0,0 +1,155 @@
+package com.deepseek.apiplatform.simulation;
+
+import com.deepseek.apiplatform.config.SimulationConfig;
+import com.deepseek.apiplatform.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadSimulatorTest {
+
+    private static BpeTokenizer tokenizer;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private WorkloadSimulator simulator;
+
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = WorkloadSimulatorTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (simulator != null) {
+            simulator.shutdown();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("未启用时不模拟")
+    void begin_Disabled_ReturnsNull() {
+        simulator = new WorkloadSimulator(new SimulationConfig(), tokenizer, executor, new SimpleMeterRegistry());
+
+        assertNull(simulator.begin("deepseek-chat", 42L));
+    }
+
+    @Test
+    @DisplayName("相同 seed 得到相同的长度与时间线")
+    void begin_SameSeed_IsReproducible() {
+        SimulationConfig.Profile profile = new SimulationConfig.Profile();
+        profile.setTimeToFirstToken(Duration.ofMillis(300));
+        profile.setTimeToFirstTokenSigma(0.5);
+        profile.setTokensPerSecond(50.0);
+        profile.setInterTokenSigma(0.3);
+        profile.setCompletionTokens(200);
+        profile.setCompletionTokensSigma(0.8);
+        profile.setMaxCompletionTokens(400);
+        simulator = new WorkloadSimulator(config(profile), tokenizer, executor, new SimpleMeterRegistry());
+
+        WorkloadSimulator.Workload first = simulator.begin("deepseek-chat", 7L);
+        WorkloadSimulator.Workload second = simulator.begin("deepseek-chat", 7L);
+        int tokens = first.sampleCompletionTokens();
+
+        assertEquals(tokens, second.sampleCompletionTokens());
+        assertTrue(tokens >= 1 && tokens <= 400);
+        LatencySchedule a = first.schedule(tokens);
+        LatencySchedule b = second.schedule(tokens);
+        assertArrayEquals(a.tokenOffsetsNanos(), b.tokenOffsetsNanos());
+        assertTrue(a.tokenOffsetsNanos()[0] > 0);
+        for (int i = 1; i < tokens; i++) {
+            assertTrue(a.tokenOffsetsNanos()[i] >= a.tokenOffsetsNanos()[i - 1]);
+        }
+    }
+
+    @Test
+    @DisplayName("按目标长度截断或补齐回复")
+    void compose_MatchesTargetTokens() {
+        simulator = new WorkloadSimulator(config(new SimulationConfig.Profile()), tokenizer, executor, new SimpleMeterRegistry());
+        WorkloadSimulator.Workload workload = simulator.begin("deepseek-chat", 1L);
+        String reply = "Hello! I'm DeepSeek AI assistant. How can I help you today?";
+
+        for (int target : new int[] {1, 5, 50, 500}) {
+            String text = workload.compose(reply, target);
+            assertEquals(target, tokenizer.countTokens(text), text);
+        }
+        assertTrue(workload.compose(reply, 500).startsWith(reply));
+    }
+
+    @Test
+    @DisplayName("等待期间不占用线程")
+    void deliverAt_ManyWaitingGenerations() throws Exception {
+        simulator = new WorkloadSimulator(config(new SimulationConfig.Profile()), tokenizer, executor, new SimpleMeterRegistry());
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            futures.add(simulator.deliverAt(due, i));
+        }
+        assertTrue(simulator.waiting() > 0);
+        assertFalse(futures.get(0).isDone());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() >= due);
+        assertEquals(19_999, futures.get(19_999).join());
+    }
+
+    @Test
+    @DisplayName("按时间顺序逐个输出")
+    void emit_InOrderAfterDueTimes() throws Exception {
+        simulator = new WorkloadSimulator(config(new SimulationConfig.Profile()), tokenizer, executor, new SimpleMeterRegistry());
+        long start = System.nanoTime();
+        long[] due = {start, start + TimeUnit.MILLISECONDS.toNanos(30), start + TimeUnit.MILLISECONDS.toNanos(60)};
+        List<Long> emittedAt = Collections.synchronizedList(new ArrayList<>());
+        List<String> items = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> done = simulator.emit(List.of("a", "b", "c"), due, item -> {
+            emittedAt.add(System.nanoTime());
+            items.add(item);
+        });
+        assertEquals(List.of("a"), items);
+
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("a", "b", "c"), items);
+        for (int i = 0; i < due.length; i++) {
+            assertTrue(emittedAt.get(i) >= due[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("下游异常时结束输出")
+    void emit_SinkFailure_CompletesExceptionally() {
+        simulator = new WorkloadSimulator(config(new SimulationConfig.Profile()), tokenizer, executor, new SimpleMeterRegistry());
+
+        CompletableFuture<Void> done = simulator.emit(List.of("a", "b"), null, item -> {
+            throw new IllegalStateException("client gone");
+        });
+
+        assertTrue(done.isCompletedExceptionally());
+    }
+
+    private static SimulationConfig config(SimulationConfig.Profile defaults) {
+        SimulationConfig config = new SimulationConfig();
+        config.setEnabled(true);
+        config.setDefaults(defaults);
+        return config;
+    }
+}
@@ -0,0 +1,100 @@
+package com.deepseek.apiplatform.tokenizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BpeTokenizerTest {
+
+    private static BpeTokenizer tokenizer;
+
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = BpeTokenizerTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @Test
+    @DisplayName("与 bpe.py 参考实现在样例语料上的结果一致 (非官方分词器)")
+    void encode_MatchesReferenceFixtures() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> fixtures = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BpeTokenizerTest.class.getResourceAsStream("/tokenizer/fixtures.jsonl"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    fixtures.add(mapper.readTree(line));
+                }
+            }
+        }
+        assertFalse(fixtures.isEmpty());
+
+        for (JsonNode fixture : fixtures) {
+            String text = fixture.get("text").asText();
+            int[] expected = mapper.convertValue(fixture.get("ids"), int[].class);
+
+            assertArrayEquals(expected, tokenizer.encode(text), text);
+            assertEquals(fixture.get("tokens").asInt(), tokenizer.countTokens(text), text);
+        }
+    }
+
+    @Test
+    @DisplayName("中文按词合并，token 数明显少于字节数")
+    void countTokens_ChineseIsMerged() {
+        String text = "请问有什么可以帮你的吗";
+
+        int tokens = tokenizer.countTokens(text);
+
+        assertTrue(tokens < text.length());
+        assertTrue(tokens > 0);
+    }
+
+    @Test
+    @DisplayName("空文本为 0 个 token")
+    void countTokens_Empty() {
+        assertEquals(0, tokenizer.countTokens(null));
+        assertEquals(0, tokenizer.countTokens(""));
+        assertEquals(0, tokenizer.encode("").length);
+    }
+
+    @Test
+    @DisplayName("孤立代理字符按 '?' 编码")
+    void encode_LoneSurrogate() {
+        assertArrayEquals(tokenizer.encode("a?b"), tokenizer.encode("a\uD800b"));
+    }
+
+    @Test
+    @DisplayName("合并规则引用未知 token 时加载失败")
+    void load_RejectsUnknownToken() {
+        byte[] merges = "#version: 1\n97 98\n300 97\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> BpeTokenizer.load(new ByteArrayInputStream(merges)));
+    }
+
+    @Test
+    @DisplayName("按合并顺序依次合并")
+    void encode_AppliesMergesByRank() throws IOException {
+        byte[] merges = "98 99\n97 98\n97 257\n".getBytes(StandardCharsets.UTF_8);
+        BpeTokenizer small = BpeTokenizer.load(new ByteArrayInputStream(merges));
+
+        assertEquals(259, small.vocabSize());
+        assertArrayEquals(new int[]{97, 256, 97}, small.encode("abca"));
+        assertArrayEquals(new int[]{257, 98}, small.encode("abb"));
+        assertArrayEquals(new int[]{258}, small.encode("aab"));
+    }
+}
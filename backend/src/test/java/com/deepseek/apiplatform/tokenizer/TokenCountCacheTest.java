@@ -0,0 +1,85 @@
+package com.deepseek.apiplatform.tokenizer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCountCacheTest {
+
+    private static BpeTokenizer tokenizer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TokenCountCache tokenCountCache;
+
+    @BeforeAll
+    static void loadTokenizer() throws IOException {
+        try (InputStream in = TokenCountCacheTest.class.getResourceAsStream("/tokenizer/merges.txt")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCountCache = new TokenCountCache(tokenizer, meterRegistry, 100);
+    }
+
+    @Test
+    @DisplayName("重复消息命中缓存且结果与分词器一致")
+    void count_CachesRepeatedMessages() {
+        String content = "人工智能是计算机科学的一个重要分支。";
+
+        assertEquals(tokenizer.countTokens(content), tokenCountCache.count("user", content));
+        assertEquals(tokenizer.countTokens(content), tokenCountCache.count("user", content));
+
+        assertEquals(1, tokenCountCache.stats().hitCount());
+        assertEquals(1, tokenCountCache.stats().missCount());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "tokenCounts").gauge().value());
+    }
+
+    @Test
+    @DisplayName("角色不同的相同内容分别缓存")
+    void count_KeyIncludesRole() {
+        tokenCountCache.count("user", "Hello");
+        tokenCountCache.count("assistant", "Hello");
+
+        assertEquals(2, tokenCountCache.stats().missCount());
+        assertNotEquals(TokenCountCache.key("user", "Hello"), TokenCountCache.key("assistant", "Hello"));
+        assertNotEquals(TokenCountCache.key("us", "erHello"), TokenCountCache.key("user", "Hello"));
+    }
+
+    @Test
+    @DisplayName("缓存键为内容摘要，相同消息得到相同键")
+    void key_IsContentDigest() {
+        assertEquals(TokenCountCache.key("user", "你好，世界"), TokenCountCache.key("user", "你好，世界"));
+        assertNotEquals(TokenCountCache.key("user", "你好，世界"), TokenCountCache.key("user", "你好，世界!"));
+    }
+
+    @Test
+    @DisplayName("空内容不进入缓存")
+    void count_EmptyContent() {
+        assertEquals(0, tokenCountCache.count("user", null));
+        assertEquals(0, tokenCountCache.count("user", ""));
+
+        assertEquals(0, tokenCountCache.stats().requestCount());
+    }
+
+    @Test
+    @DisplayName("内存占用估算随条目数变化")
+    void memoryGauge_TracksEntries() {
+        tokenCountCache.count("user", "a");
+        tokenCountCache.count("user", "b");
+        tokenCountCache.count("user", "c");
+
+        assertEquals(3 * TokenCountCache.ENTRY_BYTES,
+                meterRegistry.get("cache.memory.estimated").tag("cache", "tokenCounts").gauge().value());
+    }
+}
@@ -0,0 +1,210 @@
+#!/usr/bin/env python3
+"""Byte-level BPE trainer and reference encoder for the bundled tokenizer.
+
+  train:  python3 bpe.py train --vocab-size 32000 --output ../../src/main/resources/tokenizer/merges.txt \
+              corpus/zh.txt ../../../README.md \
+              /usr/share/common-licenses/{Apache-2.0,GPL-3,MPL-2.0,LGPL-3,Artistic,GFDL-1.3} \
+              $(find ../../src/main/java -name '*.java' | sort)
+  count:  python3 bpe.py count --merges ../../src/main/resources/tokenizer/merges.txt \
+              ../../src/test/resources/tokenizer/fixtures.jsonl
+
+This is not DeepSeek's tokenizer: the merges it trains are a small local vocabulary, and the fixtures
+it writes only check that the Java encoder matches this script, not that counts match DeepSeek.
+
+The pre-tokenization rules mirror com.deepseek.apiplatform.tokenizer.BpeTokenizer and must be kept
+in sync with it. `count` rewrites every fixture line with the ids and token count this encoder produces.
+"""
+import argparse
+import heapq
+import json
+import sys
+from collections import Counter, defaultdict
+
+NEWLINE, SPACE, LETTER, DIGIT, PUNCT, CJK, OTHER = range(7)
+MAX_RUN = 64
+
+
+def category(c):
+    cp = ord(c)
+    if cp == 0x0A or cp == 0x0D:
+        return NEWLINE
+    if cp == 0x20 or cp == 0x09 or cp == 0x0B or cp == 0x0C:
+        return SPACE
+    if 0x30 <= cp <= 0x39:
+        return DIGIT
+    if 0x41 <= cp <= 0x5A or 0x61 <= cp <= 0x7A:
+        return LETTER
+    if cp < 0x80:
+        return PUNCT if cp > 0x20 and cp != 0x7F else OTHER
+    if (0xC0 <= cp <= 0x24F and cp != 0xD7 and cp != 0xF7) or 0x370 <= cp <= 0x52F \
+            or 0xFF21 <= cp <= 0xFF3A or 0xFF41 <= cp <= 0xFF5A:
+        return LETTER
+    if 0x4E00 <= cp <= 0x9FFF or 0x3400 <= cp <= 0x4DBF or 0x3040 <= cp <= 0x30FF \
+            or 0xAC00 <= cp <= 0xD7AF or 0xF900 <= cp <= 0xFAFF:
+        return CJK
+    if 0xA1 <= cp <= 0xBF or cp == 0xD7 or cp == 0xF7 or 0x2010 <= cp <= 0x2027 \
+            or 0x3000 <= cp <= 0x303F or 0xFF01 <= cp <= 0xFF20 or 0xFF3B <= cp <= 0xFF40 \
+            or 0xFF5B <= cp <= 0xFF65:
+        return PUNCT
+    return OTHER
+
+
+def pretokenize(text):
+    chunks = []
+    n = len(text)
+    i = 0
+    while i < n:
+        cat = category(text[i])
+        if cat == NEWLINE or cat == DIGIT:
+            chunks.append(text[i])
+            i += 1
+        elif cat == SPACE:
+            j = run_end(text, i, SPACE)
+            if j < n and text[j - 1] == ' ' and category(text[j]) in (LETTER, PUNCT, OTHER):
+                if j - 1 > i:
+                    chunks.append(text[i:j - 1])
+                k = run_end(text, j, category(text[j]))
+                chunks.append(text[j - 1:k])
+                i = k
+            else:
+                chunks.append(text[i:j])
+                i = j
+        else:
+            k = run_end(text, i, cat)
+            chunks.append(text[i:k])
+            i = k
+    return chunks
+
+
+def run_end(text, start, cat):
+    limit = min(len(text), start + MAX_RUN)
+    k = start + 1
+    while k < limit and category(text[k]) == cat:
+        k += 1
+    return k
+
+
+def to_bytes(chunk):
+    return chunk.encode('utf-8', errors='replace')
+
+
+def train(paths, vocab_size, min_frequency):
+    words = Counter()
+    for path in paths:
+        with open(path, encoding='utf-8') as f:
+            for chunk in pretokenize(f.read()):
+                words[tuple(to_bytes(chunk))] += 1
+    symbols = [list(w) for w in words]
+    counts = list(words.values())
+    pair_counts = Counter()
+    where = defaultdict(set)
+    for idx, word in enumerate(symbols):
+        for pair in zip(word, word[1:]):
+            pair_counts[pair] += counts[idx]
+            where[pair].add(idx)
+    heap = [(-c, p) for p, c in pair_counts.items()]
+    heapq.heapify(heap)
+    merges = []
+    next_id = 256
+    while next_id < vocab_size and heap:
+        neg, pair = heapq.heappop(heap)
+        if pair_counts.get(pair, 0) != -neg:
+            continue
+        if -neg < min_frequency:
+            break
+        merges.append(pair)
+        new_id = next_id
+        next_id += 1
+        changed = set()
+        for idx in list(where[pair]):
+            word = symbols[idx]
+            count = counts[idx]
+            for p in zip(word, word[1:]):
+                pair_counts[p] -= count
+                changed.add(p)
+            merged = []
+            i = 0
+            while i < len(word):
+                if i + 1 < len(word) and word[i] == pair[0] and word[i + 1] == pair[1]:
+                    merged.append(new_id)
+                    i += 2
+                else:
+                    merged.append(word[i])
+                    i += 1
+            symbols[idx] = merged
+            for p in zip(merged, merged[1:]):
+                pair_counts[p] += count
+                where[p].add(idx)
+                changed.add(p)
+        del where[pair]
+        for p in changed:
+            c = pair_counts.get(p, 0)
+            if c > 0:
+                heapq.heappush(heap, (-c, p))
+            else:
+                pair_counts.pop(p, None)
+    return merges
+
+
+def load_merges(path):
+    ranks = {}
+    with open(path, encoding='utf-8') as f:
+        for line in f:
+            if line.startswith('#') or not line.strip():
+                continue
+            left, right = line.split()
+            ranks[(int(left), int(right))] = len(ranks)
+    return ranks
+
+
+def encode(text, ranks):
+    ids = []
+    for chunk in pretokenize(text):
+        word = list(to_bytes(chunk))
+        while len(word) > 1:
+            best = None
+            for i in range(len(word) - 1):
+                rank = ranks.get((word[i], word[i + 1]))
+                if rank is not None and (best is None or rank < best[0]):
+                    best = (rank, i)
+            if best is None:
+                break
+            rank, i = best
+            word[i:i + 2] = [256 + rank]
+        ids.extend(word)
+    return ids
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    sub = parser.add_subparsers(dest='command', required=True)
+    t = sub.add_parser('train')
+    t.add_argument('--vocab-size', type=int, default=32000)
+    t.add_argument('--min-frequency', type=int, default=2)
+    t.add_argument('--output', required=True)
+    t.add_argument('corpus', nargs='+')
+    c = sub.add_parser('count')
+    c.add_argument('--merges', required=True)
+    c.add_argument('fixtures')
+    args = parser.parse_args()
+
+    if args.command == 'train':
+        merges = train(args.corpus, args.vocab_size, args.min_frequency)
+        with open(args.output, 'w', encoding='utf-8') as f:
+            f.write('#version: 1 byte-level-bpe vocab_size=%d\n' % (256 + len(merges)))
+            for left, right in merges:
+                f.write('%d %d\n' % (left, right))
+        print('%d merges written to %s' % (len(merges), args.output), file=sys.stderr)
+    else:
+        ranks = load_merges(args.merges)
+        with open(args.fixtures, encoding='utf-8') as f:
+            fixtures = [json.loads(line) for line in f if line.strip()]
+        with open(args.fixtures, 'w', encoding='utf-8') as f:
+            for fixture in fixtures:
+                ids = encode(fixture['text'], ranks)
+                out = {'text': fixture['text'], 'tokens': len(ids), 'ids': ids}
+                f.write(json.dumps(out, ensure_ascii=False) + '\n')
+
+
+if __name__ == '__main__':
+    main()
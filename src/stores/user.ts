@@ -3,6 +3,8 @@ import { ref, computed } from 'vue'
 import type { User, ApiKey, UsageStats, BillingRecord } from '@/types'
 import { authApi, apiKeyApi, billingApi } from '@/utils/api'
 
+const BILLING_PAGE_SIZE = 20
+
 export const useUserStore = defineStore('user', () => {
   const user = ref<User | null>(null)
   const token = ref<string | null>(localStorage.getItem('token'))
@@ -14,6 +16,7 @@ export const useUserStore = defineStore('user', () => {
     requestCount: 0
   })
   const billingRecords = ref<BillingRecord[]>([])
+  const billingNextCursor = ref<string | null>(null)
 
   const isLoggedIn = computed(() => !!token.value && !!user.value)
 
@@ -76,11 +79,12 @@ export const useUserStore = defineStore('user', () => {
       const [keys, stats, records] = await Promise.all([
         apiKeyApi.getAll(),
         billingApi.getUsageStats(),
-        billingApi.getRecords()
+        billingApi.getRecords({ limit: BILLING_PAGE_SIZE })
       ])
       apiKeys.value = keys as ApiKey[]
       usageStats.value = stats as UsageStats
-      billingRecords.value = records as BillingRecord[]
+      billingRecords.value = records.items as BillingRecord[]
+      billingNextCursor.value = records.nextCursor
     } catch (error) {
       console.error('Load user data failed:', error)
     }
@@ -102,6 +106,14 @@ export const useUserStore = defineStore('user', () => {
       requestCount: 0
     }
     billingRecords.value = []
+    billingNextCursor.value = null
+  }
+
+  async function loadMoreBillingRecords() {
+    if (!billingNextCursor.value) return
+    const page = await billingApi.getRecords({ limit: BILLING_PAGE_SIZE, cursor: billingNextCursor.value })
+    billingRecords.value.push(...(page.items as BillingRecord[]))
+    billingNextCursor.value = page.nextCursor
   }
 
   async function updateBalance(amount: number) {
@@ -152,6 +164,7 @@ export const useUserStore = defineStore('user', () => {
     apiKeys,
     usageStats,
     billingRecords,
+    billingNextCursor,
     isLoggedIn,
     setToken,
     setUser,
@@ -161,6 +174,7 @@ export const useUserStore = defineStore('user', () => {
     fetchCurrentUser,
     updateBalance,
     loadUserData,
+    loadMoreBillingRecords,
     createApiKey,
     deleteApiKey,
     recharge
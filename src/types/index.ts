@@ -10,7 +10,8 @@ export interface User {
 export interface ApiKey {
   id: number
   name: string
-  key: string
+  key?: string
+  prefix: string
   createdAt: string
   lastUsedAt?: string
   status: 'active' | 'disabled'
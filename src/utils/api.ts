@@ -1,9 +1,11 @@
 const API_BASE_URL = 'http://localhost:8080/api'
 
-export async function apiRequest<T>(
-  endpoint: string,
-  options: RequestInit = {}
-): Promise<T> {
+export interface Page<T> {
+  items: T[]
+  nextCursor: string | null
+}
+
+async function send(endpoint: string, options: RequestInit = {}): Promise<Response> {
   const token = localStorage.getItem('token')
   
   const headers: HeadersInit = {
@@ -25,6 +27,15 @@ export async function apiRequest<T>(
     throw new Error(error.error || '请求失败')
   }
   
+  return response
+}
+
+export async function apiRequest<T>(
+  endpoint: string,
+  options: RequestInit = {}
+): Promise<T> {
+  const response = await send(endpoint, options)
+  
   const contentLength = response.headers.get('content-length')
   if (response.status === 204 || contentLength === '0') {
     return undefined as T
@@ -38,6 +49,14 @@ export async function apiRequest<T>(
   return JSON.parse(text)
 }
 
+export async function apiPage<T>(endpoint: string): Promise<Page<T>> {
+  const response = await send(endpoint)
+  return {
+    items: (await response.json()) as T[],
+    nextCursor: response.headers.get('X-Next-Cursor'),
+  }
+}
+
 export const authApi = {
   register: (data: { email: string; username: string; password: string }) =>
     apiRequest<{ token: string; user: unknown }>('/auth/register', {
@@ -89,7 +108,11 @@ export const apiKeyApi = {
 export const billingApi = {
   getUsageStats: () => apiRequest<unknown>('/billing/usage'),
   
-  getRecords: () => apiRequest<unknown[]>('/billing/records'),
+  getRecords: (params: { limit: number; cursor?: string | null }) => {
+    const query = new URLSearchParams({ limit: String(params.limit) })
+    if (params.cursor) query.set('cursor', params.cursor)
+    return apiPage<unknown>(`/billing/records?${query}`)
+  },
   
   recharge: (data: { amount: number; paymentMethod: string }) =>
     apiRequest<unknown>('/billing/recharge', {